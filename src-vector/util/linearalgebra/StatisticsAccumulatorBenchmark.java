@@ -0,0 +1,54 @@
+package util.linearalgebra;
+
+import java.util.Random;
+
+/**
+ * Compares the throughput of the scalar and the vector accumulator on random rows.
+ * JMH is not part of the build, so the benchmark warms up both accumulators and times a fixed amount of repetitions.
+ * <p>
+ * Usage: {@code java --add-modules jdk.incubator.vector -cp out util.linearalgebra.StatisticsAccumulatorBenchmark [rows] [subset] [columns]}
+ */
+public class StatisticsAccumulatorBenchmark {
+    //The amount of timed repetitions per accumulator.
+    private static final int REPETITIONS = 2000;
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int subset = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+        int q = args.length > 2 ? Integer.parseInt(args[2]) : 7;
+
+        //Random columns, and a random subset of the rows in ascending order as produced by a seed.
+        Random random = new Random(0);
+        double[][] columns = new double[q][rows];
+        for(int a = 0; a < q; a++) {
+            for(int r = 0; r < rows; r++) {
+                columns[a][r] = random.nextInt(10);
+            }
+        }
+        int[] indices = new int[subset];
+        for(int i = 0, r = 0; i < subset; r++) {
+            if(random.nextInt(rows - r) < subset - i) {
+                indices[i++] = r;
+            }
+        }
+
+        AbstractStatisticsAccumulator[] accumulators = {new ScalarStatisticsAccumulator(), new VectorStatisticsAccumulator()};
+        for(AbstractStatisticsAccumulator accumulator : accumulators) {
+            //Warm up, such that the accumulator is compiled.
+            SufficientStatistics statistics = new SufficientStatistics(q);
+            for(int i = 0; i < REPETITIONS; i++) {
+                accumulator.accumulate(columns, indices, subset, statistics);
+            }
+
+            statistics = new SufficientStatistics(q);
+            long start = System.nanoTime();
+            for(int i = 0; i < REPETITIONS; i++) {
+                accumulator.accumulate(columns, indices, subset, statistics);
+            }
+            long end = System.nanoTime();
+
+            double perRow = (end - start) / (double) REPETITIONS / subset;
+            System.out.println(accumulator.getName() + ": " + String.format("%.3f", perRow) + " ns per row, y^T y = " + statistics.getYTY());
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package util.linearalgebra;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Accumulates the sufficient statistics of a regression with SIMD instructions, through the Vector API.
+ * The rows are first gathered into contiguous columns, after which every column sum and every product of two columns is
+ * accumulated over vectors of the preferred width with fused multiply-adds. The lanes are only summed at the end.
+ * <p>
+ * This class needs Java 16 or later, and is therefore kept outside of the main sources. It is compiled and used with:
+ * <pre>
+ *     javac --add-modules jdk.incubator.vector -cp out -d out src-vector/util/linearalgebra/*.java
+ *     java --add-modules jdk.incubator.vector -cp out Core ...
+ * </pre>
+ * {@link AbstractStatisticsAccumulator#getDefault()} selects it automatically when it can be loaded.
+ */
+public class VectorStatisticsAccumulator extends AbstractStatisticsAccumulator {
+    //The widest vector shape supported by the processor.
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    /**
+     * Add the rows with the given indices to the statistics.
+     *
+     * @param columns The x columns followed by the y column, all holding a value for every row.
+     * @param indices The indices of the rows to add.
+     * @param count The amount of indices to use, starting at the first index.
+     * @param statistics The statistics to add the rows to, with one more degree of freedom than the amount of x columns.
+     */
+    @Override
+    public void accumulate(double[][] columns, int[] indices, int count, SufficientStatistics statistics) {
+        int q = columns.length;
+        int lanes = SPECIES.length();
+        int vectorCount = count - count % lanes;
+
+        //Gather the rows into contiguous columns once, as loads from contiguous memory are much cheaper than gathers.
+        double[][] packed = new double[q][count];
+        for(int a = 0; a < q; a++) {
+            double[] column = columns[a];
+            double[] target = packed[a];
+            for(int r = 0; r < count; r++) {
+                target[r] = column[indices[r]];
+            }
+        }
+
+        double[] sums = new double[q];
+        double[] products = new double[q * q];
+        for(int a = 0; a < q; a++) {
+            double[] x = packed[a];
+
+            //The sum of the column.
+            DoubleVector sum = DoubleVector.zero(SPECIES);
+            for(int r = 0; r < vectorCount; r += lanes) {
+                sum = sum.add(DoubleVector.fromArray(SPECIES, x, r));
+            }
+            sums[a] = sum.reduceLanes(VectorOperators.ADD);
+            for(int r = vectorCount; r < count; r++) {
+                sums[a] += x[r];
+            }
+
+            //The products with the column and all later columns, two at a time to reuse the loads of the column.
+            int b = a;
+            for(; b + 1 < q; b += 2) {
+                double[] y0 = packed[b];
+                double[] y1 = packed[b + 1];
+                DoubleVector product0 = DoubleVector.zero(SPECIES);
+                DoubleVector product1 = DoubleVector.zero(SPECIES);
+                for(int r = 0; r < vectorCount; r += lanes) {
+                    DoubleVector xv = DoubleVector.fromArray(SPECIES, x, r);
+                    product0 = xv.fma(DoubleVector.fromArray(SPECIES, y0, r), product0);
+                    product1 = xv.fma(DoubleVector.fromArray(SPECIES, y1, r), product1);
+                }
+                double value0 = product0.reduceLanes(VectorOperators.ADD);
+                double value1 = product1.reduceLanes(VectorOperators.ADD);
+                for(int r = vectorCount; r < count; r++) {
+                    value0 += x[r] * y0[r];
+                    value1 += x[r] * y1[r];
+                }
+                products[a * q + b] = value0;
+                products[a * q + b + 1] = value1;
+            }
+            if(b < q) {
+                double[] y0 = packed[b];
+                DoubleVector product0 = DoubleVector.zero(SPECIES);
+                for(int r = 0; r < vectorCount; r += lanes) {
+                    product0 = DoubleVector.fromArray(SPECIES, x, r).fma(DoubleVector.fromArray(SPECIES, y0, r), product0);
+                }
+                double value0 = product0.reduceLanes(VectorOperators.ADD);
+                for(int r = vectorCount; r < count; r++) {
+                    value0 += x[r] * y0[r];
+                }
+                products[a * q + b] = value0;
+            }
+        }
+        statistics.addColumnSums(count, sums, products);
+    }
+
+    /**
+     * Get the name of the accumulator.
+     *
+     * @return Full name of the accumulator.
+     */
+    @Override
+    public String getName() {
+        return "Vector API (" + SPECIES.length() + " lanes)";
+    }
+}
@@ -1,13 +1,23 @@
+import arff.CardinalityPolicy;
 import arff.Dataset;
 import arff.attribute.AbstractAttribute;
+import arff.column.ColumnStorage;
+import arff.column.NumericEncoder;
 import group.Comparison;
 import group.Group;
 import search.BeamSearch;
+import search.DepthFirstSearch;
+import search.PermutationTest;
+import search.SampleScreening;
+import search.SearchBudget;
 import search.refinement.AbstractRefinementOperator;
 import search.refinement.QualityRefinementOperator;
 import search.refinement.SimpleRefinementOperator;
+import search.result.EvaluationCache;
+import search.result.SearchStatistics;
 import util.GroupPriorityQueue;
 import util.SieveOfAtkin;
+import util.linearalgebra.AbstractStatisticsAccumulator;
 
 import java.io.File;
 import java.io.IOException;
@@ -33,6 +43,30 @@ public class Core {
     private static boolean countNullAsZero = false;
     private static String filePath = "";
     private static String outputFilePath = "";
+    private static boolean useSnapshot = true;
+    private static boolean seedPushdown = false;
+    private static CardinalityPolicy.Mode CARDINALITY_MODE = CardinalityPolicy.Mode.EXCLUDE;
+    private static int MAXIMUM_CARDINALITY = 1000;
+    private static double MAXIMUM_CARDINALITY_FRACTION = 0.5;
+    private static int CARDINALITY_K = 20;
+    private static int EVALUATION_CACHE_SIZE = 0;
+    private static ColumnStorage.Mode STORAGE_MODE = ColumnStorage.Mode.HEAP;
+    private static String storageDirectory = "";
+    private static NumericEncoder.Mode NUMERIC_ENCODING = NumericEncoder.Mode.DOUBLE;
+    private static int CHUNK_SIZE = 0;
+    private static boolean tupleCompression = false;
+    private static double SCREENING_FRACTION = 0;
+    private static double SCREENING_MARGIN = 1;
+    private static double TIME_LIMIT = 0;
+    private static long EVALUATION_LIMIT = 0;
+    private static long MEMORY_LIMIT = 0;
+    private static boolean exhaustiveSearch = false;
+    private static int THREADS = Runtime.getRuntime().availableProcessors();
+    private static int PERMUTATIONS = 0;
+    private static BeamSearch.Verbosity VERBOSITY = BeamSearch.Verbosity.SEEDS;
+    private static String statisticsFilePath = "";
+    private static SearchStatistics.Format STATISTICS_FORMAT = SearchStatistics.Format.JSON;
+    private static boolean streamStatistics = false;
 
     private static String[] seedAttributes = new String[]{};
     private static Comparison[] seedComparisons = new Comparison[]{};
@@ -123,6 +157,113 @@ public class Core {
                             case "output-file":
                                 outputFilePath = value;
                                 break;
+                            case "snapshot":
+                                useSnapshot = !value.equalsIgnoreCase("off");
+                                break;
+                            case "cardinality-policy":
+                                switch (value.toLowerCase()) {
+                                    case "keep": CARDINALITY_MODE = CardinalityPolicy.Mode.KEEP;
+                                        break;
+                                    case "exclude": CARDINALITY_MODE = CardinalityPolicy.Mode.EXCLUDE;
+                                        break;
+                                    case "top-k": CARDINALITY_MODE = CardinalityPolicy.Mode.TOP_K;
+                                        break;
+                                    case "hash": CARDINALITY_MODE = CardinalityPolicy.Mode.HASH;
+                                        break;
+                                }
+                                break;
+                            case "max-cardinality":
+                                MAXIMUM_CARDINALITY = Integer.valueOf(value);
+                                break;
+                            case "max-cardinality-fraction":
+                                MAXIMUM_CARDINALITY_FRACTION = Double.valueOf(value);
+                                break;
+                            case "evaluation-cache-size":
+                                EVALUATION_CACHE_SIZE = Integer.valueOf(value);
+                                break;
+                            case "cardinality-k":
+                                CARDINALITY_K = Integer.valueOf(value);
+                                break;
+                            case "storage":
+                                switch (value.toLowerCase()) {
+                                    case "heap": STORAGE_MODE = ColumnStorage.Mode.HEAP;
+                                        break;
+                                    case "direct": STORAGE_MODE = ColumnStorage.Mode.DIRECT;
+                                        break;
+                                    case "mapped": STORAGE_MODE = ColumnStorage.Mode.MAPPED;
+                                        break;
+                                }
+                                break;
+                            case "storage-directory":
+                                storageDirectory = value;
+                                break;
+                            case "numeric-encoding":
+                                switch (value.toLowerCase()) {
+                                    case "double": NUMERIC_ENCODING = NumericEncoder.Mode.DOUBLE;
+                                        break;
+                                    case "float": NUMERIC_ENCODING = NumericEncoder.Mode.FLOAT;
+                                        break;
+                                    case "compact": NUMERIC_ENCODING = NumericEncoder.Mode.COMPACT;
+                                        break;
+                                }
+                                break;
+                            case "chunk-size":
+                                CHUNK_SIZE = Integer.valueOf(value);
+                                break;
+                            case "time-limit":
+                                TIME_LIMIT = Double.valueOf(value);
+                                break;
+                            case "evaluation-limit":
+                                EVALUATION_LIMIT = Long.valueOf(value);
+                                break;
+                            case "memory-limit":
+                                MEMORY_LIMIT = Long.valueOf(value);
+                                break;
+                            case "search":
+                                exhaustiveSearch = value.equalsIgnoreCase("exhaustive");
+                                break;
+                            case "threads":
+                                THREADS = Integer.valueOf(value);
+                                break;
+                            case "permutations":
+                                PERMUTATIONS = Integer.valueOf(value);
+                                break;
+                            case "verbosity":
+                                switch (value.toLowerCase()) {
+                                    case "quiet": VERBOSITY = BeamSearch.Verbosity.QUIET;
+                                        break;
+                                    case "levels": VERBOSITY = BeamSearch.Verbosity.LEVELS;
+                                        break;
+                                    case "seeds": VERBOSITY = BeamSearch.Verbosity.SEEDS;
+                                        break;
+                                }
+                                break;
+                            case "statistics-file":
+                                statisticsFilePath = value;
+                                break;
+                            case "statistics-format":
+                                switch (value.toLowerCase()) {
+                                    case "json": STATISTICS_FORMAT = SearchStatistics.Format.JSON;
+                                        break;
+                                    case "csv": STATISTICS_FORMAT = SearchStatistics.Format.CSV;
+                                        break;
+                                }
+                                break;
+                            case "statistics-stream":
+                                streamStatistics = value.equalsIgnoreCase("on");
+                                break;
+                            case "screening-fraction":
+                                SCREENING_FRACTION = Double.valueOf(value);
+                                break;
+                            case "screening-margin":
+                                SCREENING_MARGIN = Double.valueOf(value);
+                                break;
+                            case "tuple-compression":
+                                tupleCompression = value.equalsIgnoreCase("on");
+                                break;
+                            case "seed-pushdown":
+                                seedPushdown = value.equalsIgnoreCase("on");
+                                break;
                             case "seed-group":
                                 String[] split = value.split(",");
                                 seedAttributes = new String[split.length / 3];
@@ -174,12 +315,19 @@ public class Core {
             blacklist.addAll(Arrays.asList(Core.blacklist));
 
             //Load the data from the given data file.
-            Dataset dataset = Dataset.loadARFF(filePath, yTarget, xTargets, seedAttributes, seedComparisons, seedValues, countNullAsZero, blacklist);
+            ColumnStorage storage = STORAGE_MODE == ColumnStorage.Mode.HEAP && NUMERIC_ENCODING == NumericEncoder.Mode.DOUBLE ? ColumnStorage.getDefault() : new ColumnStorage(STORAGE_MODE, storageDirectory.equals("") ? null : new File(storageDirectory), NUMERIC_ENCODING);
+            Dataset dataset = Dataset.load(filePath, yTarget, xTargets, seedAttributes, seedComparisons, seedValues, countNullAsZero, blacklist, useSnapshot, seedPushdown, new CardinalityPolicy(CARDINALITY_MODE, MAXIMUM_CARDINALITY, MAXIMUM_CARDINALITY_FRACTION, CARDINALITY_K), storage);
             System.out.println("Number of instances: " + dataset.getInstances().size());
+            dataset.setEvaluationCache(EVALUATION_CACHE_SIZE > 0 ? new EvaluationCache(EVALUATION_CACHE_SIZE) : null);
+            dataset.setTupleCompression(tupleCompression);
+            dataset.setChunkSize(CHUNK_SIZE);
 
             int uniqueValues = 0;
-            for(AbstractAttribute attribute : dataset.getAttributes()) {
-                uniqueValues += attribute.getConstraints().size();
+            for(AbstractAttribute<?> attribute : dataset.getAttributes()) {
+                //The targets and excluded attributes are never refined on, so their constraints are not created.
+                if(dataset.isSearchable(attribute)) {
+                    uniqueValues += attribute.getConstraints().size();
+                }
             }
             System.out.println("The selected attributes contain a total of " + uniqueValues + " unique constraints.");
 
@@ -188,23 +336,98 @@ public class Core {
             System.out.println();
 
             System.out.println("=======================================================================================================================================");
+            DepthFirstSearch depthFirstSearch = exhaustiveSearch ? new DepthFirstSearch(MINIMUM_GROUP_SIZE, MAXIMUM_FRACTION, MINIMUM_QUALITY, THREADS) : null;
+            System.out.println("Search strategy:\t\t[" + (exhaustiveSearch ? depthFirstSearch.getName() : "Beam search") + "]");
             System.out.println("Refinement Operator:\t\t[" + REFINEMENT_OPERATOR.getName() + "]");
+            System.out.println("Statistics accumulator:\t\t[" + AbstractStatisticsAccumulator.getDefault().getName() + "]");
+            System.out.println("Column storage:\t\t\t[" + storage.getName() + "]");
+            System.out.println("Numeric encoding:\t\t[" + NUMERIC_ENCODING + "]");
+            System.out.println("Group evaluation:\t\t[" + (CHUNK_SIZE > 0 ? "Chunks of " + CHUNK_SIZE + " instances" : "Indices") + "]");
+            SampleScreening screening = SCREENING_FRACTION > 0 && SCREENING_FRACTION < 1 ? new SampleScreening(dataset, SCREENING_FRACTION, SCREENING_MARGIN) : null;
+            System.out.println("Candidate screening:\t\t[" + (screening != null ? screening.getName() : "None") + "]");
+            if(screening != null) {
+                //The margin is a fixed factor rather than a confidence bound on the estimate of the sample.
+                System.out.println("Warning: candidate screening can drop subgroups that belong in the result set, since a candidate of which the quality on the sample underestimates its exact quality by more than the margin is never evaluated exactly.");
+            }
+            SearchBudget budget = new SearchBudget((long) (TIME_LIMIT * 1000), EVALUATION_LIMIT, MEMORY_LIMIT << 20);
+            System.out.println("Search budget:\t\t\t[" + budget.getName() + "]");
+            PermutationTest permutationTest = PERMUTATIONS > 0 ? new PermutationTest(PERMUTATIONS, THREADS) : null;
+            System.out.println("Permutation test:\t\t[" + (permutationTest != null ? permutationTest.getName() : "None") + "]");
+            SearchStatistics statistics = !statisticsFilePath.equals("") || streamStatistics ? new SearchStatistics(STATISTICS_FORMAT, streamStatistics ? System.out : null) : null;
+            System.out.println("Search statistics:\t\t[" + (statistics != null ? statistics.getName() : "None") + "]");
+            System.out.println("Regression rows:\t\t[" + (tupleCompression ? "Distinct tuples" : "All rows") + "]");
             System.out.println("y target: \t\t\t[" + yTarget + "]");
             System.out.println("x targets: \t\t\t[" + Arrays.toString(xTargets).replaceAll("[|]", "") + "]");
             System.out.println();
             Date start = new Date();
 
-            //Do the beam search.
-            GroupPriorityQueue queue = new BeamSearch(MINIMUM_GROUP_SIZE, MAXIMUM_FRACTION, MINIMUM_QUALITY).search(dataset, REFINEMENT_OPERATOR, SEARCH_WIDTH, SEARCH_DEPTH, RESULT_SET_LENGTH);
+            //Do the beam search, or enumerate all subgroups up to the search depth.
+            GroupPriorityQueue queue;
+            dataset.setSearchStatistics(statistics);
+            if(exhaustiveSearch) {
+                depthFirstSearch.setVerbose(VERBOSITY != BeamSearch.Verbosity.QUIET);
+                queue = depthFirstSearch.search(dataset, SEARCH_DEPTH, RESULT_SET_LENGTH);
+            } else {
+                BeamSearch beamSearch = new BeamSearch(MINIMUM_GROUP_SIZE, MAXIMUM_FRACTION, MINIMUM_QUALITY);
+                beamSearch.setScreening(screening);
+                beamSearch.setBudget(budget);
+                beamSearch.setStatistics(statistics);
+                beamSearch.setVerbosity(VERBOSITY);
+                queue = beamSearch.search(dataset, REFINEMENT_OPERATOR, SEARCH_WIDTH, SEARCH_DEPTH, RESULT_SET_LENGTH);
+            }
             Date end = new Date();
 
             printQueue(queue, start, end);
+            if(queue.isTruncated()) {
+                System.out.println("The search has been TRUNCATED after " + budget.getEvaluations() + " evaluations, so these are the best subgroups found within the budget.");
+                System.out.println();
+            }
+
+            //Find the null distribution of the best quality on permuted targets, reusing the loaded attributes.
+            //Every permutation is searched in the same way as the data itself, such that the qualities are comparable.
+            if(permutationTest != null) {
+                if(exhaustiveSearch) {
+                    DepthFirstSearch nullSearch = new DepthFirstSearch(MINIMUM_GROUP_SIZE, MAXIMUM_FRACTION, MINIMUM_QUALITY, 1);
+                    nullSearch.setVerbose(false);
+                    permutationTest.run(dataset, permutation -> nullSearch.search(permutation, SEARCH_DEPTH, 1));
+                } else {
+                    permutationTest.run(dataset, permutation -> {
+                        BeamSearch nullSearch = new BeamSearch(MINIMUM_GROUP_SIZE, MAXIMUM_FRACTION, MINIMUM_QUALITY);
+                        nullSearch.setScreening(screening != null ? new SampleScreening(permutation, SCREENING_FRACTION, SCREENING_MARGIN) : null);
+                        nullSearch.setBudget(new SearchBudget((long) (TIME_LIMIT * 1000), EVALUATION_LIMIT, MEMORY_LIMIT << 20));
+                        nullSearch.setVerbosity(BeamSearch.Verbosity.QUIET);
+                        return nullSearch.search(permutation, REFINEMENT_OPERATOR, SEARCH_WIDTH, SEARCH_DEPTH, 1);
+                    });
+                }
+                printSignificance(queue, permutationTest);
+            }
             if(!outputFilePath.equals("")) {
-                printQueueToFile(queue, outputFilePath);
+                printQueueToFile(queue, permutationTest, outputFilePath);
+            }
+            if(statistics != null && !statisticsFilePath.equals("")) {
+                printStatisticsToFile(statistics, statisticsFilePath);
             }
 
             System.out.println("=======================================================================================================================================");
 
+            if(screening != null) {
+                System.out.println("Screened out " + screening.getRejected() + " of " + screening.getScreened() + " screened candidates on the sample, all other candidates have been evaluated exactly.");
+            }
+            long[] intersections = dataset.getIntersectionPlanner().getCounts();
+            System.out.println("Planned intersections: probed " + intersections[0] + ", through bitmaps " + intersections[1] + ", through index sets " + intersections[2] + ".");
+            if(CHUNK_SIZE > 0) {
+                long[] chunks = dataset.getChunkCounts();
+                System.out.println("Chunks skipped: " + chunks[0] + ", taken as a whole: " + chunks[1] + ", scanned: " + chunks[2] + ".");
+            }
+
+            //Write the snapshot now that the search has indexed the attributes, such that later runs do not sort them again.
+            dataset.writeSnapshot();
+
+            //Release the off-heap memory of the columns, now that the search is done.
+            if(storage.getMode() != ColumnStorage.Mode.HEAP) {
+                System.out.println("Released " + storage.getAllocatedBytes() / (1 << 20) + " MB of column storage.");
+            }
+            dataset.close();
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -231,7 +454,26 @@ public class Core {
         System.out.println();
     }
 
-    private static void printQueueToFile(GroupPriorityQueue queue, String outputFile) {
+    /**
+     * Print the null distribution of the permutation test, and the p-value of every group in the queue.
+     *
+     * @param queue The queue to print the p-values of.
+     * @param permutationTest The permutation test that has been run.
+     */
+    private static void printSignificance(GroupPriorityQueue queue, PermutationTest permutationTest) {
+        System.out.println("Null distribution of the best quality over " + permutationTest.getNullDistribution().length + " permutations: minimum " + permutationTest.getQuantile(0) +
+                ", 5% " + permutationTest.getQuantile(0.05) + ", median " + permutationTest.getQuantile(0.5) + ", 95% " + permutationTest.getQuantile(0.95) +
+                ", 99% " + permutationTest.getQuantile(0.99) + ", maximum " + permutationTest.getQuantile(1) + ", mean " + permutationTest.getMean() + ".");
+        System.out.println("Significance of the resulting subgroups: ");
+        int i = 1;
+        for(Group group : queue) {
+            System.out.println("\t#" + i + " p-value = " + String.format("%.4f", permutationTest.getPValue(group.getEvaluation())) + " (evaluation: " + group.getEvaluation() + ")");
+            i++;
+        }
+        System.out.println();
+    }
+
+    private static void printQueueToFile(GroupPriorityQueue queue, PermutationTest permutationTest, String outputFile) {
         File outputFolder = new File("./results");
 
         System.out.println();
@@ -249,6 +491,9 @@ public class Core {
                 header += "beta_" + i + ";";
             }
             header += "size;";
+            if(permutationTest != null) {
+                header += "p_value;";
+            }
             writer.println(header);
 
             for(Group group : queue) {
@@ -257,6 +502,9 @@ public class Core {
                     line += estimator + ";";
                 }
                 line += group.getCoverage() + ";";
+                if(permutationTest != null) {
+                    line += permutationTest.getPValue(group.getEvaluation()) + ";";
+                }
 
                 writer.println(line);
             }
@@ -268,6 +516,28 @@ public class Core {
         System.out.println("Finished outputting.");
     }
 
+    /**
+     * Write the counters and timers of every level and seed to a file in the results directory.
+     *
+     * @param statistics The statistics of the search.
+     * @param outputFile The name of the file to write to.
+     */
+    private static void printStatisticsToFile(SearchStatistics statistics, String outputFile) {
+        System.out.println();
+        System.out.println("Outputting the search statistics to file ./results/" + outputFile + ".");
+
+        //Create the output directory if it does not already exist.
+        new File("./results").mkdir();
+
+        try {
+            PrintWriter writer = new PrintWriter("./results/" + outputFile, "UTF-8");
+            statistics.write(writer);
+            writer.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
     /**
      * Restore all the default values for the parameters.
      */
@@ -285,6 +555,30 @@ public class Core {
         yTarget = "like";
         xTargets = new String[]{"attractive_partner","sincere_partner","intelligence_partner","funny_partner","ambition_partner","shared_interests_partner"};
         outputFilePath = "";
+        useSnapshot = true;
+        seedPushdown = false;
+        CARDINALITY_MODE = CardinalityPolicy.Mode.EXCLUDE;
+        MAXIMUM_CARDINALITY = 1000;
+        MAXIMUM_CARDINALITY_FRACTION = 0.5;
+        CARDINALITY_K = 20;
+        EVALUATION_CACHE_SIZE = 0;
+        STORAGE_MODE = ColumnStorage.Mode.HEAP;
+        storageDirectory = "";
+        NUMERIC_ENCODING = NumericEncoder.Mode.DOUBLE;
+        CHUNK_SIZE = 0;
+        tupleCompression = false;
+        SCREENING_FRACTION = 0;
+        SCREENING_MARGIN = 1;
+        TIME_LIMIT = 0;
+        EVALUATION_LIMIT = 0;
+        MEMORY_LIMIT = 0;
+        exhaustiveSearch = false;
+        THREADS = Runtime.getRuntime().availableProcessors();
+        PERMUTATIONS = 0;
+        VERBOSITY = BeamSearch.Verbosity.SEEDS;
+        statisticsFilePath = "";
+        STATISTICS_FORMAT = SearchStatistics.Format.JSON;
+        streamStatistics = false;
         seedAttributes = new String[]{};
         seedComparisons = new Comparison[]{};
         seedValues = new String[]{};
@@ -295,7 +589,10 @@ public class Core {
      */
     private static void printHelp() {
         System.out.println("Parameters used to instantiate a beam search: ");
-        System.out.println("\t-dataset-file value: The path to the dataset file. (MANDATORY)");
+        System.out.println("\t-dataset-file value: The path to the dataset file, either an arff file or a dataset snapshot. (MANDATORY)");
+        System.out.println();
+        System.out.println("\t-snapshot value: Whether a binary snapshot is kept next to the arff file, which is loaded instead of the arff file when it is still valid.");
+        System.out.println("\t\tMust be one of the following: {ON,OFF} (default value: ON)");
         System.out.println();
         System.out.println("\t-output-file value: The name of the file to output the result to. ");
         System.out.println();
@@ -305,6 +602,40 @@ public class Core {
         System.out.println();
         System.out.println("\t-seed-group attribute,comparison,value,attribute2,comparison2,value2,etc: The attribute with the cutoff values have to be inserted in trios. Here the comparison has to be one of the following: {EQ,NEQ,LTEQ,GTEQ}.");
         System.out.println();
+        System.out.println("\t-search value: The search strategy. BEAM keeps the best w subgroups of every level, EXHAUSTIVE enumerates every combination of up to d constraints depth-first. The refinement operator, width, screening and budget only apply to the beam search.");
+        System.out.println("\t\tMust be one of the following: {BEAM,EXHAUSTIVE} (default value: BEAM)");
+        System.out.println();
+        System.out.println("\t-threads value: The amount of worker threads the top-level branches of the exhaustive search, or the permutations of the permutation test, are divided over. (default value: " + THREADS + ")");
+        System.out.println();
+        System.out.println("\t-verbosity value: The amount of progress printed during the beam search: only the results, also every level, or also every seed.");
+        System.out.println("\t\tMust be one of the following: {QUIET,LEVELS,SEEDS} (default value: SEEDS)");
+        System.out.println();
+        System.out.println("\t-statistics-file value: The name of the file in ./results to write the counters and timers of every level and seed of the beam search to. The candidates generated, rejected as a duplicate, on coverage or on quality and evaluated are counted, and the time spent on intersections, matrices, solves and insertions is measured.");
+        System.out.println();
+        System.out.println("\t-statistics-format value: The format of the search statistics.");
+        System.out.println("\t\tMust be one of the following: {JSON,CSV} (default value: JSON)");
+        System.out.println();
+        System.out.println("\t-statistics-stream value: Whether the statistics of every seed are printed as soon as the seed has been evaluated.");
+        System.out.println("\t\tMust be one of the following: {ON,OFF} (default value: OFF)");
+        System.out.println();
+        System.out.println("\t-permutations value: The amount of permutations of the targets used to test the significance of the resulting subgroups. Every permutation shuffles the rows of the targets relative to the other attributes, and is searched for its best subgroup with the same search strategy and parameters as the data itself, including the refinement operator, width, depth, screening and budget. Every permutation thus costs about as much as the search itself. The p-value of a subgroup is the fraction of permutations of which the best subgroup is at least as good. 0 disables the test. (default value: " + PERMUTATIONS + ")");
+        System.out.println();
+        System.out.println("\t-time-limit value: The maximum amount of seconds the search may take. When it has passed, the search stops cleanly before the next batch of candidates, and the best subgroups found so far are reported. 0 means no limit. (default value: " + TIME_LIMIT + ")");
+        System.out.println();
+        System.out.println("\t-evaluation-limit value: The maximum amount of candidates that are evaluated, after which the search stops. The most promising candidates are evaluated first. 0 means no limit. (default value: " + EVALUATION_LIMIT + ")");
+        System.out.println();
+        System.out.println("\t-memory-limit value: The amount of heap memory in MB that may be in use, after which the search stops. 0 means no limit. (default value: " + MEMORY_LIMIT + ")");
+        System.out.println();
+        System.out.println("\t-screening-fraction value: Screen the candidates on a sample of this fraction of the instances, stratified on the y target, and only evaluate the candidates exactly that could still enter the beam or the result set. The screening is a heuristic: it can drop subgroups that belong in the result set, and is therefore disabled by default. 0 disables the screening. (default value: " + SCREENING_FRACTION + ")");
+        System.out.println();
+        System.out.println("\t-screening-margin value: The relative amount the quality of a candidate on the sample may underestimate its exact quality. A candidate is kept when its quality on the sample times (1 + margin) reaches the quality needed to enter the beam or the result set. The margin is a fixed factor, not a confidence bound, so no margin guarantees that the best subgroups are kept. (default value: " + SCREENING_MARGIN + ")");
+        System.out.println();
+        System.out.println("\t-tuple-compression value: Whether the regression statistics of a subgroup are found from the counts of its distinct tuples of target values, instead of from all of its rows.");
+        System.out.println("\t\tMust be one of the following: {ON,OFF} (default value: OFF)");
+        System.out.println();
+        System.out.println("\t-seed-pushdown value: Whether the seed group is applied while reading the arff file, such that only the instances within the seed are loaded and indexed. Snapshots are not used in this mode.");
+        System.out.println("\t\tMust be one of the following: {ON,OFF} (default value: OFF)");
+        System.out.println();
         System.out.println("\t-d value: Set the beam search depth to the desired integer value. (default value: " + SEARCH_DEPTH + ")");
         System.out.println();
         System.out.println("\t-w value: Set the beam search width to the desired integer value. (default value: " + SEARCH_WIDTH + ")");
@@ -317,6 +648,27 @@ public class Core {
         System.out.println();
         System.out.println("\t-max-group-size-fraction value: The maximum coverage that a subgroup may have relative to the size of the dataset. This value should be a fraction. (default value: " + MAXIMUM_FRACTION + ")");
         System.out.println();
+        System.out.println("\t-cardinality-policy value: How attributes with too many distinct values, such as ids, are handled: not at all, excluded from the search, capped to the k most frequent values or merged into k hash buckets.");
+        System.out.println("\t\tMust be one of the following: {KEEP,EXCLUDE,TOP-K,HASH} (default value: EXCLUDE)");
+        System.out.println();
+        System.out.println("\t-max-cardinality value: The maximum amount of distinct values an attribute may have before the cardinality policy applies. (default value: " + MAXIMUM_CARDINALITY + ")");
+        System.out.println();
+        System.out.println("\t-max-cardinality-fraction value: The maximum amount of distinct values relative to the amount of instances before the cardinality policy applies, when there are more than k distinct values. (default value: " + MAXIMUM_CARDINALITY_FRACTION + ")");
+        System.out.println();
+        System.out.println("\t-cardinality-k value: The amount of values kept, or the amount of buckets used, by the cardinality policy. (default value: " + CARDINALITY_K + ")");
+        System.out.println();
+        System.out.println("\t-evaluation-cache-size value: The maximum amount of evaluations that are cached by the rows they cover, 0 disables the cache. (default value: " + EVALUATION_CACHE_SIZE + ")");
+        System.out.println();
+        System.out.println("\t-storage value: Where the columns and the sorted orders of the attributes are kept: on the Java heap, in direct buffers outside of the heap, or in a temporary file that is memory mapped.");
+        System.out.println("\t\tMust be one of the following: {HEAP,DIRECT,MAPPED} (default value: HEAP)");
+        System.out.println();
+        System.out.println("\t-storage-directory value: The directory in which the temporary file of the MAPPED storage is created. (default value: the temporary directory of the system)");
+        System.out.println();
+        System.out.println("\t-numeric-encoding value: The types the numeric columns may be stored in. FLOAT and COMPACT only use floats, shorts or bytes for columns of which every value is represented exactly, and the regression is always accumulated in doubles.");
+        System.out.println("\t\tMust be one of the following: {DOUBLE,FLOAT,COMPACT} (default value: DOUBLE)");
+        System.out.println();
+        System.out.println("\t-chunk-size value: Evaluate subgroups chunk by chunk instead of through the intersection of their indices, skipping or taking whole chunks based on the zone maps of the attributes. 0 disables chunked evaluation. (default value: " + CHUNK_SIZE + ")");
+        System.out.println();
         System.out.println("\t-blacklist value: A list of attributes (without spaces, separated by commas) that should be ignored.");
         System.out.println("\tExample: \'-blacklist decision,decision_o\'");
         System.out.println();
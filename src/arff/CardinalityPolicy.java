@@ -0,0 +1,223 @@
+package arff;
+
+import arff.attribute.AbstractAttribute;
+import arff.attribute.SetAttribute;
+import arff.attribute.Type;
+import arff.column.Column;
+import arff.column.ColumnStorage;
+import arff.column.NominalColumn;
+
+import java.util.*;
+
+/**
+ * Policy that keeps the amount of constraints of high-cardinality attributes, such as ids and UUIDs, bounded.
+ * An attribute is considered to be high-cardinality when it has more distinct values than the maximum cardinality,
+ * or when it has more than k distinct values and these make up more than the maximum fraction of the rows.
+ */
+public class CardinalityPolicy {
+    /**
+     * The way high-cardinality attributes are handled.
+     */
+    public enum Mode {
+        //Keep the attribute as is.
+        KEEP,
+        //Do not refine on the attribute at all.
+        EXCLUDE,
+        //Keep the k most frequent values, and merge all other values into one.
+        TOP_K,
+        //Merge the values into k buckets based on their hash.
+        HASH
+    }
+
+    //The value that replaces the values outside of the top k.
+    private static final String OTHER_VALUE = "(other)";
+
+    //The mode of the policy.
+    private final Mode mode;
+
+    //The maximum amount of distinct values an attribute may have.
+    private final int maximumCardinality;
+
+    //The maximum amount of distinct values relative to the amount of rows.
+    private final double maximumCardinalityFraction;
+
+    //The amount of values that are kept, or the amount of buckets.
+    private final int k;
+
+    /**
+     * Create a cardinality policy.
+     *
+     * @param mode The way high-cardinality attributes are handled.
+     * @param maximumCardinality The maximum amount of distinct values an attribute may have.
+     * @param maximumCardinalityFraction The maximum amount of distinct values relative to the amount of rows.
+     * @param k The amount of values that are kept, or the amount of buckets.
+     */
+    public CardinalityPolicy(Mode mode, int maximumCardinality, double maximumCardinalityFraction, int k) {
+        this.mode = mode;
+        this.maximumCardinality = maximumCardinality;
+        this.maximumCardinalityFraction = maximumCardinalityFraction;
+        this.k = Math.max(1, k);
+    }
+
+    /**
+     * Apply the policy to the nominal attributes.
+     * The original attributes and columns are never changed, such that they can still be stored in a snapshot.
+     * High-cardinality attributes are excluded from the search instead, and with the top-k and hash modes a
+     * replacement set attribute with the same name is added to the end of the attribute list.
+     *
+     * @param attributes The list of attributes, to which the replacements are added.
+     * @param columns The columns holding the values, indexed by attribute id.
+     * @param rowCount The amount of rows within the columns.
+     * @param protectedAttributes The names of the attributes that are used by the seed or the regression model, and thus should not be changed.
+     * @param excludedAttributes The set to which the attributes that should not be refined on are added.
+     * @param storage The storage the columns of the replacements are kept in.
+     * @return The columns, including the columns of the replacements.
+     */
+    public Column[] apply(List<AbstractAttribute<?>> attributes, Column[] columns, int rowCount, Set<String> protectedAttributes, Set<AbstractAttribute<?>> excludedAttributes, ColumnStorage storage) {
+        if(mode == Mode.KEEP) {
+            return columns;
+        }
+
+        List<Column> result = new ArrayList<>(Arrays.asList(columns));
+        for(AbstractAttribute<?> attribute : new ArrayList<>(attributes)) {
+            if((attribute.getType() != Type.SET && attribute.getType() != Type.UUID) || !(columns[attribute.getId()] instanceof NominalColumn)) {
+                continue;
+            }
+            NominalColumn column = (NominalColumn) columns[attribute.getId()];
+
+            //Count the occurrences of every value that is actually present.
+            int[] counts = new int[column.getDictionary().length];
+            int distinct = 0;
+            for(int row = 0; row < rowCount; row++) {
+                int code = column.getCode(row);
+                if(code >= 0 && counts[code]++ == 0) {
+                    distinct++;
+                }
+            }
+
+            if(distinct <= maximumCardinality && (distinct <= k || distinct <= maximumCardinalityFraction * rowCount)) {
+                continue;
+            }
+            if(protectedAttributes.contains(attribute.getName())) {
+                System.out.println("Attribute " + attribute.getName() + " has " + distinct + " distinct values, but is kept as it is used by the seed or the regression model.");
+                continue;
+            }
+
+            excludedAttributes.add(attribute);
+            if(mode == Mode.EXCLUDE) {
+                System.out.println("Excluded attribute " + attribute.getName() + ", as it has " + distinct + " distinct values.");
+                continue;
+            }
+
+            //Map every value to its replacement value.
+            List<String> replacementValues = new ArrayList<>();
+            int[] remap = mode == Mode.TOP_K ? getTopKRemap(column.getDictionary(), counts, replacementValues) : getHashRemap(column.getDictionary(), counts, replacementValues);
+            int[] codes = new int[rowCount];
+            for(int row = 0; row < rowCount; row++) {
+                int code = column.getCode(row);
+                codes[row] = code < 0 ? -1 : remap[code];
+            }
+
+            //The replacement takes the next free id, such that ids keep matching positions in the attribute list.
+            StringBuilder valuesString = new StringBuilder();
+            for(String value : replacementValues) {
+                if(valuesString.length() > 0) valuesString.append(",");
+                valuesString.append("'").append(value.replace("\\", "\\\\").replace("'", "\\'")).append("'");
+            }
+            SetAttribute replacement = new SetAttribute(attribute.getName(), attributes.size(), valuesString.toString());
+            attributes.add(replacement);
+            result.add(new NominalColumn(storage.store(codes), replacementValues.toArray()));
+
+            System.out.println("Replaced attribute " + attribute.getName() + ", which has " + distinct + " distinct values, by " + replacementValues.size() + (mode == Mode.TOP_K ? " values." : " hash buckets."));
+        }
+        return result.toArray(new Column[result.size()]);
+    }
+
+    /**
+     * Map the k most frequent values to themselves, and all other values to one shared value.
+     *
+     * @param dictionary The distinct values, indexed by code.
+     * @param counts The amount of occurrences of every code.
+     * @param replacementValues The list to which the replacement values are added.
+     * @return The replacement code of every code.
+     */
+    private int[] getTopKRemap(Object[] dictionary, int[] counts, List<String> replacementValues) {
+        //Sort the codes on their frequency, the lowest code first on ties.
+        Integer[] order = new Integer[dictionary.length];
+        for(int code = 0; code < order.length; code++) {
+            order[code] = code;
+        }
+        Arrays.sort(order, (o1, o2) -> counts[o1] != counts[o2] ? Integer.compare(counts[o2], counts[o1]) : Integer.compare(o1, o2));
+
+        int[] remap = new int[dictionary.length];
+        Arrays.fill(remap, -1);
+        for(int i = 0; i < k && i < order.length && counts[order[i]] > 0; i++) {
+            remap[order[i]] = i;
+            replacementValues.add(dictionary[order[i]].toString());
+        }
+
+        //Values that are not in the top k are merged.
+        int other = -1;
+        for(int code = 0; code < remap.length; code++) {
+            if(remap[code] == -1 && counts[code] > 0) {
+                if(other == -1) {
+                    other = replacementValues.size();
+                    replacementValues.add(OTHER_VALUE);
+                }
+                remap[code] = other;
+            }
+        }
+        return remap;
+    }
+
+    /**
+     * Map every value to one of k buckets, based on the hash of the value.
+     *
+     * @param dictionary The distinct values, indexed by code.
+     * @param counts The amount of occurrences of every code.
+     * @param replacementValues The list to which the replacement values are added.
+     * @return The replacement code of every code.
+     */
+    private int[] getHashRemap(Object[] dictionary, int[] counts, List<String> replacementValues) {
+        //Only the buckets that are used get a code, in bucket order.
+        int[] bucketCodes = new int[k];
+        Arrays.fill(bucketCodes, -1);
+        for(int code = 0; code < dictionary.length; code++) {
+            if(counts[code] > 0) {
+                bucketCodes[getBucket(dictionary[code])] = 0;
+            }
+        }
+        for(int bucket = 0; bucket < k; bucket++) {
+            if(bucketCodes[bucket] == 0) {
+                bucketCodes[bucket] = replacementValues.size();
+                replacementValues.add("bucket-" + bucket);
+            }
+        }
+
+        int[] remap = new int[dictionary.length];
+        for(int code = 0; code < dictionary.length; code++) {
+            remap[code] = counts[code] > 0 ? bucketCodes[getBucket(dictionary[code])] : -1;
+        }
+        return remap;
+    }
+
+    /**
+     * Get the bucket of the value.
+     *
+     * @param value The value.
+     * @return The bucket in the range [0, k).
+     */
+    private int getBucket(Object value) {
+        return (value.toString().hashCode() & Integer.MAX_VALUE) % k;
+    }
+
+    /**
+     * Get the default policy, which excludes attributes with more than 1000 distinct values, or with more distinct
+     * values than half of the rows.
+     *
+     * @return The default policy.
+     */
+    public static CardinalityPolicy getDefault() {
+        return new CardinalityPolicy(Mode.EXCLUDE, 1000, 0.5, 20);
+    }
+}
@@ -2,50 +2,118 @@ package arff;
 
 import arff.attribute.AbstractAttribute;
 import arff.attribute.Constraint;
+import arff.attribute.ConstraintFilter;
 import arff.attribute.NumericAttribute;
+import arff.column.Column;
+import arff.column.ColumnStorage;
+import arff.column.NumericColumn;
 import arff.instance.Instance;
+import arff.io.ChunkedARFFLoader;
+import arff.io.DatasetSnapshot;
+import arff.io.SeedFilter;
 import group.Comparison;
 import group.Group;
+import search.result.EvaluationCache;
 import search.result.RegressionModelEvaluation;
-import util.FileLoader;
+import search.result.SearchStatistics;
+import util.linearalgebra.AbstractStatisticsAccumulator;
+import util.linearalgebra.CholeskyDecomposition;
 import util.linearalgebra.Matrix;
 import util.linearalgebra.NoSquareException;
+import util.linearalgebra.SufficientStatistics;
 import util.linearalgebra.Vector;
 
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.IntStream;
 
-public class Dataset {
+public class Dataset implements Closeable {
     //The list of attributes within the dataset file.
-    private final List<AbstractAttribute> attributes;
+    private final List<AbstractAttribute<?>> attributes;
 
     //The list of instances within the dataset file.
     private final List<Instance> instances;
 
+    //The columns holding the values of the instances, indexed by attribute id.
+    private final Column[] columns;
+
+    //The storage the columns and the sorted indices of the attributes are kept in.
+    private final ColumnStorage storage;
+
     //The relation name.
     private final String relationName;
 
+    //The attributes that are not refined on, as they have too many distinct values.
+    private final Set<AbstractAttribute<?>> excludedAttributes;
+
     //The y target for the regression model.
-    private final AbstractAttribute yTarget;
+    private final AbstractAttribute<?> yTarget;
 
     //The x targets for the regression model.
-    private final AbstractAttribute[] xTargets;
+    private final AbstractAttribute<?>[] xTargets;
 
     //The initial seed.
     private final Group seed;
 
-    //The lines of the file. Used as a buffer.
-    private static final List<String> lines = new ArrayList<>();
-
     //The degrees of freedom.
     private final int p;
 
+    //The amount of rows within the dataset file, which includes the rows outside of the seed when the seed has been applied while loading.
+    private final int sourceRowCount;
+
+    //The columns of the x targets followed by the column of the y target.
+    private final NumericColumn[] regressionColumns;
+
+    //The arrays backing the regression columns when these are all doubles on the heap, null otherwise.
+    private final double[][] regressionArrays;
+
+    //The amount of rows that is decoded at once when the regression columns are not available as arrays.
+    private static final int BLOCK_SIZE = 1024;
+
+    //The distinct tuple of target values of every instance when the regression rows are compressed, null otherwise.
+    private int[] tupleIds;
+
+    //The distinct tuples of target values, as the x columns followed by the y column.
+    private double[][] tupleColumns;
+
+    //The histogram of the tuples, the tuples that have been counted and their counts, kept per thread.
+    private ThreadLocal<int[][]> tupleBuffers;
+
+    //The cache of evaluations by the rows they cover, null if evaluations are not cached.
+    private EvaluationCache evaluationCache;
+
+    //The statistics the time spent on the regressions is added to, null if no statistics are kept.
+    private SearchStatistics searchStatistics;
+
+    //The quality of every constraint on its own on the targets of the dataset, by the product of the constraint.
+    private final HashMap<BigInteger, Double> constraintEvaluations = new HashMap<>();
+
+    //Writes the snapshot of the parsed arff file, null if no snapshot has to be written.
+    private Runnable snapshotWriter;
+
+    //The amount of instances within a chunk when groups are evaluated chunk by chunk, 0 if they are evaluated through their indices.
+    private int chunkSize;
+
+    //The regression statistics and fingerprint parts of all instances within every chunk.
+    private SufficientStatistics[] chunkStatistics;
+    private long[] chunkHighs;
+    private long[] chunkLows;
+
+    //The amount of chunks that have been skipped, taken as a whole, or scanned instance by instance.
+    private final AtomicLong skippedChunks = new AtomicLong();
+    private final AtomicLong takenChunks = new AtomicLong();
+    private final AtomicLong scannedChunks = new AtomicLong();
+
+    //The planner that chooses how seeds are intersected with constraints.
+    private final IntersectionPlanner intersectionPlanner;
+
     //Matrices and other stuff that we need for cook's distance, and should be constant.
-    private final Matrix X_T;
     private final Matrix X_T_X;
-    private final Vector Y;
     private final Vector beta_estimator;
-    private final Vector e;
     private final double p_s_2;
 
     /**
@@ -53,42 +121,66 @@ public class Dataset {
      *
      * @param attributes The list of attributes.
      * @param instances The list of instances.
+     * @param columns The columns holding the values of the instances, indexed by attribute id.
      * @param relationName The name of the relation.
      * @param yTarget The numeric y target.
      * @param xTargets  The numeric x targets.
      * @param seedAttributes  The attributes that are present within the seed.
      * @param seedComparisons  The attribute comparisons that are present within the seed.
      * @param seedTargets  The attribute values that are present within the seed.
+     * @param reference The regression statistics of all rows when the seed has been applied while loading, null if the instances are all rows.
+     * @param excludedAttributes The attributes that are not refined on, as they have too many distinct values.
+     * @param storage The storage the columns are kept in, which is closed together with the dataset.
      */
-    public Dataset(List<AbstractAttribute> attributes, List<Instance> instances, String relationName, int yTarget, int[] xTargets, int[] seedAttributes, Comparison[] seedComparisons, String[] seedTargets) {
+    public Dataset(List<AbstractAttribute<?>> attributes, List<Instance> instances, Column[] columns, String relationName, int yTarget, int[] xTargets, int[] seedAttributes, Comparison[] seedComparisons, String[] seedTargets, SufficientStatistics reference, Set<AbstractAttribute<?>> excludedAttributes, ColumnStorage storage) {
         this.instances = instances;
+        this.excludedAttributes = excludedAttributes;
+        this.columns = columns;
+        this.storage = storage;
         this.attributes = attributes;
         this.relationName = relationName;
 
         //Find the y and x targets as attributes.
         this.yTarget = attributes.get(yTarget);
         if (!(this.yTarget instanceof NumericAttribute)) throw new IllegalArgumentException("The target attribute " + this.yTarget.getName() + " is not numeric!");
-        this.xTargets = new AbstractAttribute[xTargets.length];
+        this.xTargets = new AbstractAttribute<?>[xTargets.length];
         for(int i = 0; i < xTargets.length; i++) {
             this.xTargets[i] = attributes.get(xTargets[i]);
             if (!(this.xTargets[i] instanceof NumericAttribute)) throw new IllegalArgumentException("The target attribute " + this.xTargets[i].getName() + " is not numeric!");
         }
 
-        //Initialize all the attributes.
-        for(AbstractAttribute attribute : attributes) {
+        //Initialize all the attributes. Their indexes are built on first use, so the targets are never indexed.
+        for(AbstractAttribute<?> attribute : attributes) {
             attribute.initialize(this);
         }
 
+        intersectionPlanner = new IntersectionPlanner(instances.size());
+
         //The degrees of freedom is the x targets amount + 1.
         p = xTargets.length + 1;
 
+        //The regression statistics are accumulated from the columns of the targets, in whatever encoding these are stored.
+        regressionColumns = new NumericColumn[p];
+        double[][] arrays = new double[p][];
+        for(int i = 0; i < p; i++) {
+            AbstractAttribute<?> attribute = i < p - 1 ? this.xTargets[i] : this.yTarget;
+            regressionColumns[i] = (NumericColumn) columns[attribute.getId()];
+            for(int j = 0; j < instances.size(); j++) {
+                if(regressionColumns[i].isNull(j)) throw new IllegalArgumentException("The target attribute " + attribute.getName() + " has a missing value in instance " + j + "!");
+            }
+            arrays[i] = regressionColumns[i].getDoubleArray();
+        }
+        regressionArrays = Arrays.asList(arrays).contains(null) ? null : arrays;
+
         //Create the seed group.
         Group seed = new Group();
         for(int i = 0; i < seedAttributes.length; i++) {
-            AbstractAttribute attribute = attributes.get(seedAttributes[i]);
+            AbstractAttribute<?> attribute = attributes.get(seedAttributes[i]);
             Comparison comparison = seedComparisons[i];
             String targetValue = seedTargets[i];
-            Constraint addition = attribute.getConstraint(attribute.getName() + " " + comparison + " " + attribute.convertValue(targetValue));
+
+            //All instances satisfy a seed that has been applied while loading, even when its value is no longer present.
+            Constraint<?> addition = getSeedConstraint(attribute, comparison, targetValue, reference != null);
 
             if(addition == null) {
                 throw new IllegalArgumentException("Target value " + targetValue + " or comparison mode " + comparison + " is invalid. The target attribute only supports the following comparisons: " + Arrays.toString(attribute.getComparisons()) + ".");
@@ -103,24 +195,43 @@ public class Dataset {
         List<Integer> indices = new ArrayList<>(n);
         IntStream.range(0,n).forEach(indices::add);
 
-        //Calculate data for the full dataset, to be used during the Cook's distance evaluations.
-        //This includes the X_T, X_T_X, Y, beta_estimator, the difference e and the p_s_2 divisor in the Cook's distance.
-        Matrix X = getXMatrix(indices);
-        X_T = X.getTransposeMatrix();
-        X_T_X = X_T.multiply(X);
-        Y = getYVector(indices);
-        beta_estimator = getBetaEstimator(new HashSet<>(indices));
-        e = Y.subtract(X.multiply(beta_estimator));
+        if(reference == null) {
+            //Calculate data for the full dataset, to be used during the Cook's distance evaluations.
+            //This includes the X_T, X_T_X, Y, beta_estimator, the difference e and the p_s_2 divisor in the Cook's distance.
+            Matrix X = getXMatrix(indices);
+            X_T_X = X.getGram();
+            Vector Y = getYVector(indices);
+            beta_estimator = getBetaEstimator(new HashSet<>(indices));
+            Vector e = Y.subtract(X.multiply(beta_estimator));
 
-        double s_2 = 0;
-        for(int i = 0; i < e.size(); i++) {
-            s_2 += e.getValue(i) * e.getValue(i);
-        }
-        s_2 = s_2 / (n - p);
+            double s_2 = 0;
+            for(int i = 0; i < e.size(); i++) {
+                s_2 += e.getValue(i) * e.getValue(i);
+            }
+            s_2 = s_2 / (n - p);
+
+            this.p_s_2 = p * s_2;
+            this.sourceRowCount = n;
+
+            System.out.println("Full dataset has evaluation " + getCooksDistance(new HashSet<>(indices)));
+        } else {
+            //The full dataset has not been loaded, so take the data from the statistics gathered while parsing.
+            //The sum of squared residuals is y^T y - beta^T X^T y, as X^T X beta = X^T y.
+            X_T_X = reference.getGram();
+            Vector X_T_Y = reference.getXTY();
+            try {
+                beta_estimator = X_T_X.getInverse().multiply(X_T_Y);
+            } catch (NoSquareException e) {
+                throw new IllegalArgumentException("Inverse matrix has not been given a square matrix!");
+            }
 
-        this.p_s_2 = p * s_2;
+            double s_2 = (reference.getYTY() - beta_estimator.dot(X_T_Y)) / (reference.getN() - p);
 
-        System.out.println("Full dataset has evaluation " + getCooksDistance(new HashSet<>(indices)));
+            this.p_s_2 = p * s_2;
+            this.sourceRowCount = (int) reference.getN();
+
+            System.out.println("Full dataset has evaluation " + new RegressionModelEvaluation(0, beta_estimator.getValues(), sourceRowCount));
+        }
 
         //Make sure that when the group is empty, we still have a list of indices.
         Set<Integer> seedIndices = seed.getIndicesSubset();
@@ -131,12 +242,82 @@ public class Dataset {
         System.out.println("Seed group [" + this.seed.getReadableConstraints() + "] has evaluation " + getCooksDistance(seedIndices));
     }
 
+    /**
+     * Create a view of the given dataset, in which the regression targets are replaced by the given columns.
+     * The view shares the attributes, their indexes and the reference regression of the dataset. The columns of the
+     * targets are replaced everywhere, such that every read of the targets sees the replacements.
+     *
+     * @param dataset The dataset to create the view of.
+     * @param regressionColumns The columns of the x targets followed by the column of the y target, encoded as doubles.
+     */
+    private Dataset(Dataset dataset, NumericColumn[] regressionColumns) {
+        this.attributes = dataset.attributes;
+        this.instances = dataset.instances;
+        this.columns = dataset.columns.clone();
+        this.storage = dataset.storage;
+        this.relationName = dataset.relationName;
+        this.excludedAttributes = dataset.excludedAttributes;
+        this.yTarget = dataset.yTarget;
+        this.xTargets = dataset.xTargets;
+        this.seed = dataset.seed;
+        this.p = dataset.p;
+        this.sourceRowCount = dataset.sourceRowCount;
+        this.regressionColumns = regressionColumns;
+        this.regressionArrays = new double[p][];
+        for(int i = 0; i < p; i++) {
+            AbstractAttribute<?> attribute = i < p - 1 ? xTargets[i] : yTarget;
+            columns[attribute.getId()] = regressionColumns[i];
+            regressionArrays[i] = regressionColumns[i].getDoubleArray();
+        }
+        this.X_T_X = dataset.X_T_X;
+        this.beta_estimator = dataset.beta_estimator;
+        this.p_s_2 = dataset.p_s_2;
+        this.intersectionPlanner = new IntersectionPlanner(instances.size());
+
+        //The cached evaluations, compressed tuples and chunk statistics all belong to the original targets.
+        this.evaluationCache = null;
+    }
+
+    /**
+     * Get a view of the dataset in which the rows of the regression targets are shuffled, relative to the attributes
+     * that describe the subgroups. The x and y targets of an instance stay together, such that the regression over all
+     * instances, and thus the reference of the Cook's distance, is the same as that of the dataset itself.
+     * Only the targets are copied, the attributes and their indexes are shared. The view should not be closed.
+     *
+     * @param random The random generator to draw the permutation with.
+     * @return The permuted view of the dataset.
+     */
+    public Dataset getPermutation(Random random) {
+        int n = instances.size();
+        int[] permutation = new int[n];
+        for(int i = 0; i < n; i++) {
+            permutation[i] = i;
+        }
+        for(int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = permutation[i];
+            permutation[i] = permutation[j];
+            permutation[j] = swap;
+        }
+
+        //The permuted targets are decoded into doubles, whatever the encoding of the original columns.
+        NumericColumn[] permuted = new NumericColumn[p];
+        for(int i = 0; i < p; i++) {
+            double[] values = new double[n];
+            for(int row = 0; row < n; row++) {
+                values[row] = regressionColumns[i].getDouble(permutation[row]);
+            }
+            permuted[i] = new NumericColumn(values);
+        }
+        return new Dataset(this, permuted);
+    }
+
     /**
      * Get the list of attributes.
      *
      * @return The list of attributes.
      */
-    public List<AbstractAttribute> getAttributes() {
+    public List<AbstractAttribute<?>> getAttributes() {
         return attributes;
     }
 
@@ -149,6 +330,43 @@ public class Dataset {
         return instances;
     }
 
+    /**
+     * Get the amount of rows within the dataset file.
+     *
+     * @return The amount of rows, including the rows outside of the seed when the seed has been applied while loading.
+     */
+    public int getSourceRowCount() {
+        return sourceRowCount;
+    }
+
+    /**
+     * Get the columns holding the values of the instances.
+     *
+     * @return The columns, indexed by attribute id.
+     */
+    public Column[] getColumns() {
+        return columns;
+    }
+
+    /**
+     * Get the storage the columns and the sorted indices of the attributes are kept in.
+     *
+     * @return The column storage.
+     */
+    public ColumnStorage getStorage() {
+        return storage;
+    }
+
+    /**
+     * Release the off-heap memory of the columns. The dataset and its attributes may not be used afterwards.
+     *
+     * @throws IOException When the storage cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        storage.close();
+    }
+
     /**
      * Get the relation name.
      *
@@ -163,7 +381,7 @@ public class Dataset {
      *
      * @return The y target attribute object.
      */
-    public AbstractAttribute getYTarget() {
+    public AbstractAttribute<?> getYTarget() {
         return yTarget;
     }
 
@@ -172,10 +390,51 @@ public class Dataset {
      *
      * @return The x target attributes object.
      */
-    public AbstractAttribute[] getXTargets() {
+    public AbstractAttribute<?>[] getXTargets() {
         return xTargets;
     }
 
+    /**
+     * Whether the attribute is the y target or one of the x targets.
+     *
+     * @param attribute The attribute to check.
+     * @return True if the attribute is part of the regression model, false otherwise.
+     */
+    public boolean isTarget(AbstractAttribute<?> attribute) {
+        return attribute == yTarget || Arrays.asList(xTargets).contains(attribute);
+    }
+
+    /**
+     * Whether the search may refine on the attribute.
+     *
+     * @param attribute The attribute to check.
+     * @return True if the attribute is neither a target nor excluded by the cardinality policy.
+     */
+    public boolean isSearchable(AbstractAttribute<?> attribute) {
+        return !isTarget(attribute) && !excludedAttributes.contains(attribute);
+    }
+
+    /**
+     * Set the quality of a single constraint on the targets of this dataset.
+     *
+     * @param constraint The constraint.
+     * @param quality The quality of the instances that satisfy the constraint.
+     */
+    public void setConstraintEvaluation(Constraint<?> constraint, double quality) {
+        constraintEvaluations.put(constraint.getProduct(), quality);
+    }
+
+    /**
+     * Get the quality of a single constraint on the targets of this dataset.
+     * A permuted view of the dataset has qualities of its own, such that it can be searched next to the dataset.
+     *
+     * @param constraint The constraint used.
+     * @return The quality of the confusion matrix connected to the constraint, null if it has not been initialized.
+     */
+    public Double getConstraintEvaluation(Constraint<?> constraint) {
+        return constraintEvaluations.get(constraint.getProduct());
+    }
+
     /**
      * Get the seed group.
      *
@@ -185,6 +444,102 @@ public class Dataset {
         return seed;
     }
 
+    /**
+     * Load the given dataset file, which is either an arff file or a dataset snapshot.
+     * When snapshots are used, a valid snapshot next to the arff file is loaded instead of the arff file itself.
+     * When there is none or when it is outdated, a new snapshot is written by {@link #writeSnapshot()}, which should be
+     * called once the search has built the indexes of the attributes, such that these are stored with it.
+     *
+     * @param filePath The path to the arff or snapshot file we want to load.
+     * @param yTarget The numeric y target.
+     * @param xTargets  The numeric x targets.
+     * @param seedAttributes  The attributes that are present within the seed.
+     * @param seedComparisons  The attribute comparisons that are present within the seed.
+     * @param seedTargets  The attribute values that are present within the seed.
+     * @param countNullAsZero Whether we count null values as zero in numerical cases.
+     * @param blacklist The blacklisted attributes.
+     * @param useSnapshot Whether snapshots should be read and written for arff files.
+     * @param seedPushdown Whether the seed is applied while parsing an arff file, such that only the rows within the seed are loaded.
+     * @param cardinalityPolicy The policy used for attributes with many distinct values.
+     * @param storage The storage the columns are kept in.
+     * @return The dataset file as an object.
+     * @throws Exception Throws an exception if the file cannot be loaded.
+     */
+    public static Dataset load(String filePath, String yTarget, String[] xTargets, String[] seedAttributes, Comparison[] seedComparisons, String[] seedTargets, boolean countNullAsZero, HashSet<String> blacklist, boolean useSnapshot, boolean seedPushdown, CardinalityPolicy cardinalityPolicy, ColumnStorage storage) throws Exception {
+        if(DatasetSnapshot.isSnapshot(filePath)) {
+            DatasetSnapshot snapshot = new DatasetSnapshot(filePath);
+            String sourcePath = snapshot.getSourcePath();
+
+            //Fall back to the source file when the snapshot no longer matches it.
+            if(new File(sourcePath).exists() && !snapshot.isValidFor(DatasetSnapshot.hash(sourcePath), blacklist)) {
+                snapshot.close();
+                System.out.println("Snapshot " + filePath + " does not match " + sourcePath + ", loading the source file instead.");
+                return load(sourcePath, yTarget, xTargets, seedAttributes, seedComparisons, seedTargets, countNullAsZero, blacklist, useSnapshot, seedPushdown, cardinalityPolicy, storage);
+            }
+            if(!snapshot.covers(blacklist)) {
+                snapshot.close();
+                throw new IllegalArgumentException("Snapshot " + filePath + " does not contain all attributes that are not blacklisted.");
+            }
+            return loadSnapshot(snapshot, yTarget, xTargets, seedAttributes, seedComparisons, seedTargets, countNullAsZero, blacklist, cardinalityPolicy, storage);
+        }
+
+        //A snapshot holds all rows, so it is of no use when only the rows within the seed are loaded.
+        if(!useSnapshot || (seedPushdown && seedAttributes.length > 0)) {
+            return loadARFF(filePath, yTarget, xTargets, seedAttributes, seedComparisons, seedTargets, countNullAsZero, blacklist, seedPushdown, cardinalityPolicy, storage);
+        }
+
+        //Use the snapshot next to the arff file if it is still valid.
+        byte[] hash = DatasetSnapshot.hash(filePath);
+        String snapshotPath = DatasetSnapshot.getSnapshotPath(filePath);
+        if(new File(snapshotPath).exists() && DatasetSnapshot.isSnapshot(snapshotPath)) {
+            DatasetSnapshot snapshot;
+            try {
+                snapshot = new DatasetSnapshot(snapshotPath);
+            } catch (IOException e) {
+                //A snapshot of an older version is replaced by a new one.
+                snapshot = null;
+            }
+            if(snapshot != null && snapshot.isValidFor(hash, blacklist)) {
+                System.out.println("Loading snapshot " + snapshotPath + ".");
+                return loadSnapshot(snapshot, yTarget, xTargets, seedAttributes, seedComparisons, seedTargets, countNullAsZero, blacklist, cardinalityPolicy, storage);
+            }
+            if(snapshot != null) {
+                snapshot.close();
+            }
+        }
+
+        //Otherwise, parse the arff file, and write a new snapshot once the indexes have been built.
+        ChunkedARFFLoader loader = new ChunkedARFFLoader(filePath, countNullAsZero, blacklist);
+        loader.setStorage(storage);
+        loader.load();
+        Dataset dataset = create(loader.getAttributes(), loader.getColumns(), loader.getRowCount(), loader.getRelationName(), yTarget, xTargets, seedAttributes, seedComparisons, seedTargets, null, cardinalityPolicy, storage);
+        List<String> attributeHeaders = loader.getAttributeHeaders();
+        dataset.snapshotWriter = () -> {
+            try {
+                DatasetSnapshot.write(snapshotPath, filePath, hash, attributeHeaders, dataset);
+                int indexed = 0;
+                for(AbstractAttribute<?> attribute : dataset.attributes) {
+                    indexed += attribute.isIndexed() ? 1 : 0;
+                }
+                System.out.println("Written snapshot " + snapshotPath + ", holding the indexes of " + indexed + " of " + dataset.attributes.size() + " attributes.");
+            } catch (IOException e) {
+                System.out.println("Could not write snapshot " + snapshotPath + ": " + e.getMessage());
+            }
+        };
+        return dataset;
+    }
+
+    /**
+     * Write the snapshot of the arff file the dataset has been parsed from, holding the indexes that have been built.
+     * Nothing is written when the dataset has been loaded from a snapshot, or when snapshots are not used.
+     */
+    public void writeSnapshot() {
+        if(snapshotWriter != null) {
+            snapshotWriter.run();
+            snapshotWriter = null;
+        }
+    }
+
     /**
      * Read the given arff file, and convert it to an object.
      *
@@ -200,35 +555,112 @@ public class Dataset {
      * @throws Exception Throws an exception if the file cannot be loaded.
      */
     public static Dataset loadARFF(String filePath, String yTarget, String[] xTargets, String[] seedAttributes, Comparison[] seedComparisons, String[] seedTargets, boolean countNullAsZero, HashSet<String> blacklist) throws Exception {
-        lines.clear();
-        lines.addAll(FileLoader.readAllLines(filePath));
-
-        List<AbstractAttribute> attributes = new ArrayList<>();
-        String relation = "";
-        List<Instance> instances = new ArrayList<>();
-        List<Integer> offset = new ArrayList<>();
-
-        int attributeCounter = 0;
-        int instanceCounter = 0;
-        int offsetValue = 0;
-        for(String line : lines) {
-            if(line.startsWith("@attribute")) {
-                AbstractAttribute attribute = AbstractAttribute.getAttribute(line, attributeCounter, countNullAsZero);
-                if(!blacklist.contains(attribute.getName())) {
-                    attributes.add(attribute);
-                    offset.add(offsetValue);
-                    attributeCounter++;
-                } else {
-                    System.out.println("Skipped adding the attribute " + attribute.getName());
-                    offsetValue++;
-                }
-            } else if(line.startsWith("@relation")) {
-                relation = line.replaceFirst("@relation ","").replaceAll("'","");
-            } else if(line.contains(",")) {
-                instances.add(new Instance(instanceCounter++, line, attributes, blacklist, offset));
+        return loadARFF(filePath, yTarget, xTargets, seedAttributes, seedComparisons, seedTargets, countNullAsZero, blacklist, false, CardinalityPolicy.getDefault(), ColumnStorage.getDefault());
+    }
+
+    /**
+     * Read the given arff file, and convert it to an object.
+     *
+     * @param filePath The path to the file we want to load.
+     * @param yTarget The numeric y target.
+     * @param xTargets  The numeric x targets.
+     * @param seedAttributes  The attributes that are present within the seed.
+     * @param seedComparisons  The attribute comparisons that are present within the seed.
+     * @param seedTargets  The attribute values that are present within the seed.
+     * @param countNullAsZero Whether we count null values as zero in numerical cases.
+     * @param blacklist The blacklisted attributes.
+     * @param seedPushdown Whether the seed is applied while parsing, such that only the rows within the seed are loaded.
+     * @param cardinalityPolicy The policy used for attributes with many distinct values.
+     * @param storage The storage the columns are kept in.
+     * @return The arff file as an object.
+     * @throws Exception Throws an exception if the file cannot be loaded.
+     */
+    public static Dataset loadARFF(String filePath, String yTarget, String[] xTargets, String[] seedAttributes, Comparison[] seedComparisons, String[] seedTargets, boolean countNullAsZero, HashSet<String> blacklist, boolean seedPushdown, CardinalityPolicy cardinalityPolicy, ColumnStorage storage) throws Exception {
+        //Parse the data section in parallel, into one column per attribute.
+        ChunkedARFFLoader loader = new ChunkedARFFLoader(filePath, countNullAsZero, blacklist);
+        loader.setStorage(storage);
+        if(seedPushdown && seedAttributes.length > 0) {
+            loader.setSeedFilter(new SeedFilter(yTarget, xTargets, seedAttributes, seedComparisons, seedTargets));
+        }
+        loader.load();
+
+        if(loader.getReferenceStatistics() != null) {
+            System.out.println("Loaded " + loader.getRowCount() + " of " + loader.getReferenceStatistics().getN() + " rows within the seed.");
+            if(loader.getRowCount() == 0) {
+                throw new IllegalArgumentException("No instances satisfy the seed group.");
             }
         }
 
+        return create(loader.getAttributes(), loader.getColumns(), loader.getRowCount(), loader.getRelationName(), yTarget, xTargets, seedAttributes, seedComparisons, seedTargets, loader.getReferenceStatistics(), cardinalityPolicy, storage);
+    }
+
+    /**
+     * Load the dataset from an opened snapshot.
+     *
+     * @param snapshot The snapshot to load.
+     * @param yTarget The numeric y target.
+     * @param xTargets  The numeric x targets.
+     * @param seedAttributes  The attributes that are present within the seed.
+     * @param seedComparisons  The attribute comparisons that are present within the seed.
+     * @param seedTargets  The attribute values that are present within the seed.
+     * @param countNullAsZero Whether we count null values as zero in numerical cases.
+     * @param blacklist The blacklisted attributes.
+     * @param cardinalityPolicy The policy used for attributes with many distinct values.
+     * @param storage The storage the columns are kept in.
+     * @return The snapshot as an object.
+     * @throws Exception Throws an exception if the snapshot cannot be loaded.
+     */
+    private static Dataset loadSnapshot(DatasetSnapshot snapshot, String yTarget, String[] xTargets, String[] seedAttributes, Comparison[] seedComparisons, String[] seedTargets, boolean countNullAsZero, HashSet<String> blacklist, CardinalityPolicy cardinalityPolicy, ColumnStorage storage) throws Exception {
+        snapshot.setStorage(storage);
+        snapshot.load(countNullAsZero, blacklist);
+
+        return create(snapshot.getAttributes(), snapshot.getColumns(), snapshot.getRowCount(), snapshot.getRelationName(), yTarget, xTargets, seedAttributes, seedComparisons, seedTargets, null, cardinalityPolicy, storage);
+    }
+
+    /**
+     * Create the dataset from the loaded attributes and columns.
+     *
+     * @param attributes The list of attributes.
+     * @param columns The columns holding the values, indexed by attribute id.
+     * @param rowCount The amount of rows within the columns.
+     * @param relation The name of the relation.
+     * @param yTarget The numeric y target.
+     * @param xTargets  The numeric x targets.
+     * @param seedAttributes  The attributes that are present within the seed.
+     * @param seedComparisons  The attribute comparisons that are present within the seed.
+     * @param seedTargets  The attribute values that are present within the seed.
+     * @param reference The regression statistics of all rows when the seed has been applied while loading, null otherwise.
+     * @param cardinalityPolicy The policy used for attributes with many distinct values.
+     * @param storage The storage the columns are kept in.
+     * @return The dataset as an object.
+     */
+    private static Dataset create(List<AbstractAttribute<?>> attributes, Column[] columns, final int rowCount, String relation, String yTarget, String[] xTargets, String[] seedAttributes, Comparison[] seedComparisons, String[] seedTargets, SufficientStatistics reference, CardinalityPolicy cardinalityPolicy, ColumnStorage storage) {
+        //Bound the amount of constraints of attributes with many distinct values, except for the ones we explicitly use.
+        Set<String> protectedAttributes = new HashSet<>(Arrays.asList(xTargets));
+        protectedAttributes.add(yTarget);
+        protectedAttributes.addAll(Arrays.asList(seedAttributes));
+        attributes = new ArrayList<>(attributes);
+        Set<AbstractAttribute<?>> excludedAttributes = new HashSet<>();
+        columns = cardinalityPolicy.apply(attributes, columns, rowCount, protectedAttributes, excludedAttributes, storage);
+        reportEncodings(attributes, columns, rowCount);
+
+        //The instances are views on the rows of the loaded columns, which are only created when they are requested.
+        final Column[] instanceColumns = columns;
+        List<Instance> instances = new AbstractList<Instance>() {
+            @Override
+            public Instance get(int index) {
+                if(index < 0 || index >= rowCount) {
+                    throw new IndexOutOfBoundsException("Instance " + index + " does not exist, as there are " + rowCount + " instances.");
+                }
+                return new Instance(index, instanceColumns);
+            }
+
+            @Override
+            public int size() {
+                return rowCount;
+            }
+        };
+
         int yTargetId = findTargetAttributeId(yTarget, attributes);
         int[] xTargetIds = new int[xTargets.length];
         for(int i = 0; i < xTargets.length; i++) {
@@ -239,7 +671,76 @@ public class Dataset {
             seedIds[i] = findTargetAttributeId(seedAttributes[i], attributes);
         }
 
-        return new Dataset(attributes, instances, relation, yTargetId, xTargetIds, seedIds, seedComparisons, seedTargets);
+        return new Dataset(attributes, instances, columns, relation, yTargetId, xTargetIds, seedIds, seedComparisons, seedTargets, reference, excludedAttributes, storage);
+    }
+
+    /**
+     * Report the encodings that have been chosen for the numeric columns, when any of them is smaller than a double.
+     *
+     * @param attributes The attributes of the dataset.
+     * @param columns The columns of the dataset, indexed by attribute id.
+     * @param rowCount The amount of rows within the columns.
+     */
+    private static void reportEncodings(List<AbstractAttribute<?>> attributes, Column[] columns, int rowCount) {
+        Map<String, List<String>> encodings = new TreeMap<>();
+        long bytes = 0;
+        long doubleBytes = 0;
+        for(AbstractAttribute<?> attribute : attributes) {
+            if(columns[attribute.getId()] instanceof NumericColumn) {
+                NumericColumn column = (NumericColumn) columns[attribute.getId()];
+                encodings.computeIfAbsent(column.getEncodingName(), k -> new ArrayList<>()).add(attribute.getName());
+                bytes += (long) column.getEncoding().getBytes() * rowCount;
+                doubleBytes += 8L * rowCount;
+            }
+        }
+        if(bytes == doubleBytes) {
+            return;
+        }
+
+        for(Map.Entry<String, List<String>> entry : encodings.entrySet()) {
+            System.out.println("Stored " + entry.getValue().size() + " numeric attributes as " + entry.getKey() + ": " + String.join(", ", entry.getValue()));
+        }
+        System.out.println("The numeric columns take " + bytes / 1024 + " KB instead of " + doubleBytes / 1024 + " KB as doubles.");
+    }
+
+    /**
+     * The target values of an instance, which are equal when all of their doubles are identical.
+     */
+    private static final class Tuple {
+        //The x values followed by the y value.
+        private final double[] values;
+
+        //The hash code of the values.
+        private final int hash;
+
+        private Tuple(double[] values) {
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Tuple && Arrays.equals(values, ((Tuple) other).values);
+        }
+    }
+
+    /**
+     * Get the constraint of a seed attribute for the given target value.
+     *
+     * @param attribute The seed attribute.
+     * @param comparison The comparison of the seed.
+     * @param targetValue The target value of the seed.
+     * @param applied Whether the seed has been applied while loading, in which case the constraint covers all instances even when its value is no longer present.
+     * @return The constraint, null if the value or comparison is not supported by the attribute.
+     */
+    private static <T> Constraint<T> getSeedConstraint(AbstractAttribute<T> attribute, Comparison comparison, String targetValue, boolean applied) {
+        T value = attribute.convertValue(targetValue);
+        return applied ? attribute.getSeedConstraint(value, comparison) : attribute.getConstraint(attribute.getName() + " " + comparison + " " + value);
     }
 
     /**
@@ -249,8 +750,8 @@ public class Dataset {
      * @param attributes The list of all attributes.
      * @return The id of the attribute in question, throws an illegal argument exception otherwise.
      */
-    private static int findTargetAttributeId(String targetAttribute, List<AbstractAttribute> attributes) {
-        for (AbstractAttribute attribute : attributes) {
+    private static int findTargetAttributeId(String targetAttribute, List<AbstractAttribute<?>> attributes) {
+        for (AbstractAttribute<?> attribute : attributes) {
             //Find a match to the target attribute.
             if (attribute.getName().equals(targetAttribute)) {
                 return attribute.getId();
@@ -261,18 +762,462 @@ public class Dataset {
 
     /**
      * Evaluate the subgroup that is denoted by the given indices.
+     * Groups that cover the same rows as a group that has been evaluated before take the cached evaluation.
+     *
      * @param indices The indices that are part of the subgroup.
      * @return An evaluation value according to cook's distance, together with the estimator vector.
      */
     public RegressionModelEvaluation getIndicesEvaluation(Set<Integer> indices) {
-        return getCooksDistance(indices);
+        if(evaluationCache == null) {
+            return getCooksDistance(indices);
+        }
+
+        EvaluationCache.Fingerprint fingerprint = new EvaluationCache.Fingerprint(indices);
+        RegressionModelEvaluation evaluation = evaluationCache.get(fingerprint);
+        if(evaluation == null) {
+            evaluation = getCooksDistance(indices);
+            evaluationCache.put(fingerprint, evaluation);
+        }
+        return evaluation;
+    }
+
+    /**
+     * Evaluate the subgroup that is denoted by the given regression statistics.
+     * Groups that cover the same rows as a group that has been evaluated before take the cached evaluation.
+     *
+     * @param fingerprint The fingerprint of the rows within the subgroup, null if evaluations are not cached.
+     * @param statistics The regression statistics of the rows within the subgroup.
+     * @return An evaluation value according to cook's distance, together with the estimator vector.
+     */
+    public RegressionModelEvaluation getStatisticsEvaluation(EvaluationCache.Fingerprint fingerprint, SufficientStatistics statistics) {
+        return getStatisticsEvaluation(fingerprint, statistics, null, null);
+    }
+
+    /**
+     * Evaluate the subgroup that is denoted by the given regression statistics.
+     * When the subgroup is a parent group with a few instances removed, the decomposition of the parent is downdated
+     * with the removed instances, instead of solving the regression of the subgroup from scratch.
+     *
+     * @param fingerprint The fingerprint of the rows within the subgroup, null if evaluations are not cached.
+     * @param statistics The regression statistics of the rows within the subgroup.
+     * @param parentDecomposition The decomposition of the gram matrix of the parent group, null if not available.
+     * @param removedIndices The indices of the parent group that are not part of the subgroup, null if not available.
+     * @return An evaluation value according to cook's distance, together with the estimator vector.
+     */
+    public RegressionModelEvaluation getStatisticsEvaluation(EvaluationCache.Fingerprint fingerprint, SufficientStatistics statistics, CholeskyDecomposition parentDecomposition, Collection<Integer> removedIndices) {
+        if(evaluationCache == null || fingerprint == null) {
+            return getCooksDistance(statistics, parentDecomposition, removedIndices);
+        }
+
+        RegressionModelEvaluation evaluation = evaluationCache.get(fingerprint);
+        if(evaluation == null) {
+            evaluation = getCooksDistance(statistics, parentDecomposition, removedIndices);
+            evaluationCache.put(fingerprint, evaluation);
+        }
+        return evaluation;
+    }
+
+    /**
+     * Get the regression statistics of the given indices.
+     *
+     * @param indices The indices that are RETAINED, not removed!
+     * @return The sufficient statistics of the regression model over the instances.
+     */
+    public SufficientStatistics getStatistics(Collection<Integer> indices) {
+        //The accumulator needs the indices as an array.
+        int[] rows = new int[indices.size()];
+        int count = 0;
+        for(int index : indices) {
+            rows[count++] = index;
+        }
+
+        SufficientStatistics statistics = new SufficientStatistics(p);
+        accumulate(rows, count, statistics);
+        return statistics;
+    }
+
+    /**
+     * Get the regression statistics of the instances within the given bitmap.
+     *
+     * @param bitmap The bitmap of the instances, in which instance i is found at bit (i % 64) of word (i / 64).
+     * @param count The amount of instances within the bitmap.
+     * @return The sufficient statistics of the regression model over the instances.
+     */
+    public SufficientStatistics getStatistics(long[] bitmap, int count) {
+        int[] rows = new int[count];
+        int n = 0;
+        for(int w = 0; w < bitmap.length; w++) {
+            //Visit the set bits of the word only.
+            for(long word = bitmap[w]; word != 0; word &= word - 1) {
+                rows[n++] = (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+        }
+
+        SufficientStatistics statistics = new SufficientStatistics(p);
+        accumulate(rows, n, statistics);
+        return statistics;
+    }
+
+    /**
+     * Add the instances with the given indices to the regression statistics.
+     *
+     * @param rows The indices of the instances.
+     * @param count The amount of indices to use, starting at the first index.
+     * @param statistics The statistics to add the instances to.
+     */
+    private void accumulate(int[] rows, int count, SufficientStatistics statistics) {
+        long start = searchStatistics == null ? 0 : System.nanoTime();
+        accumulateRows(rows, count, statistics);
+        if(searchStatistics != null) {
+            searchStatistics.addTime(SearchStatistics.Phase.MATRIX, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Add the instances with the given indices to the regression statistics, in the way that fits the storage of the
+     * targets.
+     *
+     * @param rows The indices of the instances.
+     * @param count The amount of indices to use, starting at the first index.
+     * @param statistics The statistics to add the instances to.
+     */
+    private void accumulateRows(int[] rows, int count, SufficientStatistics statistics) {
+        AbstractStatisticsAccumulator accumulator = AbstractStatisticsAccumulator.getDefault();
+        if(tupleIds != null) {
+            accumulateTuples(rows, count, statistics);
+            return;
+        }
+        if(regressionArrays != null) {
+            accumulator.accumulate(regressionArrays, rows, count, statistics);
+            return;
+        }
+
+        //Decode the rows into small arrays one block at a time, such that the accumulation is always done in doubles.
+        double[][] block = new double[p][Math.min(count, BLOCK_SIZE)];
+        int[] blockRows = new int[block[0].length];
+        for(int r = 0; r < blockRows.length; r++) {
+            blockRows[r] = r;
+        }
+        for(int start = 0; start < count; start += BLOCK_SIZE) {
+            int n = Math.min(BLOCK_SIZE, count - start);
+            for(int i = 0; i < p; i++) {
+                regressionColumns[i].getDoubles(rows, start, n, block[i]);
+            }
+            accumulator.accumulate(block, blockRows, n, statistics);
+        }
+    }
+
+    /**
+     * Evaluate the subgroup of the instances that satisfy all of the given constraints.
+     * When groups are evaluated chunk by chunk, the indices of the subgroup are never collected. Otherwise, this is
+     * the same as evaluating the intersection of the indices of the constraints.
+     *
+     * @param constraints The constraints of the subgroup.
+     * @return An evaluation value according to cook's distance, together with the estimator vector.
+     */
+    public RegressionModelEvaluation getConstraintsEvaluation(Collection<Constraint<?>> constraints) {
+        if(chunkSize == 0) {
+            Set<Integer> indices = null;
+            for(Constraint<?> constraint : constraints) {
+                //The subsets are created for every call, so they can be changed.
+                if(indices == null) {
+                    indices = constraint.getIndicesSubsetForValue();
+                } else {
+                    indices.retainAll(constraint.getIndicesSubsetForValue());
+                }
+            }
+            return getIndicesEvaluation(indices == null ? new HashSet<>(getAllIndices()) : indices);
+        }
+
+        SufficientStatistics statistics = new SufficientStatistics(p);
+        EvaluationCache.Fingerprint fingerprint = getChunkedStatistics(constraints, statistics);
+        return getStatisticsEvaluation(fingerprint, statistics);
+    }
+
+    /**
+     * Accumulate the regression statistics of the instances that satisfy all of the given constraints, chunk by chunk.
+     * The zone maps of the attributes decide per chunk whether it can be skipped, or whether all of its instances are
+     * selected, in which case the statistics of the chunk are taken as a whole. Only the other chunks are scanned.
+     *
+     * @param constraints The constraints of the subgroup.
+     * @param statistics The statistics to add the instances of the subgroup to.
+     * @return The fingerprint of the instances of the subgroup.
+     */
+    public EvaluationCache.Fingerprint getChunkedStatistics(Collection<Constraint<?>> constraints, SufficientStatistics statistics) {
+        if(chunkSize == 0) {
+            throw new IllegalStateException("Chunked evaluation has not been enabled.");
+        }
+
+        List<ConstraintFilter> filters = new ArrayList<>(constraints.size());
+        for(Constraint<?> constraint : constraints) {
+            filters.add(new ConstraintFilter(constraint, chunkSize));
+        }
+
+        int n = instances.size();
+        int[] rows = new int[Math.min(n, chunkSize)];
+        long high = 0;
+        long low = 0;
+        int size = 0;
+        List<ConstraintFilter> partial = new ArrayList<>(filters.size());
+        for(int chunk = 0; chunk < chunkStatistics.length; chunk++) {
+            //Judge the chunk by the zone maps, and keep the filters that do not select all of its instances.
+            partial.clear();
+            boolean skip = false;
+            for(ConstraintFilter filter : filters) {
+                ConstraintFilter.Coverage coverage = filter.getCoverage(chunk);
+                if(coverage == ConstraintFilter.Coverage.NONE) {
+                    skip = true;
+                    break;
+                } else if(coverage == ConstraintFilter.Coverage.SOME) {
+                    partial.add(filter);
+                }
+            }
+
+            if(skip) {
+                skippedChunks.incrementAndGet();
+            } else if(partial.isEmpty()) {
+                takenChunks.incrementAndGet();
+                statistics.add(chunkStatistics[chunk]);
+                high += chunkHighs[chunk];
+                low += chunkLows[chunk];
+                size += (int) chunkStatistics[chunk].getN();
+            } else {
+                scannedChunks.incrementAndGet();
+                int count = 0;
+                for(int row = chunk * chunkSize; row < Math.min(n, (chunk + 1) * chunkSize); row++) {
+                    boolean selected = true;
+                    for(int i = 0; i < partial.size() && selected; i++) {
+                        selected = partial.get(i).contains(row);
+                    }
+                    if(selected) {
+                        rows[count++] = row;
+                        high += EvaluationCache.Fingerprint.getHigh(row);
+                        low += EvaluationCache.Fingerprint.getLow(row);
+                    }
+                }
+                accumulate(rows, count, statistics);
+                size += count;
+            }
+        }
+        return new EvaluationCache.Fingerprint(high, low, size);
+    }
+
+    /**
+     * Add the instances with the given indices to the regression statistics through their distinct tuples of target values.
+     * The instances are counted per tuple, after which every tuple that occurs is added once, weighted by its count.
+     *
+     * @param rows The indices of the instances.
+     * @param count The amount of indices to use, starting at the first index.
+     * @param statistics The statistics to add the instances to.
+     */
+    private void accumulateTuples(int[] rows, int count, SufficientStatistics statistics) {
+        int[][] buffers = tupleBuffers.get();
+        int[] histogram = buffers[0];
+        int[] tuples = buffers[1];
+        int[] weights = buffers[2];
+
+        int distinct = 0;
+        for(int r = 0; r < count; r++) {
+            int tuple = tupleIds[rows[r]];
+            if(histogram[tuple]++ == 0) {
+                tuples[distinct++] = tuple;
+            }
+        }
+
+        //Collect the counts, and clear the histogram for the next call.
+        for(int t = 0; t < distinct; t++) {
+            weights[t] = histogram[tuples[t]];
+            histogram[tuples[t]] = 0;
+        }
+        AbstractStatisticsAccumulator.getDefault().accumulate(tupleColumns, tuples, weights, distinct, statistics);
+    }
+
+    /**
+     * Set whether the regression rows are compressed into their distinct tuples of target values.
+     * Instances with identical target values contribute identically to the regression, so the statistics of a group can be
+     * found from the amount of instances per distinct tuple, at a cost that scales with the distinct tuples within the group.
+     *
+     * @param enabled Whether to compress the regression rows.
+     */
+    public void setTupleCompression(boolean enabled) {
+        if(!enabled) {
+            tupleIds = null;
+            tupleColumns = null;
+            tupleBuffers = null;
+            return;
+        }
+
+        //Assign an id to every distinct tuple, in the order in which they are encountered.
+        int n = instances.size();
+        int[] ids = new int[n];
+        Map<Tuple, Integer> tuples = new HashMap<>();
+        List<double[]> values = new ArrayList<>();
+        for(int j = 0; j < n; j++) {
+            double[] row = new double[p];
+            for(int i = 0; i < p; i++) {
+                row[i] = regressionColumns[i].getDouble(j);
+            }
+            Tuple tuple = new Tuple(row);
+            Integer id = tuples.get(tuple);
+            if(id == null) {
+                id = values.size();
+                tuples.put(tuple, id);
+                values.add(row);
+            }
+            ids[j] = id;
+        }
+
+        final int distinct = values.size();
+        double[][] columns = new double[p][distinct];
+        for(int t = 0; t < distinct; t++) {
+            for(int i = 0; i < p; i++) {
+                columns[i][t] = values.get(t)[i];
+            }
+        }
+        tupleColumns = columns;
+        tupleBuffers = ThreadLocal.withInitial(() -> new int[3][distinct]);
+        tupleIds = ids;
+        System.out.println("Compressed the " + n + " regression rows into " + distinct + " distinct tuples of target values, a ratio of " + String.format(Locale.ROOT, "%.2f", (double) n / Math.max(1, distinct)) + ".");
+    }
+
+    /**
+     * Evaluate groups chunk by chunk, instead of through the intersection of their indices.
+     * The regression statistics and fingerprint of every chunk are calculated up front.
+     *
+     * @param chunkSize The amount of instances within a chunk, 0 to evaluate groups through their indices.
+     */
+    public void setChunkSize(int chunkSize) {
+        int n = instances.size();
+        if(chunkSize > 0) {
+            int chunks = (n + chunkSize - 1) / chunkSize;
+            chunkStatistics = new SufficientStatistics[chunks];
+            chunkHighs = new long[chunks];
+            chunkLows = new long[chunks];
+            int[] rows = new int[Math.min(n, chunkSize)];
+            for(int chunk = 0; chunk < chunks; chunk++) {
+                int count = 0;
+                for(int row = chunk * chunkSize; row < Math.min(n, (chunk + 1) * chunkSize); row++) {
+                    rows[count++] = row;
+                    chunkHighs[chunk] += EvaluationCache.Fingerprint.getHigh(row);
+                    chunkLows[chunk] += EvaluationCache.Fingerprint.getLow(row);
+                }
+                chunkStatistics[chunk] = new SufficientStatistics(p);
+                accumulate(rows, count, chunkStatistics[chunk]);
+            }
+        } else {
+            chunkStatistics = null;
+            chunkHighs = null;
+            chunkLows = null;
+        }
+        this.chunkSize = Math.max(0, chunkSize);
+    }
+
+    /**
+     * Get the amount of instances within a chunk.
+     *
+     * @return The chunk size, 0 if groups are evaluated through their indices.
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Get the planner that chooses how seeds are intersected with constraints.
+     *
+     * @return The intersection planner.
+     */
+    public IntersectionPlanner getIntersectionPlanner() {
+        return intersectionPlanner;
+    }
+
+    /**
+     * Get the amount of chunks that have been handled in each way by the chunked evaluations.
+     *
+     * @return The amount of chunks that have been skipped, taken as a whole and scanned, in that order.
+     */
+    public long[] getChunkCounts() {
+        return new long[]{skippedChunks.get(), takenChunks.get(), scannedChunks.get()};
+    }
+
+    /**
+     * Get the indices of all instances.
+     *
+     * @return The list of all instance ids.
+     */
+    private List<Integer> getAllIndices() {
+        List<Integer> indices = new ArrayList<>(instances.size());
+        IntStream.range(0, instances.size()).forEach(indices::add);
+        return indices;
+    }
+
+    /**
+     * Add the regression values of a single instance to the statistics.
+     *
+     * @param index The index of the instance.
+     * @param x A buffer for the x values, of the same length as the x targets.
+     * @param statistics The statistics to add the instance to.
+     */
+    public void addStatistics(int index, double[] x, SufficientStatistics statistics) {
+        statistics.add(getRegressionValues(index, x), x);
+    }
+
+    /**
+     * Get the regression values of a single instance.
+     *
+     * @param index The index of the instance.
+     * @param x A buffer for the x values, of the same length as the x targets.
+     * @return The y value of the instance.
+     */
+    public double getRegressionValues(int index, double[] x) {
+        for(int i = 0; i < x.length; i++) {
+            x[i] = regressionColumns[i].getDouble(index);
+        }
+        return regressionColumns[p - 1].getDouble(index);
+    }
+
+    /**
+     * Get the cache of evaluations.
+     *
+     * @return The evaluation cache, null if evaluations are not cached.
+     */
+    public EvaluationCache getEvaluationCache() {
+        return evaluationCache;
+    }
+
+    /**
+     * Set the cache of evaluations.
+     *
+     * @param evaluationCache The evaluation cache, null to disable caching.
+     */
+    public void setEvaluationCache(EvaluationCache evaluationCache) {
+        this.evaluationCache = evaluationCache;
+    }
+
+    /**
+     * Get the statistics the time spent on intersections and regressions is added to.
+     *
+     * @return The search statistics, null if no statistics are kept.
+     */
+    public SearchStatistics getSearchStatistics() {
+        return searchStatistics;
+    }
+
+    /**
+     * Set the statistics the time spent on intersections and regressions is added to.
+     *
+     * @param searchStatistics The search statistics, null to keep no statistics.
+     */
+    public void setSearchStatistics(SearchStatistics searchStatistics) {
+        this.searchStatistics = searchStatistics;
+        intersectionPlanner.setSearchStatistics(searchStatistics);
     }
 
     //Loads of buffers, for memory management. This makes sure that memory won't be a large issue.
+    //The buffers are shared by all datasets, including the permuted views that are searched concurrently, so they are used under this lock.
+    private static final Object BUFFER_LOCK = new Object();
     private static List<Integer> indices_list;
-    private static double[][] get_x_matrix_data_buffer;
+    private static double[] get_x_matrix_data_buffer;
     private static Matrix get_beta_estimator_X;
-    private static Matrix get_beta_estimator_X_T;
     private static Matrix get_beta_estimator_X_T_X;
     private static Matrix get_beta_estimator_X_T_X_inverse;
 
@@ -289,18 +1234,106 @@ public class Dataset {
      * @param indices The indices that are RETAINED, not removed!
      * @return An object containing all evaluation information.
      */
-    public synchronized RegressionModelEvaluation getCooksDistance(Set<Integer> indices) {
-        //Get the beta estimator for the subgroup.
-        subgroup_beta_estimator = getBetaEstimator(indices);
+    public RegressionModelEvaluation getCooksDistance(Set<Integer> indices) {
+        synchronized (BUFFER_LOCK) {
+            //Get the beta estimator for the subgroup.
+            subgroup_beta_estimator = getBetaEstimator(indices);
+
+            //Get the difference of the two beta vectors.
+            beta_difference_vector = subgroup_beta_estimator.subtract(beta_estimator);
+
+            //The top part of the cook's distance equation, divided by the bottom part which is already known as p_2_s.
+            double evaluation = X_T_X.quadraticForm(beta_difference_vector) / p_s_2;
+
+            //Return the evaluation + the beta estimator of the subgroup.
+            return new RegressionModelEvaluation(evaluation, subgroup_beta_estimator.getValues(), indices.size());
+        }
+    }
+
+    /**
+     * Calculate the cook's distance from the regression statistics of the subgroup.
+     * Unlike {@link #getCooksDistance(Set)}, this uses no shared buffers and can thus be called concurrently.
+     *
+     * @param statistics The regression statistics of the instances that are RETAINED.
+     * @return An object containing all evaluation information.
+     */
+    public RegressionModelEvaluation getCooksDistance(SufficientStatistics statistics) {
+        return getCooksDistance(statistics, null, null);
+    }
+
+    /**
+     * Calculate the cook's distance from the regression statistics of the subgroup.
+     * When the removed instances are given, the decomposition of the parent is downdated by these instances to solve
+     * the regression. The regression is solved from scratch when the downdate is ill-conditioned.
+     *
+     * @param statistics The regression statistics of the instances that are RETAINED.
+     * @param parentDecomposition The decomposition of the gram matrix of the parent group, null if not available.
+     * @param removedIndices The indices of the parent group that are not part of the subgroup, null if not available.
+     * @return An object containing all evaluation information.
+     */
+    public RegressionModelEvaluation getCooksDistance(SufficientStatistics statistics, CholeskyDecomposition parentDecomposition, Collection<Integer> removedIndices) {
+        long start = searchStatistics == null ? 0 : System.nanoTime();
 
-        //Get the difference of the two beta vectors.
-        beta_difference_vector = subgroup_beta_estimator.subtract(beta_estimator);
+        //Solve X^T X beta = X^T y for the subgroup.
+        Vector subgroupBetaEstimator = null;
+        if(parentDecomposition != null && removedIndices != null) {
+            subgroupBetaEstimator = getDowndatedBetaEstimator(statistics, parentDecomposition, removedIndices);
+        }
+        if(subgroupBetaEstimator == null) {
+            try {
+                subgroupBetaEstimator = statistics.getGram().getInverse().multiply(statistics.getXTY());
+            } catch (NoSquareException e) {
+                throw new IllegalArgumentException("Inverse matrix has not been given a square matrix!");
+            }
+        }
 
-        //The top part of the cook's distance equation, divided by the bottom part which is already known as p_2_s.
-        double evaluation = beta_difference_vector.dot(X_T_X.multiply(beta_difference_vector)) / p_s_2;
+        Vector betaDifference = subgroupBetaEstimator.subtract(beta_estimator);
+        double evaluation = X_T_X.quadraticForm(betaDifference) / p_s_2;
+        if(searchStatistics != null) {
+            searchStatistics.addTime(SearchStatistics.Phase.SOLVE, System.nanoTime() - start);
+        }
+        return new RegressionModelEvaluation(evaluation, subgroupBetaEstimator.getValues(), (int) statistics.getN());
+    }
 
-        //Return the evaluation + the beta estimator of the subgroup.
-        return new RegressionModelEvaluation(evaluation, subgroup_beta_estimator.getValues(), indices.size());
+    /**
+     * Estimate the cook's distance from the regression statistics of a sample of the subgroup.
+     * The regression is solved through a Cholesky decomposition, which is cheaper but rounds differently than the exact
+     * evaluation, so the estimate is only meant to screen subgroups and is never reported.
+     *
+     * @param statistics The regression statistics of the sampled instances of the subgroup.
+     * @return The estimated evaluation value, infinite if the regression of the sample is ill-conditioned.
+     */
+    public double getCooksDistanceEstimate(SufficientStatistics statistics) {
+        CholeskyDecomposition decomposition = CholeskyDecomposition.decompose(statistics.getGram());
+        if(decomposition == null) {
+            return Double.POSITIVE_INFINITY;
+        }
+        Vector betaDifference = decomposition.solve(statistics.getXTY()).subtract(beta_estimator);
+        return X_T_X.quadraticForm(betaDifference) / p_s_2;
+    }
+
+    /**
+     * Get the beta estimator of a subgroup, by removing instances from the decomposition of its parent group.
+     *
+     * @param statistics The regression statistics of the instances that are RETAINED.
+     * @param parentDecomposition The decomposition of the gram matrix of the parent group.
+     * @param removedIndices The indices of the parent group that are not part of the subgroup.
+     * @return The beta estimation vector, null if the downdate is ill-conditioned.
+     */
+    private Vector getDowndatedBetaEstimator(SufficientStatistics statistics, CholeskyDecomposition parentDecomposition, Collection<Integer> removedIndices) {
+        CholeskyDecomposition decomposition = new CholeskyDecomposition(parentDecomposition);
+        double[] x = new double[p - 1];
+        double[] row = new double[p];
+        for(int index : removedIndices) {
+            //The row includes the intercept.
+            getRegressionValues(index, x);
+            row[0] = 1;
+            System.arraycopy(x, 0, row, 1, p - 1);
+            if(!decomposition.downdate(row)) {
+                return null;
+            }
+        }
+        return decomposition.solve(statistics.getXTY());
     }
 
     /**
@@ -310,24 +1343,32 @@ public class Dataset {
      * @return The beta estimation vector.
      */
     public Vector getBetaEstimator(Set<Integer> indices) {
-        //Convert the indices set to a list.
-        indices_list = new ArrayList<>(indices);
-
-        //Calculate the beta estimator as mentioned in section 2 of the report.
-        get_beta_estimator_X = getXMatrix(indices_list);
-        get_beta_estimator_X_T = get_beta_estimator_X.getTransposeMatrix();
+        synchronized (BUFFER_LOCK) {
+            //Convert the indices set to a list.
+            indices_list = new ArrayList<>(indices);
 
-        get_beta_estimator_X_T_X = get_beta_estimator_X_T.multiply(get_beta_estimator_X);
-        try {
-            get_beta_estimator_X_T_X_inverse = get_beta_estimator_X_T_X.getInverse();
-        } catch (NoSquareException e) {
-            throw new IllegalArgumentException("Inverse matrix has not been given a square matrix!");
-        }
+            //Calculate the beta estimator as mentioned in section 2 of the report.
+            //The gram matrix and X^T y are computed without forming the transpose of X.
+            long start = searchStatistics == null ? 0 : System.nanoTime();
+            get_beta_estimator_X = getXMatrix(indices_list);
+            get_beta_estimator_X_T_X = get_beta_estimator_X.getGram();
+            get_beta_estimator_Y = getYVector(indices_list);
+            get_beta_estimator_X_T_Y = get_beta_estimator_X.transposeMultiply(get_beta_estimator_Y);
+            long built = searchStatistics == null ? 0 : System.nanoTime();
 
-        get_beta_estimator_Y = getYVector(indices_list);
-        get_beta_estimator_X_T_Y = get_beta_estimator_X_T.multiply(get_beta_estimator_Y);
+            try {
+                get_beta_estimator_X_T_X_inverse = get_beta_estimator_X_T_X.getInverse();
+            } catch (NoSquareException e) {
+                throw new IllegalArgumentException("Inverse matrix has not been given a square matrix!");
+            }
+            Vector betaEstimator = get_beta_estimator_X_T_X_inverse.multiply(get_beta_estimator_X_T_Y);
 
-        return get_beta_estimator_X_T_X_inverse.multiply(get_beta_estimator_X_T_Y);
+            if(searchStatistics != null) {
+                searchStatistics.addTime(SearchStatistics.Phase.MATRIX, built - start);
+                searchStatistics.addTime(SearchStatistics.Phase.SOLVE, System.nanoTime() - built);
+            }
+            return betaEstimator;
+        }
     }
 
     /**
@@ -338,26 +1379,19 @@ public class Dataset {
      */
     public Matrix getXMatrix(List<Integer> indices) {
         //NOTE: we want the transpose of the actual matrix, so we switch i and j.
-        get_x_matrix_data_buffer = new double[indices.size()][p];
+        get_x_matrix_data_buffer = new double[indices.size() * p];
 
         //Fill the data array with the appropriate values.
         for(int i = 0; i < p; i++) {
-            NumericAttribute attribute = null;
-            if(i > 0) {
-                attribute = (NumericAttribute) xTargets[i-1];
-            }
             for(int j = 0; j < indices.size(); j++) {
                 //Fill it with 1s if i == 0.
                 //NOTE: we want the transpose of the actual matrix, so we switch i and j.
                 if(i == 0) {
-                    get_x_matrix_data_buffer[j][i] = 1;
+                    get_x_matrix_data_buffer[j * p + i] = 1;
                 } else {
-                    //The current instance we would look at.
-                    Instance instance = instances.get(indices.get(j));
-
-                    //Take the data from the appropriate attribute.
+                    //Take the data from the column of the appropriate attribute.
                     //NOTE: we want the transpose of the actual matrix, so we switch i and j.
-                    get_x_matrix_data_buffer[j][i] = attribute.getValue(instance);
+                    get_x_matrix_data_buffer[j * p + i] = regressionColumns[i - 1].getDouble(indices.get(j));
                 }
             }
         }
@@ -366,8 +1400,8 @@ public class Dataset {
             System.out.println("EMPTY! WE GOT A PROBLEM!");
         }
 
-        //Create a matrix from this data.
-        return new Matrix(get_x_matrix_data_buffer);
+        //Create a matrix from this data, in row-major order.
+        return new Matrix(indices.size(), p, get_x_matrix_data_buffer);
     }
 
     /**
@@ -379,10 +1413,8 @@ public class Dataset {
     public Vector getYVector(List<Integer> indices) {
         get_y_vector_data_buffer = new double[indices.size()];
 
-        NumericAttribute attribute = (NumericAttribute) yTarget;
         for(int j = 0; j < indices.size(); j++) {
-            Instance instance = instances.get(indices.get(j));
-            get_y_vector_data_buffer[j] = attribute.getValue(instance);
+            get_y_vector_data_buffer[j] = regressionColumns[p - 1].getDouble(indices.get(j));
         }
 
         return new Vector(get_y_vector_data_buffer);
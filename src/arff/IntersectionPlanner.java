@@ -0,0 +1,179 @@
+package arff;
+
+import arff.attribute.AbstractAttribute;
+import arff.attribute.Constraint;
+import arff.attribute.ConstraintFilter;
+import arff.attribute.NumericAttribute;
+import arff.column.BitSlicedIndex;
+import group.Comparison;
+import search.result.SearchStatistics;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chooses how the instances of a seed that satisfy a constraint are found, based on the cardinalities involved.
+ * Materializing the index set of a broad constraint costs O(n), even when the seed only holds a few hundred instances.
+ * The planner compares the estimated cost of every strategy, and uses the cheapest one.
+ */
+public class IntersectionPlanner {
+    /**
+     * The ways in which the seed can be intersected with a constraint.
+     */
+    public enum Strategy {
+        //Check the value code of every instance of the seed against the constraint.
+        PROBE,
+        //Build the bitmap of the constraint through the bit-sliced index, and check every instance of the seed against it.
+        BITMAP,
+        //Build the index set of the constraint, and look up the instances of the smallest of both sets in the other.
+        INTERSECT
+    }
+
+    //The estimated cost of checking the value code of an instance against a constraint.
+    private static final double PROBE_COST = 2;
+
+    //The estimated cost of checking the bit of an instance, and of combining a single word of two bitmaps.
+    private static final double BIT_COST = 1;
+
+    //The estimated cost of adding an instance to a hash set, or of looking it up.
+    private static final double SET_COST = 4;
+
+    //The amount of instances within the dataset.
+    private final int rowCount;
+
+    //The amount of intersections done with every strategy.
+    private final AtomicLong[] counts = new AtomicLong[Strategy.values().length];
+
+    //The statistics the time spent on intersections is added to, null if no statistics are kept.
+    private SearchStatistics searchStatistics;
+
+    /**
+     * Create a planner.
+     *
+     * @param rowCount The amount of instances within the dataset.
+     */
+    public IntersectionPlanner(int rowCount) {
+        this.rowCount = rowCount;
+        for(int i = 0; i < counts.length; i++) {
+            counts[i] = new AtomicLong();
+        }
+    }
+
+    /**
+     * Choose the cheapest strategy to intersect a seed with a constraint.
+     *
+     * @param seedSize The amount of instances within the seed.
+     * @param constraint The constraint to intersect the seed with.
+     * @return The strategy with the lowest estimated cost.
+     */
+    public <T> Strategy plan(int seedSize, Constraint<T> constraint) {
+        AbstractAttribute<T> attribute = constraint.getAttribute();
+        int coverage = attribute.getCoverage(constraint);
+
+        //The index set of the constraint is built, after which the smallest set is iterated.
+        double intersectCost = SET_COST * (coverage + Math.min(coverage, seedSize));
+        double probeCost = PROBE_COST * seedSize;
+        double bitmapCost = Double.MAX_VALUE;
+        if(attribute instanceof NumericAttribute && (constraint.getComparison() == Comparison.LTEQ || constraint.getComparison() == Comparison.GTEQ)) {
+            int bits = 32 - Integer.numberOfLeadingZeros(Math.max(1, attribute.getValueIndicesStart().size() - 1));
+            bitmapCost = BIT_COST * ((double) bits * ((rowCount + 63) / 64) + seedSize);
+        }
+
+        if(intersectCost <= probeCost && intersectCost <= bitmapCost) {
+            return Strategy.INTERSECT;
+        }
+        return bitmapCost < probeCost ? Strategy.BITMAP : Strategy.PROBE;
+    }
+
+    /**
+     * Get the instances of the seed that satisfy the constraint, through the cheapest strategy.
+     *
+     * @param seedIndices The instances of the seed, null if the seed covers all instances.
+     * @param constraint The constraint to intersect the seed with.
+     * @return A new set containing the intersection.
+     */
+    public Set<Integer> intersect(Set<Integer> seedIndices, Constraint<?> constraint) {
+        long start = searchStatistics == null ? 0 : System.nanoTime();
+        Set<Integer> result = intersectIndices(seedIndices, constraint);
+        if(searchStatistics != null) {
+            searchStatistics.addTime(SearchStatistics.Phase.INTERSECTION, System.nanoTime() - start);
+        }
+        return result;
+    }
+
+    /**
+     * Get the instances of the seed that satisfy the constraint, through the cheapest strategy.
+     *
+     * @param seedIndices The instances of the seed, null if the seed covers all instances.
+     * @param constraint The constraint to intersect the seed with.
+     * @return A new set containing the intersection.
+     */
+    private Set<Integer> intersectIndices(Set<Integer> seedIndices, Constraint<?> constraint) {
+        if(seedIndices == null) {
+            //The index set of the constraint is created for every call, so it can be changed.
+            return constraint.getIndicesSubsetForValue();
+        }
+
+        Strategy strategy = plan(seedIndices.size(), constraint);
+        long[] bitmap = strategy == Strategy.BITMAP ? constraint.getRowBitmap() : null;
+        if(strategy == Strategy.BITMAP && bitmap == null) {
+            //The value does not occur, so the bitmap is not available.
+            strategy = Strategy.PROBE;
+        }
+
+        Set<Integer> result = new HashSet<>();
+        switch (strategy) {
+            case BITMAP:
+                for(int index : seedIndices) {
+                    if(BitSlicedIndex.contains(bitmap, index)) {
+                        result.add(index);
+                    }
+                }
+                break;
+            case PROBE:
+                ConstraintFilter filter = new ConstraintFilter(constraint, 0);
+                for(int index : seedIndices) {
+                    if(filter.contains(index)) {
+                        result.add(index);
+                    }
+                }
+                break;
+            case INTERSECT:
+                //Iterate over the smallest set, and check the other for membership.
+                Set<Integer> indices = constraint.getIndicesSubsetForValue();
+                Set<Integer> smallest = indices.size() < seedIndices.size() ? indices : seedIndices;
+                Set<Integer> largest = smallest == indices ? seedIndices : indices;
+                for(int index : smallest) {
+                    if(largest.contains(index)) {
+                        result.add(index);
+                    }
+                }
+                break;
+        }
+        counts[strategy.ordinal()].incrementAndGet();
+        return result;
+    }
+
+    /**
+     * Set the statistics the time spent on intersections is added to.
+     *
+     * @param searchStatistics The search statistics, null to keep no statistics.
+     */
+    public void setSearchStatistics(SearchStatistics searchStatistics) {
+        this.searchStatistics = searchStatistics;
+    }
+
+    /**
+     * Get the amount of intersections that have been done with every strategy.
+     *
+     * @return The counts, indexed by the ordinal of the strategy.
+     */
+    public long[] getCounts() {
+        long[] result = new long[counts.length];
+        for(int i = 0; i < counts.length; i++) {
+            result[i] = counts[i].get();
+        }
+        return result;
+    }
+}
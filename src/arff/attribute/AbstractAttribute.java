@@ -1,11 +1,12 @@
 package arff.attribute;
 
 import arff.Dataset;
+import arff.column.ZoneMap;
 import arff.instance.Instance;
 import group.Comparison;
 import util.SieveOfAtkin;
 
-import java.math.BigInteger;
+import java.nio.IntBuffer;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -23,9 +24,6 @@ public abstract class AbstractAttribute<T> {
     //The id of the attribute.
     private final int id;
 
-    //The list of constraint quality results.
-    private final HashMap<BigInteger, Double> constraintToEvaluation = new HashMap<>();
-
     //The list of unique values found.
     private final HashSet<T> values = new HashSet<>();
 
@@ -35,8 +33,8 @@ public abstract class AbstractAttribute<T> {
     //Mapping from string representation to constraint value.
     private final HashMap<String, Constraint<T>> stringToConstraint = new HashMap<>();
 
-    //Sorted indices of the instances.
-    private final ArrayList<Integer> sortedIndices = new ArrayList<>();
+    //Sorted indices of the instances, kept in the column storage of the dataset.
+    private IntBuffer sortedIndices;
 
     //The starting point of the indices for the specified value.
     private final LinkedHashMap<T, Integer> valueIndicesStart = new LinkedHashMap<>();
@@ -47,6 +45,27 @@ public abstract class AbstractAttribute<T> {
     //The highest index with actual values.
     private int nullStartIndex = -1;
 
+    //The dataset the index is built from.
+    private Dataset dataset;
+
+    //Whether the sorted indices and value ranges are available, either computed or restored.
+    private volatile boolean indexed;
+
+    //Whether the constraints have been created.
+    private volatile boolean constraintsCreated;
+
+    //The position of the value of every instance in the sorted values, created on first use.
+    private volatile IntBuffer valueCodes;
+
+    //The position of every distinct non-null value in the sorted values, created together with the value codes.
+    private HashMap<T, Integer> valueOrdinals;
+
+    //The summary of the value codes per chunk of instances, created on first use.
+    private volatile ZoneMap zoneMap;
+
+    //The primes that uniquely define the comparisons of this attribute.
+    private HashMap<Comparison, Long> comparisonPrimes;
+
     //The prime number associated with this attribute.
     private final long prime;
 
@@ -88,10 +107,51 @@ public abstract class AbstractAttribute<T> {
 
     /**
      * Initializes the attribute information sources.
+     * The index and the constraints are not built here, but on first use, such that attributes that are never explored cost nothing.
      *
      * @param dataset The dataset file.
      */
     public void initialize(Dataset dataset) {
+        this.dataset = dataset;
+    }
+
+    /**
+     * Build the index of the attribute if this has not happened yet. Safe to call from multiple threads.
+     */
+    private void ensureIndexed() {
+        if(!indexed) {
+            synchronized (this) {
+                if(!indexed) {
+                    buildIndex();
+                    indexed = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Create the constraints of the attribute if this has not happened yet. Safe to call from multiple threads.
+     */
+    private void ensureConstraints() {
+        if(!constraintsCreated) {
+            synchronized (this) {
+                if(!constraintsCreated) {
+                    ensureIndexed();
+                    createConstraints();
+                    constraintsCreated = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sort the instances on the value of this attribute, and find the range of every value within the sorted order.
+     */
+    private void buildIndex() {
+        if(dataset == null) {
+            throw new IllegalStateException("The attribute " + name + " has not been initialized with a dataset.");
+        }
+
         //The list of instances.
         List<Instance> instances = new ArrayList<>(dataset.getInstances());
 
@@ -107,11 +167,12 @@ public abstract class AbstractAttribute<T> {
 
         //Create a list of integer indices of the sorted instances collection.
         //Also save some useful information regarding value start and value end indices.
+        sortedIndices = dataset.getStorage().allocateInts(size);
         int i;
         boolean foundNull = false;
         for(i = 0; i < instances.size(); i++) {
             Instance instance = instances.get(i);
-            sortedIndices.add(instance.getId());
+            sortedIndices.put(i, instance.getId());
 
             //Get the value.
             T value = getValue(instance);
@@ -139,12 +200,46 @@ public abstract class AbstractAttribute<T> {
         if(previousValue != null) {
             valueIndicesEnd.put(previousValue, instances.size() - 1);
         }
+    }
 
+    /**
+     * Restore the index that has been computed on an earlier run, such that it does not have to be built again.
+     *
+     * @param sortedIndices The indices of the instances, sorted on the value of this attribute with nulls last.
+     * @param sortedValues The distinct non-null values, in sorted order.
+     * @param valueStarts The first position in the sorted indices of each of the distinct values.
+     * @param valueEnds The last position in the sorted indices of each of the distinct values.
+     * @param nullStartIndex The first position in the sorted indices that holds a null value, -1 if there are none.
+     */
+    public synchronized void restoreIndex(IntBuffer sortedIndices, List<T> sortedValues, int[] valueStarts, int[] valueEnds, int nullStartIndex) {
+        this.size = sortedIndices.capacity();
+        this.sortedIndices = sortedIndices;
+
+        //Insert the values in the same order as initialize does, such that the constraints are created in the same order.
+        for(int i = 0; i < sortedValues.size(); i++) {
+            T value = sortedValues.get(i);
+            values.add(value);
+            valueIndicesStart.put(value, valueStarts[i]);
+            valueIndicesEnd.put(value, valueEnds[i]);
+        }
+        if(nullStartIndex != -1) {
+            values.add(null);
+        }
+        this.nullStartIndex = nullStartIndex;
+
+        indexed = true;
+    }
+
+    /**
+     * Create the constraints for all the values that have been found.
+     */
+    private void createConstraints() {
         //Get the unique primes for the comparisons.
         HashMap<Comparison, Long> primeMap = new HashMap<>();
         for(Comparison comparison : new Comparison[]{Comparison.EQ, Comparison.NEQ, Comparison.GTEQ, Comparison.LTEQ}) {
             primeMap.put(comparison, SieveOfAtkin.getNextPrime());
         }
+        comparisonPrimes = primeMap;
 
         //Create the constraints.
         for(T value : values) {
@@ -162,14 +257,17 @@ public abstract class AbstractAttribute<T> {
 
     /**
      * Initializes the attribute information sources.
+     * The qualities of the constraints are kept by the dataset, as they depend on its targets.
      *
      * @param dataset The dataset file.
      */
     public void initializeConstraintEvaluations(Dataset dataset) {
+        ensureConstraints();
+
         //Create the constraints.
         for(Constraint<T> constraint : constraints) {
             //Add the score of the confusion matrix.
-            constraintToEvaluation.put(constraint.getProduct(), getConstraintEvaluation(constraint, dataset));
+            dataset.setConstraintEvaluation(constraint, getConstraintEvaluation(constraint, dataset));
         }
     }
 
@@ -181,11 +279,8 @@ public abstract class AbstractAttribute<T> {
      * @return The quality of the constraint.
      */
     public double getConstraintEvaluation(Constraint<T> constraint, Dataset dataset) {
-        //Get the indices that are within the constraint.
-        Set<Integer> indices = constraint.getIndicesSubsetForValue();
-
-        //Let the dataset evaluate the indices that are retained. We only care about the evaluation value.
-        return dataset.getIndicesEvaluation(indices).evaluationValue;
+        //Let the dataset evaluate the instances that are within the constraint. We only care about the evaluation value.
+        return dataset.getConstraintsEvaluation(Collections.<Constraint<?>>singletonList(constraint)).evaluationValue;
     }
 
     /**
@@ -194,6 +289,7 @@ public abstract class AbstractAttribute<T> {
      * @return The indices to the null case, empty if null is not present within the set.
      */
     public Set<Integer> getNullIndices() {
+        ensureConstraints();
         Constraint<T> nullConstraint = stringToConstraint.get(name + " = null");
         //No null cases, so return an empty list.
         if(nullConstraint == null) {
@@ -210,6 +306,8 @@ public abstract class AbstractAttribute<T> {
      * @return A subset containing the indices of all instances that are covered by the constraint.
      */
     public Set<Integer> getIndicesSubsetForValue(Constraint<T> constraint) {
+        ensureIndexed();
+
         //Get the start and end indices.
         int indexStart;
         int indexEnd;
@@ -237,7 +335,7 @@ public abstract class AbstractAttribute<T> {
         switch (comparison) {
             case EQ:
                 //Check range between index start and index end.
-                indices.addAll(sortedIndices.subList(indexStart, indexEnd));
+                addSortedIndices(indices, indexStart, indexEnd);
                 break;
             case NEQ:
                 //Check range between 0 and index start - 1, and index end + 1 till the end of the array.
@@ -245,34 +343,34 @@ public abstract class AbstractAttribute<T> {
                     //if we are violating the range check, create an empty array.
                     //indices = new ArrayList<>();
                 } else {
-                    indices.addAll(sortedIndices.subList(0, indexStart));
+                    addSortedIndices(indices, 0, indexStart);
                 }
 
                 //Make certain that the indexEnd + 1 is within bounds.
                 if(indexEnd <= size - 1) {
                     //Index end is already +1, so don't do it here!
-                    indices.addAll(sortedIndices.subList(indexEnd, size));
+                    addSortedIndices(indices, indexEnd, size);
                 }
                 break;
             case LTEQ:
                 //Check the range from 0 to index end.
-                indices.addAll(sortedIndices.subList(0, indexEnd));
+                addSortedIndices(indices, 0, indexEnd);
 
                 //When null has to be counted as 0.
                 if(countNullAsZero && nullStartIndex != -1 && getType() == Type.NUMERIC) {
                     if(this instanceof NumericAttribute && ((NumericAttribute) this).contains((Constraint<Double>) constraint, 0.0)) {
-                        indices.addAll(sortedIndices.subList(nullStartIndex, size));
+                        addSortedIndices(indices, nullStartIndex, size);
                     }
                 }
                 break;
             case GTEQ:
                 //Check the range from index start to list size.
-                indices.addAll(sortedIndices.subList(indexStart, nullStartIndex == -1 ? size : nullStartIndex));
+                addSortedIndices(indices, indexStart, nullStartIndex == -1 ? size : nullStartIndex);
 
                 //When null has to be counted as 0.
                 if(countNullAsZero && nullStartIndex != -1 && getType() == Type.NUMERIC) {
                     if(this instanceof NumericAttribute && ((NumericAttribute) this).contains((Constraint<Double>) constraint, 0.0)) {
-                        indices.addAll(sortedIndices.subList(nullStartIndex, size));
+                        addSortedIndices(indices, nullStartIndex, size);
                     }
                 }
                 break;
@@ -280,6 +378,208 @@ public abstract class AbstractAttribute<T> {
         return indices;
     }
 
+    /**
+     * Get the bitmap of the instances that are covered by the constraint, for attributes that have a bitmap index.
+     * Instance i is found at bit (i % 64) of word (i / 64).
+     *
+     * @param constraint The constraint used.
+     * @return A new bitmap of the instances covered by the constraint, null if there is no bitmap index for the constraint.
+     */
+    public long[] getRowBitmap(Constraint<T> constraint) {
+        return null;
+    }
+
+    /**
+     * Add a range of the sorted indices to the set.
+     *
+     * @param indices The set to add the indices to.
+     * @param start The first position in the sorted indices.
+     * @param end The position after the last position in the sorted indices.
+     */
+    private void addSortedIndices(Set<Integer> indices, int start, int end) {
+        for(int i = start; i < end; i++) {
+            indices.add(sortedIndices.get(i));
+        }
+    }
+
+    /**
+     * Get the amount of instances covered by the constraint, without creating the indices subset.
+     * This is the size of the set returned by {@link #getIndicesSubsetForValue(Constraint)}.
+     *
+     * @param constraint The constraint used.
+     * @return The amount of instances that are covered by the constraint.
+     */
+    @SuppressWarnings("unchecked")
+    public int getCoverage(Constraint<T> constraint) {
+        ensureIndexed();
+
+        T value = constraint.getValue();
+        int indexStart = value == null ? nullStartIndex : valueIndicesStart.get(value);
+        int indexEnd = value == null ? size : valueIndicesEnd.get(value) + 1;
+
+        //The nulls are counted as zero in the numeric range comparisons, when configured as such.
+        int nullCount = 0;
+        if(countNullAsZero && nullStartIndex != -1 && this instanceof NumericAttribute && ((NumericAttribute) this).contains((Constraint<Double>) constraint, 0.0)) {
+            nullCount = size - nullStartIndex;
+        }
+
+        switch (constraint.getComparison()) {
+            case EQ:
+                return indexEnd - indexStart;
+            case NEQ:
+                return indexStart + size - indexEnd;
+            case LTEQ:
+                return indexEnd + nullCount;
+            case GTEQ:
+                return (nullStartIndex == -1 ? size : nullStartIndex) - indexStart + nullCount;
+        }
+        return 0;
+    }
+
+    /**
+     * Remove the constraints that cover fewer instances than the minimum coverage from the candidate constraints.
+     * Refinements only shrink the coverage, so such a constraint can never be part of a valid group.
+     * The constraints can still be found through {@link #getConstraint(String)}.
+     *
+     * @param minimumCoverage The minimum coverage valid subgroups should have.
+     * @return The amount of constraints that have been removed.
+     */
+    public synchronized int pruneConstraints(double minimumCoverage) {
+        ensureConstraints();
+
+        int sizeBefore = constraints.size();
+        constraints.removeIf(constraint -> getCoverage(constraint) < minimumCoverage);
+        return sizeBefore - constraints.size();
+    }
+
+    /**
+     * Whether the index of the attribute is available, without building it.
+     *
+     * @return True if the sorted indices and value ranges have been computed or restored.
+     */
+    public boolean isIndexed() {
+        return indexed;
+    }
+
+    /**
+     * Get the sorted indices of the instances.
+     * The buffer is shared, so it should only be read through absolute gets.
+     *
+     * @return The instance ids, sorted on the value of this attribute with nulls last.
+     */
+    public IntBuffer getSortedIndices() {
+        ensureIndexed();
+        return sortedIndices;
+    }
+
+    /**
+     * Get the first position in the sorted indices of every distinct non-null value.
+     *
+     * @return Mapping from value to start position, in sorted value order.
+     */
+    public LinkedHashMap<T, Integer> getValueIndicesStart() {
+        ensureIndexed();
+        return valueIndicesStart;
+    }
+
+    /**
+     * Get the last position in the sorted indices of every distinct non-null value.
+     *
+     * @return Mapping from value to end position, in sorted value order.
+     */
+    public LinkedHashMap<T, Integer> getValueIndicesEnd() {
+        ensureIndexed();
+        return valueIndicesEnd;
+    }
+
+    /**
+     * Get the first position in the sorted indices that holds a null value.
+     *
+     * @return The null start index, -1 if there are no null values.
+     */
+    public int getNullStartIndex() {
+        ensureIndexed();
+        return nullStartIndex;
+    }
+
+    /**
+     * Get the distinct non-null values in sorted order.
+     *
+     * @return A list of the values, in the same order as the value ranges.
+     */
+    public List<T> getSortedValues() {
+        ensureIndexed();
+        return new ArrayList<>(valueIndicesStart.keySet());
+    }
+
+    /**
+     * Get the code of the value of every instance, which is the position of the value in {@link #getSortedValues()}.
+     *
+     * The buffer is shared, so it should only be read through absolute gets.
+     *
+     * @return The code of every instance by id, -1 for instances with a null value.
+     */
+    public IntBuffer getValueCodes() {
+        if(valueCodes == null) {
+            synchronized (this) {
+                if(valueCodes == null) {
+                    ensureIndexed();
+                    IntBuffer codes = dataset.getStorage().allocateInts(size);
+                    for(int i = 0; i < size; i++) {
+                        codes.put(i, -1);
+                    }
+
+                    //The value ranges are in sorted order, so the code is the position of the range.
+                    HashMap<T, Integer> ordinals = new HashMap<>();
+                    int code = 0;
+                    for(Map.Entry<T, Integer> entry : valueIndicesStart.entrySet()) {
+                        ordinals.put(entry.getKey(), code);
+                        int end = valueIndicesEnd.get(entry.getKey());
+                        for(int i = entry.getValue(); i <= end; i++) {
+                            codes.put(sortedIndices.get(i), code);
+                        }
+                        code++;
+                    }
+                    valueOrdinals = ordinals;
+                    valueCodes = codes;
+                }
+            }
+        }
+        return valueCodes;
+    }
+
+    /**
+     * Get the code of the given value, which is its position in {@link #getSortedValues()}.
+     *
+     * @param value The value.
+     * @return The code of the value, -1 if the value does not occur.
+     */
+    public int getValueCode(T value) {
+        getValueCodes();
+        Integer code = valueOrdinals.get(value);
+        return code == null ? -1 : code;
+    }
+
+    /**
+     * Get the zone map of the value codes, which summarizes the codes per chunk of consecutive instances.
+     *
+     * @param chunkSize The amount of instances within a chunk.
+     * @return The zone map of the value codes with the given chunk size.
+     */
+    public ZoneMap getZoneMap(int chunkSize) {
+        ZoneMap map = zoneMap;
+        if(map == null || map.getChunkSize() != chunkSize) {
+            synchronized (this) {
+                map = zoneMap;
+                if(map == null || map.getChunkSize() != chunkSize) {
+                    map = new ZoneMap(getValueCodes(), size, chunkSize);
+                    zoneMap = map;
+                }
+            }
+        }
+        return map;
+    }
+
     /**
      * Get the name of the attribute.
      *
@@ -319,6 +619,7 @@ public abstract class AbstractAttribute<T> {
      * @return A set of values.
      */
     public Set<T> getValues() {
+        ensureIndexed();
         return values;
     }
 
@@ -328,6 +629,7 @@ public abstract class AbstractAttribute<T> {
      * @return The list of constraints that this attribute can produce.
      */
     public ArrayList<Constraint<T>> getConstraints() {
+        ensureConstraints();
         return constraints;
     }
 
@@ -338,26 +640,69 @@ public abstract class AbstractAttribute<T> {
      * @return The constraint that is connected to the name, if it exist. null otherwise.
      */
     public Constraint<T> getConstraint(String name) {
+        ensureConstraints();
         return stringToConstraint.get(name);
     }
 
     /**
-     * Get the list of comparisons used by this attribute.
+     * Get the constraint that covers the instances that are not covered by the given constraint.
+     * For equality checks this is the inequality check on the same value, and the other way around. For range checks
+     * this is the opposite range check on the adjacent value, which together cover all instances except for the nulls.
      *
-     * @return The list of comparisons.
+     * @param constraint The constraint to find the complement of.
+     * @return The complementing constraint, null if there is none or if the nulls are counted as zero in range checks.
      */
-    public abstract Comparison[] getComparisons();
+    public Constraint<T> getComplementConstraint(Constraint<T> constraint) {
+        ensureConstraints();
+
+        T value = constraint.getValue();
+        switch (constraint.getComparison()) {
+            case EQ:
+                return stringToConstraint.get(name + " " + Comparison.NEQ + " " + value);
+            case NEQ:
+                return stringToConstraint.get(name + " " + Comparison.EQ + " " + value);
+            case LTEQ:
+                //The first value after the range, if it is not a null.
+                int next = valueIndicesEnd.get(value) + 1;
+                if(countNullAsZero || next >= (nullStartIndex == -1 ? size : nullStartIndex)) {
+                    return null;
+                }
+                return stringToConstraint.get(name + " " + Comparison.GTEQ + " " + getValue(dataset.getInstances().get(sortedIndices.get(next))));
+            case GTEQ:
+                //The last value before the range.
+                int previous = valueIndicesStart.get(value) - 1;
+                if(countNullAsZero || previous < 0) {
+                    return null;
+                }
+                return stringToConstraint.get(name + " " + Comparison.LTEQ + " " + getValue(dataset.getInstances().get(sortedIndices.get(previous))));
+        }
+        return null;
+    }
 
     /**
-     * Get the quality of the single constraint.
+     * Get the constraint of a seed that has already been applied while loading, such that all instances satisfy it.
+     * When no instance has the value of the constraint, a constraint that covers all instances is created instead.
      *
-     * @param constraint The constraint used.
-     * @return The quality of the confusion matrix connected to the constraint.
+     * @param value The value of the seed constraint.
+     * @param comparison The comparison of the seed constraint.
+     * @return The constraint that is connected to the value and comparison, or a constraint covering all instances.
      */
-    public Double getConstraintEvaluation(Constraint<T> constraint) {
-        return constraintToEvaluation.get(constraint.getProduct());
+    public Constraint<T> getSeedConstraint(T value, Comparison comparison) {
+        ensureConstraints();
+        Constraint<T> constraint = stringToConstraint.get(name + " " + comparison + " " + value);
+        if(constraint != null) {
+            return constraint;
+        }
+        return new CoveringConstraint<>(value, comparison, this, comparisonPrimes.get(comparison), SieveOfAtkin.getNextPrime(), size);
     }
 
+    /**
+     * Get the list of comparisons used by this attribute.
+     *
+     * @return The list of comparisons.
+     */
+    public abstract Comparison[] getComparisons();
+
     /**
      * Convert the value to the appropriate type.
      *
@@ -385,7 +730,7 @@ public abstract class AbstractAttribute<T> {
      * @return An attribute object corresponding to the given line.
      * @throws Exception Throws an exception if no attributes can be found in the given line.
      */
-    public static AbstractAttribute getAttribute(String line, int id, boolean countNullAsZero) throws Exception {
+    public static AbstractAttribute<?> getAttribute(String line, int id, boolean countNullAsZero) throws Exception {
         //Get the pattern matches.
         Matcher matches = ATTRIBUTE_MATCH_PATTERN.matcher(line);
 
@@ -419,6 +764,26 @@ public abstract class AbstractAttribute<T> {
         return null;
     }
 
+    /**
+     * Extract the name of the attribute from the line, without creating the attribute.
+     *
+     * @param line The line to parse.
+     * @return The name of the attribute defined in the given line.
+     * @throws Exception Throws an exception if no attributes can be found in the given line.
+     */
+    public static String getAttributeName(String line) throws Exception {
+        //Get the pattern matches.
+        Matcher matches = ATTRIBUTE_MATCH_PATTERN.matcher(line);
+
+        //Find matches.
+        if(!matches.matches()) {
+            throw new Exception("No attribute found.");
+        }
+
+        //The name is the first group in the regex.
+        return matches.group(1);
+    }
+
     /**
      * Get the comparator the attribute uses.
      *
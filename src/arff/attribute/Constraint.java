@@ -75,6 +75,33 @@ public class Constraint<T> {
         return attribute.getIndicesSubsetForValue(this);
     }
 
+    /**
+     * Get the bitmap of the instances covered by this constraint, when the attribute has a bitmap index for it.
+     *
+     * @return A new bitmap of the instances, null if the indices have to be found through {@link #getIndicesSubsetForValue()}.
+     */
+    public long[] getRowBitmap() {
+        return attribute.getRowBitmap(this);
+    }
+
+    /**
+     * Get the amount of instances covered by this constraint.
+     *
+     * @return The coverage of the constraint on its attribute.
+     */
+    public int getCoverage() {
+        return attribute.getCoverage(this);
+    }
+
+    /**
+     * Get the constraint that covers the instances that are not covered by this constraint.
+     *
+     * @return The complementing constraint, null if there is none.
+     */
+    public Constraint<T> getComplement() {
+        return attribute.getComplementConstraint(this);
+    }
+
     public Set<Integer> getNullIndices() {
         return attribute.getNullIndices();
     }
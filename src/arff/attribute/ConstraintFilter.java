@@ -0,0 +1,148 @@
+package arff.attribute;
+
+import arff.column.ZoneMap;
+
+import java.nio.IntBuffer;
+
+/**
+ * Filter that decides whether rows satisfy a constraint, based on the value codes of the attribute of the constraint.
+ * The value codes follow the sorted order of the values, so every constraint selects a range of codes, or all codes
+ * except for a range, together with or without the nulls. This selects exactly the same instances as
+ * {@link AbstractAttribute#getIndicesSubsetForValue(Constraint)}, but allows whole chunks to be judged by their zone map.
+ */
+public class ConstraintFilter {
+    /**
+     * The part of the rows of a chunk that is selected by the filter.
+     */
+    public enum Coverage {
+        //None of the rows are selected.
+        NONE,
+        //Some of the rows are selected, so the rows have to be checked one by one.
+        SOME,
+        //All of the rows are selected.
+        ALL
+    }
+
+    //The value codes of the attribute.
+    private final IntBuffer codes;
+
+    //The zone map of the value codes.
+    private final ZoneMap zoneMap;
+
+    //The range of codes, which are selected unless the range is negated.
+    private final int low;
+    private final int high;
+    private final boolean negate;
+
+    //Whether the nulls are selected.
+    private final boolean nulls;
+
+    /**
+     * Create the filter of the constraint.
+     *
+     * @param constraint The constraint to filter on.
+     * @param chunkSize The amount of rows within a chunk of the zone map, 0 if only single rows are checked.
+     */
+    @SuppressWarnings("unchecked")
+    public ConstraintFilter(Constraint<?> constraint, int chunkSize) {
+        AbstractAttribute<?> attribute = constraint.getAttribute();
+        this.codes = attribute.getValueCodes();
+        this.zoneMap = chunkSize > 0 ? attribute.getZoneMap(chunkSize) : null;
+
+        //The nulls are counted as zero in the numeric range comparisons, when configured as such.
+        boolean nullAsZero = attribute.isCountNullAsZero() && attribute instanceof NumericAttribute && ((NumericAttribute) attribute).contains((Constraint<Double>) constraint, 0.0);
+
+        if(constraint instanceof CoveringConstraint) {
+            //The seed has been applied while loading, so all rows are selected.
+            low = 0;
+            high = Integer.MAX_VALUE;
+            negate = false;
+            nulls = true;
+            return;
+        }
+
+        int code = getValueCode(constraint);
+
+        switch (constraint.getComparison()) {
+            case EQ:
+                low = code == -1 ? 1 : code;
+                high = code == -1 ? 0 : code;
+                negate = false;
+                nulls = code == -1;
+                break;
+            case NEQ:
+                low = code == -1 ? 1 : code;
+                high = code == -1 ? 0 : code;
+                negate = true;
+                nulls = code != -1;
+                break;
+            case LTEQ:
+                low = 0;
+                high = code;
+                negate = false;
+                nulls = nullAsZero;
+                break;
+            default:
+                low = code;
+                high = Integer.MAX_VALUE;
+                negate = false;
+                nulls = nullAsZero;
+        }
+    }
+
+    /**
+     * Judge the rows of a chunk by its zone map.
+     *
+     * @param chunk The chunk.
+     * @return Whether none, some or all of the rows of the chunk are selected.
+     */
+    public Coverage getCoverage(int chunk) {
+        int minimum = zoneMap.getMinimum(chunk);
+        int maximum = zoneMap.getMaximum(chunk);
+        int nullCount = zoneMap.getNullCount(chunk);
+        int rows = zoneMap.getEnd(chunk) - zoneMap.getStart(chunk);
+
+        //Whether all or none of the non-null rows are within the range.
+        boolean allSelected = true;
+        boolean noneSelected = true;
+        if(nullCount < rows) {
+            boolean allInRange = low <= minimum && maximum <= high;
+            boolean noneInRange = maximum < low || minimum > high;
+            allSelected = negate ? noneInRange : allInRange;
+            noneSelected = negate ? allInRange : noneInRange;
+        }
+        if(nullCount > 0) {
+            allSelected &= nulls;
+            noneSelected &= !nulls;
+        }
+
+        if(allSelected) {
+            return Coverage.ALL;
+        }
+        return noneSelected ? Coverage.NONE : Coverage.SOME;
+    }
+
+    /**
+     * Whether the row is selected by the filter.
+     *
+     * @param row The row (instance id) to check.
+     * @return True if the row satisfies the constraint.
+     */
+    public boolean contains(int row) {
+        int code = codes.get(row);
+        if(code == -1) {
+            return nulls;
+        }
+        return (low <= code && code <= high) != negate;
+    }
+
+    /**
+     * Get the code of the value of the constraint within the column of its attribute.
+     *
+     * @param constraint The constraint.
+     * @return The code of the value, -1 if the constraint checks for nulls.
+     */
+    private static <T> int getValueCode(Constraint<T> constraint) {
+        return constraint.getValue() == null ? -1 : constraint.getAttribute().getValueCode(constraint.getValue());
+    }
+}
@@ -0,0 +1,53 @@
+package arff.attribute;
+
+import group.Comparison;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A seed constraint that has already been applied while loading the dataset, and thus covers all loaded instances.
+ */
+class CoveringConstraint<T> extends Constraint<T> {
+    //The amount of loaded instances.
+    private final int size;
+
+    /**
+     * Create a constraint that covers all loaded instances.
+     *
+     * @param value The value the constraint will be based upon.
+     * @param comparison The comparator used.
+     * @param attribute The attribute this constraint belongs to.
+     * @param comparisonPrime The prime used for duplicate comparison checking.
+     * @param valuePrime The prime used for duplicate value checking.
+     * @param size The amount of loaded instances.
+     */
+    CoveringConstraint(T value, Comparison comparison, AbstractAttribute<T> attribute, long comparisonPrime, long valuePrime, int size) {
+        super(value, comparison, attribute, comparisonPrime, valuePrime);
+        this.size = size;
+    }
+
+    /**
+     * Get the indices of all loaded instances.
+     *
+     * @return The set of all instance ids.
+     */
+    @Override
+    public Set<Integer> getIndicesSubsetForValue() {
+        Set<Integer> indices = new HashSet<>();
+        for(int i = 0; i < size; i++) {
+            indices.add(i);
+        }
+        return indices;
+    }
+
+    /**
+     * The constraint has no bitmap, as its value does not have to occur.
+     *
+     * @return Always null.
+     */
+    @Override
+    public long[] getRowBitmap() {
+        return null;
+    }
+}
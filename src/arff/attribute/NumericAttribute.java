@@ -1,15 +1,21 @@
 package arff.attribute;
 
+import arff.column.BitSlicedIndex;
 import arff.instance.Instance;
 import group.Comparison;
 
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.Objects;
+import java.util.Set;
 
 /**
  * Representation of the numeric attribute.
  */
 public class NumericAttribute extends AbstractAttribute<Double> {
+    //The bit-sliced index of the value codes, which finds the instances of any range comparison. Created on first use.
+    private volatile BitSlicedIndex bitSlicedIndex;
+
     /**
      * Create an attribute.
      *
@@ -41,6 +47,72 @@ public class NumericAttribute extends AbstractAttribute<Double> {
         return (Double) instance.getValue(this);
     }
 
+    /**
+     * Get the bit-sliced index of the value codes, building it if this has not happened yet.
+     *
+     * @return The index, with one slice per bit of the value codes.
+     */
+    public BitSlicedIndex getBitSlicedIndex() {
+        if(bitSlicedIndex == null) {
+            synchronized (this) {
+                if(bitSlicedIndex == null) {
+                    bitSlicedIndex = new BitSlicedIndex(getValueCodes(), getValueCodes().capacity(), getValueIndicesStart().size());
+                }
+            }
+        }
+        return bitSlicedIndex;
+    }
+
+    /**
+     * Get the bitmap of the instances that are covered by a range comparison, through the bit-sliced index.
+     *
+     * @param constraint The constraint used.
+     * @return A new bitmap of the instances covered by the constraint, null if the constraint is not a range comparison on a present value.
+     */
+    @Override
+    public long[] getRowBitmap(Constraint<Double> constraint) {
+        Comparison comparison = constraint.getComparison();
+        if(constraint.getValue() == null || (comparison != Comparison.LTEQ && comparison != Comparison.GTEQ)) {
+            return null;
+        }
+        int code = getValueCode(constraint.getValue());
+        if(code == -1) {
+            return null;
+        }
+
+        BitSlicedIndex index = getBitSlicedIndex();
+        long[] bitmap = comparison == Comparison.LTEQ ? index.getLessOrEqual(code) : index.getGreaterOrEqual(code);
+
+        //When null has to be counted as 0.
+        if(isCountNullAsZero() && contains(constraint, 0.0)) {
+            index.addNulls(bitmap);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Get the subset of the indices list that are covered by the constraint.
+     * Range comparisons are answered by the bit-sliced index, the other comparisons through the sorted indices.
+     *
+     * @param constraint The constraint used.
+     * @return A subset containing the indices of all instances that are covered by the constraint.
+     */
+    @Override
+    public Set<Integer> getIndicesSubsetForValue(Constraint<Double> constraint) {
+        long[] bitmap = getRowBitmap(constraint);
+        if(bitmap == null) {
+            return super.getIndicesSubsetForValue(constraint);
+        }
+
+        Set<Integer> indices = new HashSet<>();
+        for(int w = 0; w < bitmap.length; w++) {
+            for(long word = bitmap[w]; word != 0; word &= word - 1) {
+                indices.add((w << 6) + Long.numberOfTrailingZeros(word));
+            }
+        }
+        return indices;
+    }
+
     /**
      * Get the list of comparisons used by this attribute.
      *
@@ -1,6 +1,7 @@
 package arff.attribute;
 
 import arff.instance.Instance;
+import arff.io.ARFFTokenizer;
 import group.Comparison;
 
 import java.util.Comparator;
@@ -23,7 +24,7 @@ public class SetAttribute extends AbstractAttribute<String> {
     public SetAttribute(String name, int id, String valuesString) {
         super(name, id);
         this.valuesString = valuesString;
-        this.valueCount = valuesString.split(",").length;
+        this.valueCount = ARFFTokenizer.countFields(valuesString);
     }
 
     /**
@@ -65,6 +66,10 @@ public class SetAttribute extends AbstractAttribute<String> {
      */
     @Override
     public String convertValue(String value) {
+        if(value.length() > 1 && value.charAt(0) == '\'' && value.charAt(value.length() - 1) == '\'') {
+            //Quotes are not part of the value itself.
+            value = value.substring(1, value.length() - 1);
+        }
         return value.equals("?") ? null : value;
     }
 
@@ -0,0 +1,140 @@
+package arff.column;
+
+import java.nio.IntBuffer;
+
+/**
+ * Bit-sliced index over a column of codes, holding one bitmap of the rows per bit of the codes.
+ * The rows of which the code is at most a threshold are found by walking the bits of the threshold from the most
+ * significant bit down, combining the slices a whole word of rows at a time. A range is thus found in O(bits * rows / 64)
+ * operations, without keeping a bitmap per threshold and without visiting the sorted order of the rows.
+ *
+ * A row is found at bit (row % 64) of word (row / 64) of a bitmap.
+ */
+public class BitSlicedIndex {
+    //The amount of rows.
+    private final int rowCount;
+
+    //The amount of bits needed for the largest code.
+    private final int bits;
+
+    //The rows of which the given bit of the code is set, from the least significant bit up.
+    private final long[][] slices;
+
+    //The rows of which the code is not null.
+    private final long[] nonNulls;
+
+    /**
+     * Create the index of a column.
+     *
+     * @param codes The code of every row, -1 denoting a null.
+     * @param rowCount The amount of rows.
+     * @param codeCount The amount of distinct codes, such that all codes are below it.
+     */
+    public BitSlicedIndex(IntBuffer codes, int rowCount, int codeCount) {
+        this.rowCount = rowCount;
+        this.bits = 32 - Integer.numberOfLeadingZeros(Math.max(1, codeCount - 1));
+
+        int words = (rowCount + 63) >>> 6;
+        slices = new long[bits][words];
+        nonNulls = new long[words];
+        for(int row = 0; row < rowCount; row++) {
+            int code = codes.get(row);
+            if(code == -1) {
+                continue;
+            }
+            long mask = 1L << row;
+            nonNulls[row >>> 6] |= mask;
+            for(int bit = 0; bit < bits; bit++) {
+                if((code >>> bit & 1) != 0) {
+                    slices[bit][row >>> 6] |= mask;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the rows of which the code is at most the given code.
+     *
+     * @param code The largest code to select.
+     * @return A new bitmap of the rows, never containing the null rows.
+     */
+    public long[] getLessOrEqual(int code) {
+        if(code < 0) {
+            return new long[nonNulls.length];
+        }
+        if(code >>> bits != 0) {
+            return nonNulls.clone();
+        }
+
+        //The rows that are already known to be smaller, and the rows that are equal on all bits handled so far.
+        long[] less = new long[nonNulls.length];
+        long[] equal = nonNulls.clone();
+        for(int bit = bits - 1; bit >= 0; bit--) {
+            long[] slice = slices[bit];
+            if((code >>> bit & 1) != 0) {
+                for(int w = 0; w < equal.length; w++) {
+                    less[w] |= equal[w] & ~slice[w];
+                    equal[w] &= slice[w];
+                }
+            } else {
+                for(int w = 0; w < equal.length; w++) {
+                    equal[w] &= ~slice[w];
+                }
+            }
+        }
+        for(int w = 0; w < less.length; w++) {
+            less[w] |= equal[w];
+        }
+        return less;
+    }
+
+    /**
+     * Get the rows of which the code is at least the given code.
+     *
+     * @param code The smallest code to select.
+     * @return A new bitmap of the rows, never containing the null rows.
+     */
+    public long[] getGreaterOrEqual(int code) {
+        long[] result = getLessOrEqual(code - 1);
+        for(int w = 0; w < result.length; w++) {
+            result[w] = nonNulls[w] & ~result[w];
+        }
+        return result;
+    }
+
+    /**
+     * Add the rows of which the code is null to the given bitmap.
+     *
+     * @param bitmap The bitmap to add the rows to, which is changed in place.
+     */
+    public void addNulls(long[] bitmap) {
+        for(int w = 0; w < bitmap.length; w++) {
+            bitmap[w] |= ~nonNulls[w];
+        }
+
+        //The bits beyond the last row are not rows.
+        if((rowCount & 63) != 0) {
+            bitmap[bitmap.length - 1] &= (1L << rowCount) - 1;
+        }
+    }
+
+    /**
+     * Get the amount of bits of the codes, which is the amount of slices.
+     *
+     * @return The amount of bits.
+     */
+    public int getBits() {
+        return bits;
+    }
+
+    /**
+     * Whether the row is selected by the given bitmap.
+     *
+     * @param bitmap The bitmap of the rows.
+     * @param row The row (instance id) to check.
+     * @return True if the bit of the row is set.
+     */
+    public static boolean contains(long[] bitmap, int row) {
+        return (bitmap[row >>> 6] & 1L << row) != 0;
+    }
+}
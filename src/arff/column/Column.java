@@ -0,0 +1,21 @@
+package arff.column;
+
+/**
+ * Representation of the values of a single attribute, stored column-wise over all instances.
+ */
+public interface Column {
+    /**
+     * Get the amount of rows stored within the column.
+     *
+     * @return The number of rows.
+     */
+    int size();
+
+    /**
+     * Get the value of the given row.
+     *
+     * @param row The row (instance id) we want the value of.
+     * @return The value in the appropriate type, null if the value is missing.
+     */
+    Object getValue(int row);
+}
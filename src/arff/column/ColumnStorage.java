@@ -0,0 +1,315 @@
+package arff.column;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The memory in which the typed columns and the sorted orders of the attributes are kept.
+ * On the heap, the buffers simply wrap primitive arrays. Off the heap, they are allocated as direct buffers or are
+ * mapped from a temporary file, such that the garbage collector never has to visit them and the operating system can
+ * page them out. Off-heap memory is released explicitly by closing the storage, after which none of its buffers may be used.
+ */
+public class ColumnStorage implements Closeable {
+    /**
+     * The memory the buffers are allocated in.
+     */
+    public enum Mode {
+        //Primitive arrays on the Java heap.
+        HEAP,
+        //Direct buffers outside of the Java heap.
+        DIRECT,
+        //Buffers mapped from a temporary file, which are paged in by the operating system when they are used.
+        MAPPED
+    }
+
+    //The storage that keeps everything on the heap, which never has to be closed.
+    private static final ColumnStorage HEAP_STORAGE = new ColumnStorage(Mode.HEAP, null);
+
+    //The mode of the storage.
+    private final Mode mode;
+
+    //The encodings the numeric columns may be stored in.
+    private final NumericEncoder.Mode numericMode;
+
+    //The directory in which the temporary file is created when the buffers are mapped, null for the default directory.
+    private final File directory;
+
+    //The off-heap buffers that have been allocated, which are released when the storage is closed.
+    private final List<ByteBuffer> buffers = new ArrayList<>();
+
+    //The temporary file the buffers are mapped from, and the amount of bytes that have been mapped.
+    private File file;
+    private RandomAccessFile mappedFile;
+    private long mappedBytes;
+
+    //The amount of bytes that have been allocated.
+    private long allocatedBytes;
+
+    //Whether the storage has been closed.
+    private boolean closed;
+
+    /**
+     * Create a column storage.
+     *
+     * @param mode The memory the buffers are allocated in.
+     * @param directory The directory in which the temporary file is created when the buffers are mapped, null for the default directory.
+     */
+    public ColumnStorage(Mode mode, File directory) {
+        this(mode, directory, NumericEncoder.Mode.DOUBLE);
+    }
+
+    /**
+     * Create a column storage.
+     *
+     * @param mode The memory the buffers are allocated in.
+     * @param directory The directory in which the temporary file is created when the buffers are mapped, null for the default directory.
+     * @param numericMode The encodings the numeric columns may be stored in.
+     */
+    public ColumnStorage(Mode mode, File directory, NumericEncoder.Mode numericMode) {
+        this.mode = mode;
+        this.directory = directory;
+        this.numericMode = numericMode;
+    }
+
+    /**
+     * Get the storage that keeps everything on the heap.
+     *
+     * @return The heap storage.
+     */
+    public static ColumnStorage getDefault() {
+        return HEAP_STORAGE;
+    }
+
+    /**
+     * Allocate a buffer of doubles, filled with zeros.
+     *
+     * @param size The amount of doubles.
+     * @return The buffer, of which the capacity is the given size.
+     */
+    public DoubleBuffer allocateDoubles(int size) {
+        if(mode == Mode.HEAP) {
+            return DoubleBuffer.wrap(new double[size]);
+        }
+        return allocate(8L * size).asDoubleBuffer();
+    }
+
+    /**
+     * Allocate a buffer of integers, filled with zeros.
+     *
+     * @param size The amount of integers.
+     * @return The buffer, of which the capacity is the given size.
+     */
+    public IntBuffer allocateInts(int size) {
+        if(mode == Mode.HEAP) {
+            return IntBuffer.wrap(new int[size]);
+        }
+        return allocate(4L * size).asIntBuffer();
+    }
+
+    /**
+     * Allocate a buffer of floats, filled with zeros.
+     *
+     * @param size The amount of floats.
+     * @return The buffer, of which the capacity is the given size.
+     */
+    public FloatBuffer allocateFloats(int size) {
+        if(mode == Mode.HEAP) {
+            return FloatBuffer.wrap(new float[size]);
+        }
+        return allocate(4L * size).asFloatBuffer();
+    }
+
+    /**
+     * Allocate a buffer of shorts, filled with zeros.
+     *
+     * @param size The amount of shorts.
+     * @return The buffer, of which the capacity is the given size.
+     */
+    public ShortBuffer allocateShorts(int size) {
+        if(mode == Mode.HEAP) {
+            return ShortBuffer.wrap(new short[size]);
+        }
+        return allocate(2L * size).asShortBuffer();
+    }
+
+    /**
+     * Allocate a buffer of bytes, filled with zeros.
+     *
+     * @param size The amount of bytes.
+     * @return The buffer, of which the capacity is the given size.
+     */
+    public ByteBuffer allocateBytes(int size) {
+        if(mode == Mode.HEAP) {
+            return ByteBuffer.wrap(new byte[size]);
+        }
+        return allocate(size);
+    }
+
+    /**
+     * Move the given values into the storage. On the heap, the array itself is used without copying it.
+     *
+     * @param values The values, which should not be changed afterwards.
+     * @return A buffer holding the values.
+     */
+    public DoubleBuffer store(double[] values) {
+        if(mode == Mode.HEAP) {
+            return DoubleBuffer.wrap(values);
+        }
+        DoubleBuffer buffer = allocateDoubles(values.length);
+        buffer.put(values);
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Move the given values into the storage. On the heap, the array itself is used without copying it.
+     *
+     * @param values The values, which should not be changed afterwards.
+     * @return A buffer holding the values.
+     */
+    public IntBuffer store(int[] values) {
+        if(mode == Mode.HEAP) {
+            return IntBuffer.wrap(values);
+        }
+        IntBuffer buffer = allocateInts(values.length);
+        buffer.put(values);
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Allocate the given amount of bytes outside of the heap.
+     *
+     * @param bytes The amount of bytes.
+     * @return A buffer in the native byte order.
+     */
+    private synchronized ByteBuffer allocate(long bytes) {
+        if(closed) {
+            throw new IllegalStateException("The column storage has already been closed.");
+        }
+        if(bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("A single column may not exceed " + Integer.MAX_VALUE + " bytes.");
+        }
+
+        ByteBuffer buffer;
+        if(mode == Mode.DIRECT) {
+            buffer = ByteBuffer.allocateDirect((int) bytes);
+        } else {
+            try {
+                if(mappedFile == null) {
+                    file = File.createTempFile("emm-columns", ".bin", directory);
+                    file.deleteOnExit();
+                    mappedFile = new RandomAccessFile(file, "rw");
+                }
+                //Mapping beyond the end of the file grows the file. The mapping stays valid after the channel has been closed.
+                buffer = mappedFile.getChannel().map(FileChannel.MapMode.READ_WRITE, mappedBytes, bytes);
+                mappedBytes += bytes;
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not map a column of " + bytes + " bytes: " + e.getMessage(), e);
+            }
+        }
+        buffers.add(buffer);
+        allocatedBytes += bytes;
+        return buffer.order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Get the mode of the storage.
+     *
+     * @return The memory the buffers are allocated in.
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Get the encodings the numeric columns may be stored in.
+     *
+     * @return The numeric encoding mode.
+     */
+    public NumericEncoder.Mode getNumericMode() {
+        return numericMode;
+    }
+
+    /**
+     * Get the amount of bytes that have been allocated outside of the heap.
+     *
+     * @return The amount of bytes, 0 for the heap storage.
+     */
+    public synchronized long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * Get the name of the storage.
+     *
+     * @return Full name of the storage.
+     */
+    public String getName() {
+        switch (mode) {
+            case DIRECT:
+                return "Off-heap, direct buffers";
+            case MAPPED:
+                return "Off-heap, mapped from " + (file == null ? "a temporary file" : file.getPath());
+        }
+        return "Heap";
+    }
+
+    /**
+     * Release the off-heap memory and delete the temporary file. None of the buffers may be used afterwards.
+     * Closing the heap storage has no effect.
+     *
+     * @throws IOException When the temporary file cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if(closed || mode == Mode.HEAP) {
+            return;
+        }
+        closed = true;
+
+        //Release the memory right away, instead of waiting for the buffers to be collected.
+        for(ByteBuffer buffer : buffers) {
+            release(buffer);
+        }
+        buffers.clear();
+
+        if(mappedFile != null) {
+            mappedFile.close();
+            if(!file.delete()) {
+                System.out.println("Could not delete the temporary column file " + file.getPath() + ".");
+            }
+        }
+    }
+
+    /**
+     * Free the memory of a direct or mapped buffer through sun.misc.Unsafe.invokeCleaner, which is available from Java 9.
+     * On older runtimes the memory is released once the buffer has been garbage collected.
+     *
+     * @param buffer The buffer to release, which may not be a slice or a duplicate.
+     */
+    private static void release(ByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            invokeCleaner.invoke(field.get(null), buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            //Leave the buffer to the garbage collector.
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package arff.column;
+
+import java.nio.IntBuffer;
+
+/**
+ * A column of dictionary encoded values, used for the non-numeric attribute types.
+ * Every distinct value is stored once in the dictionary, and each row refers to it by its code.
+ * The codes are kept in a buffer, which is either on the heap or off the heap depending on the {@link ColumnStorage}.
+ */
+public class NominalColumn implements Column {
+    //The dictionary code of every row, -1 denoting a missing value.
+    private final IntBuffer codes;
+
+    //The distinct values, indexed by code.
+    private final Object[] dictionary;
+
+    /**
+     * Create a nominal column on the heap.
+     *
+     * @param codes The dictionary code of every row, -1 denoting a missing value.
+     * @param dictionary The distinct values, indexed by code.
+     */
+    public NominalColumn(int[] codes, Object[] dictionary) {
+        this(IntBuffer.wrap(codes), dictionary);
+    }
+
+    /**
+     * Create a nominal column.
+     *
+     * @param codes The dictionary code of every row, -1 denoting a missing value.
+     * @param dictionary The distinct values, indexed by code.
+     */
+    public NominalColumn(IntBuffer codes, Object[] dictionary) {
+        this.codes = codes;
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Get the amount of rows stored within the column.
+     *
+     * @return The number of rows.
+     */
+    @Override
+    public int size() {
+        return codes.capacity();
+    }
+
+    /**
+     * Get the value of the given row.
+     *
+     * @param row The row (instance id) we want the value of.
+     * @return The shared dictionary value, null if the value is missing.
+     */
+    @Override
+    public Object getValue(int row) {
+        int code = codes.get(row);
+        return code < 0 ? null : dictionary[code];
+    }
+
+    /**
+     * Get the dictionary code of the given row.
+     *
+     * @param row The row (instance id) we want the code of.
+     * @return The dictionary code, -1 if the value is missing.
+     */
+    public int getCode(int row) {
+        return codes.get(row);
+    }
+
+    /**
+     * Get the distinct values of the column.
+     *
+     * @return The distinct values, indexed by code.
+     */
+    public Object[] getDictionary() {
+        return dictionary;
+    }
+}
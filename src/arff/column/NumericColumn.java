@@ -0,0 +1,295 @@
+package arff.column;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * A column of primitive double values. Missing values are stored as NaN.
+ * The values are kept in a buffer, which is either on the heap or off the heap depending on the {@link ColumnStorage}.
+ * Columns of which every value can be represented exactly by a smaller type are stored in that type instead, as chosen
+ * by the {@link NumericEncoder}. The values are always decoded to doubles when they are read.
+ */
+public class NumericColumn implements Column {
+    /**
+     * The primitive type the values are stored in.
+     */
+    public enum Encoding {
+        //Doubles, which can hold every value.
+        DOUBLE(8),
+        //Floats, for values that do not lose any precision as a float.
+        FLOAT(4),
+        //Shorts holding the values multiplied by the scale, for values with few decimals in a small range.
+        SHORT(2),
+        //Bytes holding the values multiplied by the scale, for values with few decimals in a very small range.
+        BYTE(1);
+
+        //The amount of bytes used per value.
+        private final int bytes;
+
+        Encoding(int bytes) {
+            this.bytes = bytes;
+        }
+
+        /**
+         * Get the amount of bytes used per value.
+         *
+         * @return The size of a single value.
+         */
+        public int getBytes() {
+            return bytes;
+        }
+    }
+
+    //The code denoting a missing value in the quantized encodings.
+    static final short NULL_SHORT = Short.MIN_VALUE;
+    static final byte NULL_BYTE = Byte.MIN_VALUE;
+
+    //The type the values are stored in.
+    private final Encoding encoding;
+
+    //The amount the quantized values have been multiplied by, 1 for the other encodings.
+    private final int scale;
+
+    //The values of the column, of which only the buffer of the encoding is used.
+    private final DoubleBuffer doubles;
+    private final FloatBuffer floats;
+    private final ShortBuffer shorts;
+    private final ByteBuffer bytes;
+
+    //The value of every byte code, offset by 128, such that bytes are decoded without a division.
+    private final double[] byteValues;
+
+    /**
+     * Create a numeric column on the heap.
+     *
+     * @param values The values of the column, with NaN denoting a missing value.
+     */
+    public NumericColumn(double[] values) {
+        this(DoubleBuffer.wrap(values));
+    }
+
+    /**
+     * Create a numeric column.
+     *
+     * @param values The values of the column, with NaN denoting a missing value.
+     */
+    public NumericColumn(DoubleBuffer values) {
+        this(Encoding.DOUBLE, 1, values, null, null, null);
+    }
+
+    /**
+     * Create a numeric column in the given encoding.
+     *
+     * @param encoding The type the values are stored in.
+     * @param scale The amount the quantized values have been multiplied by.
+     * @param doubles The buffer of the double encoding, null otherwise.
+     * @param floats The buffer of the float encoding, null otherwise.
+     * @param shorts The buffer of the short encoding, null otherwise.
+     * @param bytes The buffer of the byte encoding, null otherwise.
+     */
+    private NumericColumn(Encoding encoding, int scale, DoubleBuffer doubles, FloatBuffer floats, ShortBuffer shorts, ByteBuffer bytes) {
+        this.encoding = encoding;
+        this.scale = scale;
+        this.doubles = doubles;
+        this.floats = floats;
+        this.shorts = shorts;
+        this.bytes = bytes;
+
+        if(encoding == Encoding.BYTE) {
+            byteValues = new double[256];
+            for(int code = Byte.MIN_VALUE; code <= Byte.MAX_VALUE; code++) {
+                byteValues[code + 128] = code == NULL_BYTE ? Double.NaN : (double) code / scale;
+            }
+        } else {
+            byteValues = null;
+        }
+    }
+
+    /**
+     * Allocate an empty column in the given encoding. The values have to be set through {@link #set(int, double[], int)}.
+     *
+     * @param encoding The type the values are stored in.
+     * @param scale The amount the quantized values are multiplied by, ignored for the other encodings.
+     * @param size The amount of rows.
+     * @param storage The storage to allocate the buffer in.
+     * @return The column.
+     */
+    public static NumericColumn allocate(Encoding encoding, int scale, int size, ColumnStorage storage) {
+        switch (encoding) {
+            case FLOAT:
+                return new NumericColumn(encoding, 1, null, storage.allocateFloats(size), null, null);
+            case SHORT:
+                return new NumericColumn(encoding, scale, null, null, storage.allocateShorts(size), null);
+            case BYTE:
+                return new NumericColumn(encoding, scale, null, null, null, storage.allocateBytes(size));
+        }
+        return new NumericColumn(storage.allocateDoubles(size));
+    }
+
+    /**
+     * Encode and store consecutive values, which is only done while loading.
+     * The values should be representable in the encoding, which is checked beforehand by the {@link NumericEncoder}.
+     *
+     * @param offset The first row to set.
+     * @param values The values, with NaN denoting a missing value.
+     * @param length The amount of values to store.
+     */
+    public void set(int offset, double[] values, int length) {
+        switch (encoding) {
+            case DOUBLE:
+                DoubleBuffer view = doubles.duplicate();
+                view.position(offset);
+                view.put(values, 0, length);
+                break;
+            case FLOAT:
+                for(int i = 0; i < length; i++) {
+                    floats.put(offset + i, (float) values[i]);
+                }
+                break;
+            case SHORT:
+                for(int i = 0; i < length; i++) {
+                    shorts.put(offset + i, Double.isNaN(values[i]) ? NULL_SHORT : (short) Math.rint(values[i] * scale));
+                }
+                break;
+            case BYTE:
+                for(int i = 0; i < length; i++) {
+                    bytes.put(offset + i, Double.isNaN(values[i]) ? NULL_BYTE : (byte) Math.rint(values[i] * scale));
+                }
+        }
+    }
+
+    /**
+     * Get the amount of rows stored within the column.
+     *
+     * @return The number of rows.
+     */
+    @Override
+    public int size() {
+        switch (encoding) {
+            case FLOAT:
+                return floats.capacity();
+            case SHORT:
+                return shorts.capacity();
+            case BYTE:
+                return bytes.capacity();
+        }
+        return doubles.capacity();
+    }
+
+    /**
+     * Get the value of the given row.
+     *
+     * @param row The row (instance id) we want the value of.
+     * @return The value as a Double, null if the value is missing.
+     */
+    @Override
+    public Object getValue(int row) {
+        double value = getDouble(row);
+        return Double.isNaN(value) ? null : value;
+    }
+
+    /**
+     * Get the primitive value of the given row.
+     *
+     * @param row The row (instance id) we want the value of.
+     * @return The value, NaN if the value is missing.
+     */
+    public double getDouble(int row) {
+        switch (encoding) {
+            case FLOAT:
+                return floats.get(row);
+            case SHORT:
+                short code = shorts.get(row);
+                return code == NULL_SHORT ? Double.NaN : (double) code / scale;
+            case BYTE:
+                return byteValues[bytes.get(row) + 128];
+        }
+        return doubles.get(row);
+    }
+
+    /**
+     * Decode the values of the given rows into an array.
+     *
+     * @param rows The rows (instance ids) we want the values of.
+     * @param offset The position of the first row to decode within the rows.
+     * @param count The amount of rows to decode.
+     * @param target The array receiving the values, starting at its first position.
+     */
+    public void getDoubles(int[] rows, int offset, int count, double[] target) {
+        //The encoding is only checked once, such that every loop is a simple gather.
+        switch (encoding) {
+            case DOUBLE:
+                for(int i = 0; i < count; i++) {
+                    target[i] = doubles.get(rows[offset + i]);
+                }
+                break;
+            case FLOAT:
+                for(int i = 0; i < count; i++) {
+                    target[i] = floats.get(rows[offset + i]);
+                }
+                break;
+            case SHORT:
+                for(int i = 0; i < count; i++) {
+                    short code = shorts.get(rows[offset + i]);
+                    target[i] = code == NULL_SHORT ? Double.NaN : (double) code / scale;
+                }
+                break;
+            case BYTE:
+                for(int i = 0; i < count; i++) {
+                    target[i] = byteValues[bytes.get(rows[offset + i]) + 128];
+                }
+        }
+    }
+
+    /**
+     * Whether the value of the given row is missing.
+     *
+     * @param row The row (instance id) to check.
+     * @return True if the value is missing, false otherwise.
+     */
+    public boolean isNull(int row) {
+        return Double.isNaN(getDouble(row));
+    }
+
+    /**
+     * Get the array holding the values, which allows the fastest access when the doubles are kept on the heap.
+     *
+     * @return The array of values, null if the values are not stored as doubles in an array.
+     */
+    public double[] getDoubleArray() {
+        if(encoding == Encoding.DOUBLE && doubles.hasArray() && doubles.arrayOffset() == 0) {
+            return doubles.array();
+        }
+        return null;
+    }
+
+    /**
+     * Get the type the values are stored in.
+     *
+     * @return The encoding of the column.
+     */
+    public Encoding getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * Get the amount the quantized values have been multiplied by.
+     *
+     * @return The scale, 1 if the values are not quantized.
+     */
+    public int getScale() {
+        return scale;
+    }
+
+    /**
+     * Get the name of the encoding of the column.
+     *
+     * @return Full name of the encoding.
+     */
+    public String getEncodingName() {
+        String name = encoding.name().toLowerCase();
+        return scale == 1 ? name : name + " x" + scale;
+    }
+}
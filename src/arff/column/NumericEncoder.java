@@ -0,0 +1,120 @@
+package arff.column;
+
+/**
+ * Chooses the smallest encoding in which every value of a numeric column can be stored exactly.
+ * The values are first passed to {@link #add(double[], int)}, after which {@link #allocate(int, ColumnStorage)} creates
+ * a column of the chosen encoding. A value is only considered to fit an encoding when decoding its encoded form gives
+ * back the very same double, such that the encoding never changes the results.
+ */
+public class NumericEncoder {
+    /**
+     * The encodings a column may be stored in.
+     */
+    public enum Mode {
+        //Always store the values as doubles.
+        DOUBLE,
+        //Store the values as floats when none of them loses precision, as doubles otherwise.
+        FLOAT,
+        //Store the values in the smallest of bytes, shorts, floats and doubles that holds all of them exactly.
+        COMPACT
+    }
+
+    //The scales tried for the quantized encodings, such that values with up to three decimals can be quantized.
+    private static final int[] SCALES = {1, 10, 100, 1000};
+
+    //The encodings that may be chosen.
+    private final Mode mode;
+
+    //Whether all values are represented exactly as a float.
+    private boolean floatExact = true;
+
+    //Whether all values are represented exactly as a short at every scale, and the range of the quantized values.
+    private final boolean[] scaleExact = new boolean[SCALES.length];
+    private final long[] minimums = new long[SCALES.length];
+    private final long[] maximums = new long[SCALES.length];
+
+    /**
+     * Create an encoder without any values.
+     *
+     * @param mode The encodings that may be chosen.
+     */
+    public NumericEncoder(Mode mode) {
+        this.mode = mode;
+        for(int s = 0; s < SCALES.length; s++) {
+            scaleExact[s] = true;
+        }
+    }
+
+    /**
+     * Check whether the given values fit the encodings.
+     *
+     * @param values The values, with NaN denoting a missing value.
+     * @param length The amount of values to check, starting at the first one.
+     */
+    public void add(double[] values, int length) {
+        if(mode == Mode.DOUBLE) {
+            return;
+        }
+        for(int i = 0; i < length; i++) {
+            double value = values[i];
+            if(Double.isNaN(value)) {
+                //Every encoding has a code for missing values.
+                continue;
+            }
+            if(floatExact && !isSame((float) value, value)) {
+                floatExact = false;
+            }
+            if(mode == Mode.COMPACT) {
+                for(int s = 0; s < SCALES.length; s++) {
+                    if(scaleExact[s]) {
+                        double code = Math.rint(value * SCALES[s]);
+                        if(Math.abs(code) > Short.MAX_VALUE || !isSame(code / SCALES[s], value)) {
+                            scaleExact[s] = false;
+                        } else {
+                            minimums[s] = Math.min(minimums[s], (long) code);
+                            maximums[s] = Math.max(maximums[s], (long) code);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Allocate an empty column of the smallest encoding that holds all values that have been added.
+     *
+     * @param size The amount of rows.
+     * @param storage The storage to allocate the buffer in.
+     * @return The column, of which the values still have to be set.
+     */
+    public NumericColumn allocate(int size, ColumnStorage storage) {
+        if(mode == Mode.COMPACT) {
+            //The smallest code of both types is reserved for missing values.
+            for(int s = 0; s < SCALES.length; s++) {
+                if(scaleExact[s] && minimums[s] > Byte.MIN_VALUE && maximums[s] <= Byte.MAX_VALUE) {
+                    return NumericColumn.allocate(NumericColumn.Encoding.BYTE, SCALES[s], size, storage);
+                }
+            }
+            for(int s = 0; s < SCALES.length; s++) {
+                if(scaleExact[s]) {
+                    return NumericColumn.allocate(NumericColumn.Encoding.SHORT, SCALES[s], size, storage);
+                }
+            }
+        }
+        if(mode != Mode.DOUBLE && floatExact) {
+            return NumericColumn.allocate(NumericColumn.Encoding.FLOAT, 1, size, storage);
+        }
+        return NumericColumn.allocate(NumericColumn.Encoding.DOUBLE, 1, size, storage);
+    }
+
+    /**
+     * Whether the decoded value is the very same double as the original, which also distinguishes -0.0 from 0.0.
+     *
+     * @param decoded The value after encoding and decoding it.
+     * @param value The original value.
+     * @return True if both values have the same bits.
+     */
+    private static boolean isSame(double decoded, double value) {
+        return Double.doubleToRawLongBits(decoded) == Double.doubleToRawLongBits(value);
+    }
+}
@@ -0,0 +1,125 @@
+package arff.column;
+
+import java.nio.IntBuffer;
+
+/**
+ * Summary of a column of codes per chunk of consecutive rows, holding the smallest and largest code and the amount of nulls.
+ * When the codes follow the order of the values, a filter can decide from the summary alone whether it selects all,
+ * none or only some of the rows of a chunk, such that whole chunks can be skipped or taken without reading their rows.
+ */
+public class ZoneMap {
+    //The amount of rows within every chunk, except for the last one.
+    private final int chunkSize;
+
+    //The amount of rows.
+    private final int rowCount;
+
+    //The smallest and largest non-null code of every chunk. The minimum exceeds the maximum when a chunk only holds nulls.
+    private final int[] minimums;
+    private final int[] maximums;
+
+    //The amount of nulls within every chunk.
+    private final int[] nullCounts;
+
+    /**
+     * Create the zone map of a column.
+     *
+     * @param codes The code of every row, -1 denoting a null.
+     * @param rowCount The amount of rows.
+     * @param chunkSize The amount of rows within a chunk.
+     */
+    public ZoneMap(IntBuffer codes, int rowCount, int chunkSize) {
+        this.chunkSize = chunkSize;
+        this.rowCount = rowCount;
+
+        int chunks = (rowCount + chunkSize - 1) / chunkSize;
+        minimums = new int[chunks];
+        maximums = new int[chunks];
+        nullCounts = new int[chunks];
+        for(int chunk = 0; chunk < chunks; chunk++) {
+            int minimum = Integer.MAX_VALUE;
+            int maximum = -1;
+            int nulls = 0;
+            for(int row = getStart(chunk); row < getEnd(chunk); row++) {
+                int code = codes.get(row);
+                if(code == -1) {
+                    nulls++;
+                } else {
+                    minimum = Math.min(minimum, code);
+                    maximum = Math.max(maximum, code);
+                }
+            }
+            minimums[chunk] = minimum;
+            maximums[chunk] = maximum;
+            nullCounts[chunk] = nulls;
+        }
+    }
+
+    /**
+     * Get the amount of chunks.
+     *
+     * @return The amount of chunks.
+     */
+    public int getChunkCount() {
+        return minimums.length;
+    }
+
+    /**
+     * Get the amount of rows within every chunk, except for the last one.
+     *
+     * @return The chunk size.
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Get the first row of the chunk.
+     *
+     * @param chunk The chunk.
+     * @return The first row within the chunk.
+     */
+    public int getStart(int chunk) {
+        return chunk * chunkSize;
+    }
+
+    /**
+     * Get the end of the chunk.
+     *
+     * @param chunk The chunk.
+     * @return The row after the last row within the chunk.
+     */
+    public int getEnd(int chunk) {
+        return Math.min(rowCount, (chunk + 1) * chunkSize);
+    }
+
+    /**
+     * Get the smallest non-null code within the chunk.
+     *
+     * @param chunk The chunk.
+     * @return The smallest code, larger than the maximum when the chunk only holds nulls.
+     */
+    public int getMinimum(int chunk) {
+        return minimums[chunk];
+    }
+
+    /**
+     * Get the largest non-null code within the chunk.
+     *
+     * @param chunk The chunk.
+     * @return The largest code, smaller than the minimum when the chunk only holds nulls.
+     */
+    public int getMaximum(int chunk) {
+        return maximums[chunk];
+    }
+
+    /**
+     * Get the amount of nulls within the chunk.
+     *
+     * @param chunk The chunk.
+     * @return The amount of rows with a null code.
+     */
+    public int getNullCount(int chunk) {
+        return nullCounts[chunk];
+    }
+}
@@ -1,11 +1,7 @@
 package arff.instance;
 
 import arff.attribute.AbstractAttribute;
-import com.sun.deploy.util.BlackList;
-import com.sun.org.apache.xpath.internal.operations.Bool;
-
-import java.util.HashSet;
-import java.util.List;
+import arff.column.Column;
 
 /**
  * Class representing an instance within the Dataset file.
@@ -14,31 +10,18 @@ public class Instance {
     //The id of the instance.
     private final int id;
 
-    //The list of values, which is of the type Object such that we can cast to the correct type later on.
-    private final Object[] values;
+    //The columns holding the values, indexed by attribute id. The instance id is the row within these columns.
+    private final Column[] columns;
 
     /**
      * Create an instance.
      *
-     * @param id The unique identifier of the instance.
-     * @param line The line the instance is contained in.
-     * @param attributes The list of attributes that the instance is composed of.
-     * @param blacklist The blacklisted attributes.
-     * @param offset The index offset,  as we removed some attributes before initializing, thus de ids do not match.
+     * @param id The unique identifier of the instance, which is also its row in the columns.
+     * @param columns The columns holding the values of the instance, indexed by attribute id.
      */
-    public Instance(int id, String line, List<AbstractAttribute> attributes, HashSet<String> blacklist, List<Integer> offset) {
+    public Instance(int id, Column[] columns) {
         this.id = id;
-        String[] stringValues = line.split(",");
-        values = new Object[stringValues.length - blacklist.size()];
-
-        //Convert the string representations of values to the appropriate type.
-        for(AbstractAttribute attribute : attributes) {
-            //The index of the attribute.
-            int i = attribute.getId();
-
-            //Make sure that the object is saved as the appropriate type, i.e. String, Double etc.
-            values[i] = attribute.convertValue(stringValues[i + offset.get(i)]);
-        }
+        this.columns = columns;
     }
 
     /**
@@ -54,9 +37,9 @@ public class Instance {
      * Get the value for the given attribute.
      *
      * @param attribute The attribute we want the value of.
-     * @return The value in the string array at the index of the attribute.
+     * @return The value in the column of the attribute, in the type of the attribute.
      */
-    public Object getValue(AbstractAttribute attribute) {
-        return values[attribute.getId()];
+    public Object getValue(AbstractAttribute<?> attribute) {
+        return columns[attribute.getId()].getValue(id);
     }
 }
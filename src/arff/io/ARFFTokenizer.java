@@ -0,0 +1,182 @@
+package arff.io;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tokenizer that walks the fields of an arff data line within a byte buffer, without allocating any objects.
+ * Supports single and double quoted values (which may contain commas), backslash escapes within quotes and the ? missing value.
+ */
+public class ARFFTokenizer {
+    //The buffer that is tokenized.
+    private byte[] buffer;
+
+    //The position of the next unread byte.
+    private int position;
+
+    //The end of the line.
+    private int end;
+
+    //The bounds of the current token, without quotes and surrounding whitespace.
+    private int tokenStart;
+    private int tokenEnd;
+
+    //Whether the current token was quoted.
+    private boolean quoted;
+
+    //Whether the current token contains escape characters.
+    private boolean escaped;
+
+    //Whether there are fields left on the line.
+    private boolean hasNext;
+
+    /**
+     * Start tokenizing the line in the range [start, end) of the buffer.
+     *
+     * @param buffer The buffer containing the line.
+     * @param start The index of the first byte of the line.
+     * @param end The index after the last byte of the line.
+     */
+    public void reset(byte[] buffer, int start, int end) {
+        this.buffer = buffer;
+        this.position = start;
+        this.end = end;
+        this.hasNext = true;
+    }
+
+    /**
+     * Move to the next field on the line.
+     *
+     * @return True if a field was found, false if the line has no fields left.
+     */
+    public boolean next() {
+        if(!hasNext) {
+            return false;
+        }
+
+        //Skip leading whitespace.
+        while(position < end && isWhitespace(buffer[position])) position++;
+
+        quoted = false;
+        escaped = false;
+        if(position < end && (buffer[position] == '\'' || buffer[position] == '"')) {
+            //Read up to the matching quote, commas are part of the value here.
+            byte quote = buffer[position];
+            quoted = true;
+            tokenStart = ++position;
+            while(position < end && buffer[position] != quote) {
+                if(buffer[position] == '\\') {
+                    escaped = true;
+                    position++;
+                }
+                position++;
+            }
+            tokenEnd = Math.min(position, end);
+            position++;
+
+            //Skip everything up to the next separator.
+            while(position < end && buffer[position] != ',') position++;
+        } else {
+            tokenStart = position;
+            while(position < end && buffer[position] != ',') position++;
+            tokenEnd = position;
+            while(tokenEnd > tokenStart && isWhitespace(buffer[tokenEnd - 1])) tokenEnd--;
+        }
+
+        //Step over the separator, if there is one.
+        hasNext = position < end;
+        position++;
+        return true;
+    }
+
+    /**
+     * Whether the current token denotes a missing value.
+     *
+     * @return True if the token is an unquoted ?.
+     */
+    public boolean isMissing() {
+        return !quoted && tokenEnd - tokenStart == 1 && buffer[tokenStart] == '?';
+    }
+
+    /**
+     * Parse the current token as a double, directly from the buffer.
+     *
+     * @return The numeric value of the token.
+     */
+    public double parseDouble() {
+        return NumberParser.parseDouble(buffer, tokenStart, tokenEnd);
+    }
+
+    /**
+     * Get the buffer that is being tokenized.
+     *
+     * @return The buffer.
+     */
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Get the start of the current token.
+     *
+     * @return The index of the first byte of the token, without quotes.
+     */
+    public int getTokenStart() {
+        return tokenStart;
+    }
+
+    /**
+     * Get the end of the current token.
+     *
+     * @return The index after the last byte of the token, without quotes.
+     */
+    public int getTokenEnd() {
+        return tokenEnd;
+    }
+
+    /**
+     * Whether the current token contains escape characters that should be removed when converting it.
+     *
+     * @return True if the token is quoted and contains backslashes.
+     */
+    public boolean isEscaped() {
+        return escaped;
+    }
+
+    /**
+     * Convert the given raw token bytes to a string.
+     *
+     * @param bytes The raw bytes of the token.
+     * @param escaped Whether escape characters should be removed.
+     * @return The value of the token as a string.
+     */
+    public static String toString(byte[] bytes, boolean escaped) {
+        String value = new String(bytes, StandardCharsets.UTF_8);
+        return escaped ? value.replaceAll("\\\\(.)", "$1") : value;
+    }
+
+    /**
+     * Count the amount of fields in the given comma separated list, respecting quotes.
+     *
+     * @param line The comma separated list.
+     * @return The amount of fields.
+     */
+    public static int countFields(String line) {
+        byte[] buffer = line.getBytes(StandardCharsets.UTF_8);
+        ARFFTokenizer tokenizer = new ARFFTokenizer();
+        tokenizer.reset(buffer, 0, buffer.length);
+
+        int count = 0;
+        while(tokenizer.next()) count++;
+        return count;
+    }
+
+    /**
+     * Whether the byte is considered to be whitespace.
+     *
+     * @param b The byte to check.
+     * @return True if the byte is a space or tab.
+     */
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t';
+    }
+}
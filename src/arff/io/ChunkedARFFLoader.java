@@ -0,0 +1,461 @@
+package arff.io;
+
+import arff.attribute.AbstractAttribute;
+import arff.attribute.NumericAttribute;
+import arff.column.Column;
+import arff.column.ColumnStorage;
+import arff.column.NominalColumn;
+import arff.column.NumericColumn;
+import arff.column.NumericEncoder;
+import util.linearalgebra.SufficientStatistics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loader that memory maps the data section of an arff file, and parses line-aligned chunks of it in parallel.
+ */
+public class ChunkedARFFLoader {
+    //The smallest chunk we will hand to a separate worker.
+    private static final long MINIMUM_CHUNK_SIZE = 1 << 16;
+
+    //The largest chunk we will map at once, which also bounds the parse buffer of a single worker.
+    private static final long MAXIMUM_CHUNK_SIZE = 1 << 26;
+
+    //The path to the file.
+    private final String filePath;
+
+    //Whether we count null values as zero in numerical cases.
+    private final boolean countNullAsZero;
+
+    //The blacklisted attributes.
+    private final HashSet<String> blacklist;
+
+    //The amount of worker threads.
+    private final int threads;
+
+    //The relation name.
+    private String relationName = "";
+
+    //The attributes that are not blacklisted.
+    private final List<AbstractAttribute<?>> attributes = new ArrayList<>();
+
+    //The @attribute line of each column in the file, including the blacklisted ones.
+    private final List<String> attributeHeaders = new ArrayList<>();
+
+    //The attribute connected to each column in the file, null if the column is blacklisted.
+    private final List<AbstractAttribute<?>> fileColumns = new ArrayList<>();
+
+    //Whether the attribute connected to each column in the file is numeric.
+    private boolean[] isNumeric;
+
+    //The index of the last column in the file that is not blacklisted, as the remainder of a line can be skipped.
+    private int lastColumn;
+
+    //The filter that applies the seed while parsing, null if all rows are loaded.
+    private SeedFilter seedFilter;
+
+    //The regression statistics of all rows in the file, including the ones rejected by the seed filter.
+    private SufficientStatistics referenceStatistics;
+
+    //The storage the loaded columns are kept in.
+    private ColumnStorage storage = ColumnStorage.getDefault();
+
+    //The loaded columns, indexed by attribute id.
+    private Column[] columns;
+
+    //The amount of rows that have been loaded.
+    private int rowCount;
+
+    /**
+     * Create a loader for the given file.
+     *
+     * @param filePath The path to the file we want to load.
+     * @param countNullAsZero Whether we count null values as zero in numerical cases.
+     * @param blacklist The blacklisted attributes.
+     */
+    public ChunkedARFFLoader(String filePath, boolean countNullAsZero, HashSet<String> blacklist) {
+        this(filePath, countNullAsZero, blacklist, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a loader for the given file.
+     *
+     * @param filePath The path to the file we want to load.
+     * @param countNullAsZero Whether we count null values as zero in numerical cases.
+     * @param blacklist The blacklisted attributes.
+     * @param threads The amount of worker threads used for parsing.
+     */
+    public ChunkedARFFLoader(String filePath, boolean countNullAsZero, HashSet<String> blacklist, int threads) {
+        this.filePath = filePath;
+        this.countNullAsZero = countNullAsZero;
+        this.blacklist = blacklist;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Apply the given seed while parsing, such that only the rows within the seed are loaded.
+     * The filter is only used when all seed constraints can be evaluated on a single row.
+     *
+     * @param seedFilter The filter to apply, null to load all rows.
+     */
+    public void setSeedFilter(SeedFilter seedFilter) {
+        this.seedFilter = seedFilter;
+    }
+
+    /**
+     * Keep the loaded columns in the given storage. The parsed chunks themselves are always kept on the heap, until they
+     * have been copied into the columns.
+     *
+     * @param storage The storage to use, the heap storage by default.
+     */
+    public void setStorage(ColumnStorage storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * Load the file.
+     *
+     * @throws Exception Throws an exception if the file cannot be loaded.
+     */
+    public void load() throws Exception {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            long dataStart = readHeader(channel);
+            isNumeric = new boolean[fileColumns.size()];
+            lastColumn = -1;
+            for(int i = 0; i < isNumeric.length; i++) {
+                isNumeric[i] = fileColumns.get(i) instanceof NumericAttribute;
+                if(fileColumns.get(i) != null) lastColumn = i;
+            }
+            if(seedFilter != null && !seedFilter.bind(attributes)) {
+                System.out.println("The seed cannot be evaluated per row, all rows will be loaded.");
+                seedFilter = null;
+            }
+            List<long[]> chunks = getChunks(channel, dataStart, channel.size());
+            if(chunks.isEmpty()) {
+                throw new Exception("The @data section of " + filePath + " holds no instances.");
+            }
+
+            //Parse all chunks in parallel.
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, chunks.size()));
+            List<ColumnSegment> segments = new ArrayList<>();
+            try {
+                List<Future<ColumnSegment>> futures = new ArrayList<>();
+                for(long[] chunk : chunks) {
+                    futures.add(executor.submit(() -> parseChunk(channel, chunk[0], chunk[1])));
+                }
+                for(Future<ColumnSegment> future : futures) {
+                    segments.add(future.get());
+                }
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            } finally {
+                executor.shutdown();
+            }
+
+            concatenate(segments);
+        }
+    }
+
+    /**
+     * Read the header of the file, up until the @data line.
+     *
+     * @param channel The channel to read from.
+     * @return The position of the first byte after the @data line.
+     * @throws Exception Throws an exception if the header is invalid.
+     */
+    private long readHeader(FileChannel channel) throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        long position = 0;
+
+        int attributeCounter = 0;
+        while(channel.read(buffer, position) > 0) {
+            buffer.flip();
+            while(buffer.hasRemaining()) {
+                byte b = buffer.get();
+                position++;
+                if(b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+
+                String header = new String(line.toByteArray(), StandardCharsets.UTF_8).trim();
+                line.reset();
+
+                if(header.startsWith("@attribute")) {
+                    attributeHeaders.add(header);
+                    AbstractAttribute<?> attribute = AbstractAttribute.getAttribute(header, attributeCounter, countNullAsZero);
+                    if(!blacklist.contains(attribute.getName())) {
+                        attributes.add(attribute);
+                        fileColumns.add(attribute);
+                        attributeCounter++;
+                    } else {
+                        System.out.println("Skipped adding the attribute " + attribute.getName());
+                        fileColumns.add(null);
+                    }
+                } else if(header.startsWith("@relation")) {
+                    relationName = header.replaceFirst("@relation ","").replaceAll("'","");
+                } else if(header.toLowerCase().startsWith("@data")) {
+                    return position;
+                }
+            }
+            buffer.clear();
+        }
+        throw new Exception("No @data section found in " + filePath + ".");
+    }
+
+    /**
+     * Split the data section into line-aligned chunks.
+     *
+     * @param channel The channel to read from.
+     * @param dataStart The position of the first byte of the data section.
+     * @param dataEnd The position after the last byte of the data section.
+     * @return A list of [start, end) positions, in file order.
+     * @throws IOException When the file cannot be read.
+     */
+    private List<long[]> getChunks(FileChannel channel, long dataStart, long dataEnd) throws IOException {
+        long length = dataEnd - dataStart;
+        long chunkCount = Math.max(Math.min(threads * 4L, length / MINIMUM_CHUNK_SIZE), 1);
+        chunkCount = Math.max(chunkCount, (length + MAXIMUM_CHUNK_SIZE - 1) / MAXIMUM_CHUNK_SIZE);
+
+        List<long[]> chunks = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long start = dataStart;
+        for(long k = 1; k <= chunkCount && start < dataEnd; k++) {
+            long end = k == chunkCount ? dataEnd : Math.max(start, dataStart + length * k / chunkCount);
+
+            //Move the end of the chunk to the start of the next line.
+            boolean aligned = end == dataEnd;
+            while(!aligned) {
+                buffer.clear();
+                int read = channel.read(buffer, end);
+                if(read <= 0) {
+                    end = dataEnd;
+                    break;
+                }
+                for(int i = 0; i < read; i++) {
+                    if(buffer.get(i) == '\n') {
+                        end += i + 1;
+                        aligned = true;
+                        break;
+                    }
+                }
+                if(!aligned) end += read;
+            }
+
+            if(end - start > Integer.MAX_VALUE) {
+                throw new IOException("A single line in " + filePath + " exceeds the maximum chunk size.");
+            }
+            if(end > start) {
+                chunks.add(new long[]{start, end});
+            }
+            start = end;
+        }
+        return chunks;
+    }
+
+    /**
+     * Parse all lines within the given chunk.
+     *
+     * @param channel The channel to map the chunk from.
+     * @param start The position of the first byte of the chunk.
+     * @param end The position after the last byte of the chunk.
+     * @return The column values of the chunk.
+     * @throws IOException When the chunk cannot be mapped.
+     */
+    private ColumnSegment parseChunk(FileChannel channel, long start, long end) throws IOException {
+        //Copy the mapped chunk to the heap once, as array access is a lot cheaper than buffer access in the loops below.
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        byte[] buffer = new byte[mapped.limit()];
+        mapped.get(buffer);
+        int limit = buffer.length;
+
+        //Guess the row count from the length of the first line.
+        ARFFTokenizer tokenizer = new ARFFTokenizer();
+        int lineStart = 0;
+        int firstLineEnd = 0;
+        while(firstLineEnd < limit && buffer[firstLineEnd] != '\n') firstLineEnd++;
+        ColumnSegment segment = new ColumnSegment(attributes, limit / (firstLineEnd + 1) + 1);
+        SufficientStatistics statistics = seedFilter == null ? null : seedFilter.createStatistics();
+        double[] x = seedFilter == null ? null : new double[seedFilter.getXTargetCount()];
+
+        while(lineStart < limit) {
+            int lineEnd = lineStart;
+            while(lineEnd < limit && buffer[lineEnd] != '\n') lineEnd++;
+            int next = lineEnd + 1;
+            if(lineEnd > lineStart && buffer[lineEnd - 1] == '\r') lineEnd--;
+
+            if(lineEnd > lineStart && buffer[lineStart] != '%') {
+                int row = parseLine(tokenizer, buffer, lineStart, lineEnd, segment);
+
+                //Every row is part of the reference model, but only the rows within the seed are kept.
+                if(seedFilter != null) {
+                    seedFilter.accumulate(segment, row, x, statistics);
+                    if(!seedFilter.accepts(segment, row)) {
+                        segment.removeLastRow();
+                    }
+                }
+            }
+            lineStart = next;
+        }
+        segment.setStatistics(statistics);
+        return segment;
+    }
+
+    /**
+     * Parse a single line into a new row of the segment.
+     *
+     * @param tokenizer The tokenizer to use.
+     * @param buffer The buffer containing the line.
+     * @param start The index of the first byte of the line.
+     * @param end The index after the last byte of the line.
+     * @param segment The segment to add the row to.
+     * @return The index of the new row within the segment.
+     */
+    private int parseLine(ARFFTokenizer tokenizer, byte[] buffer, int start, int end, ColumnSegment segment) {
+        int row = segment.addRow();
+        tokenizer.reset(buffer, start, end);
+        //Columns after the last loaded column are not even tokenized.
+        for(int i = 0; i <= lastColumn; i++) {
+            AbstractAttribute<?> attribute = fileColumns.get(i);
+            if(!tokenizer.next()) {
+                throw new IllegalArgumentException("The line \"" + NumberParser.toString(buffer, start, end) + "\" has fewer values than there are attributes.");
+            }
+
+            if(isNumeric[i]) {
+                //Numeric values are converted directly from the mapped bytes.
+                segment.setNumeric(attribute.getId(), row, tokenizer.isMissing() ? Double.NaN : tokenizer.parseDouble());
+            } else if(attribute != null) {
+                //Other values are mapped to a dictionary code, without creating a string.
+                segment.setToken(attribute.getId(), row, tokenizer);
+            }
+        }
+        return row;
+    }
+
+    /**
+     * Concatenate the segments into the final columns. Instance ids follow the order of the rows in the file.
+     *
+     * @param segments The segments in file order.
+     */
+    private void concatenate(List<ColumnSegment> segments) {
+        rowCount = 0;
+        for(ColumnSegment segment : segments) {
+            rowCount += segment.size();
+        }
+
+        if(seedFilter != null) {
+            referenceStatistics = seedFilter.createStatistics();
+            for(ColumnSegment segment : segments) {
+                referenceStatistics.add(segment.getStatistics());
+            }
+        }
+
+        columns = new Column[attributes.size()];
+        for(AbstractAttribute<?> attribute : attributes) {
+            int id = attribute.getId();
+            int offset = 0;
+            if(attribute instanceof NumericAttribute) {
+                //Choose the smallest encoding that holds all values before the column is allocated.
+                NumericEncoder encoder = new NumericEncoder(storage.getNumericMode());
+                for(ColumnSegment segment : segments) {
+                    segment.addNumeric(id, encoder);
+                }
+                NumericColumn column = encoder.allocate(rowCount, storage);
+                for(ColumnSegment segment : segments) {
+                    segment.copyNumeric(id, column, offset);
+                    offset += segment.size();
+                }
+                columns[id] = column;
+            } else {
+                //Merge the dictionaries of the segments, converting every distinct token to a value only once.
+                ValueDictionary dictionary = new ValueDictionary();
+                List<Object> dictionaryValues = new ArrayList<>();
+                IntBuffer codes = storage.allocateInts(rowCount);
+                for(ColumnSegment segment : segments) {
+                    ValueDictionary local = segment.getDictionary(id);
+                    int[] remap = new int[local.size()];
+                    for(int code = 0; code < local.size(); code++) {
+                        byte[] key = local.getKey(code);
+                        remap[code] = dictionary.getCode(key, 0, key.length, local.isEscaped(code));
+                        if(remap[code] == dictionaryValues.size()) {
+                            dictionaryValues.add(attribute.convertValue(ARFFTokenizer.toString(key, local.isEscaped(code))));
+                        }
+                    }
+                    segment.copyCodes(id, remap, codes, offset);
+                    offset += segment.size();
+                }
+                columns[id] = new NominalColumn(codes, dictionaryValues.toArray());
+            }
+        }
+    }
+
+    /**
+     * Get the relation name.
+     *
+     * @return The relation name, as denoted with @relation name.
+     */
+    public String getRelationName() {
+        return relationName;
+    }
+
+    /**
+     * Get the attributes that have been loaded.
+     *
+     * @return The list of attributes that are not blacklisted.
+     */
+    public List<AbstractAttribute<?>> getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * Get the @attribute lines of all columns in the file.
+     *
+     * @return The attribute definitions in file order, including the blacklisted ones.
+     */
+    public List<String> getAttributeHeaders() {
+        return attributeHeaders;
+    }
+
+    /**
+     * Get the loaded columns.
+     *
+     * @return The columns, indexed by attribute id.
+     */
+    public Column[] getColumns() {
+        return columns;
+    }
+
+    /**
+     * Get the regression statistics of all rows in the file, which are only gathered when the seed is applied while parsing.
+     *
+     * @return The statistics of all rows, or null if all rows have been loaded.
+     */
+    public SufficientStatistics getReferenceStatistics() {
+        return referenceStatistics;
+    }
+
+    /**
+     * Get the amount of rows that have been loaded.
+     *
+     * @return The amount of rows.
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+}
@@ -0,0 +1,224 @@
+package arff.io;
+
+import arff.attribute.AbstractAttribute;
+import arff.attribute.NumericAttribute;
+import arff.column.NumericColumn;
+import arff.column.NumericEncoder;
+import util.linearalgebra.SufficientStatistics;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The column values parsed from a single chunk of the data section.
+ */
+class ColumnSegment {
+    //The numeric values per attribute id, null when the attribute is not numeric.
+    private final double[][] numericValues;
+
+    //The dictionary codes per attribute id, null when the attribute is numeric.
+    private final int[][] codes;
+
+    //The dictionaries of this segment per attribute id, null when the attribute is numeric.
+    private final ValueDictionary[] dictionaries;
+
+    //The converted values of the dictionary codes per attribute id, filled on demand.
+    private final Object[][] decodedValues;
+
+    //The regression statistics of all rows parsed in this segment, when a seed filter is used.
+    private SufficientStatistics statistics;
+
+    //The amount of rows in the segment.
+    private int size;
+
+    //The amount of rows the columns can hold before they have to grow.
+    private int capacity;
+
+    /**
+     * Create an empty segment for the given attributes.
+     *
+     * @param attributes The attributes that are loaded.
+     * @param expectedRows The expected amount of rows within the segment.
+     */
+    ColumnSegment(List<AbstractAttribute<?>> attributes, int expectedRows) {
+        capacity = Math.max(16, expectedRows);
+        numericValues = new double[attributes.size()][];
+        codes = new int[attributes.size()][];
+        dictionaries = new ValueDictionary[attributes.size()];
+        decodedValues = new Object[attributes.size()][];
+        for(AbstractAttribute<?> attribute : attributes) {
+            if(attribute instanceof NumericAttribute) {
+                numericValues[attribute.getId()] = new double[capacity];
+            } else {
+                codes[attribute.getId()] = new int[capacity];
+                dictionaries[attribute.getId()] = new ValueDictionary();
+            }
+        }
+    }
+
+    /**
+     * Start a new row, growing the columns when required.
+     *
+     * @return The index of the new row within the segment.
+     */
+    int addRow() {
+        if(size == capacity) {
+            capacity *= 2;
+            for(int i = 0; i < numericValues.length; i++) {
+                if(numericValues[i] != null) {
+                    numericValues[i] = Arrays.copyOf(numericValues[i], capacity);
+                } else {
+                    codes[i] = Arrays.copyOf(codes[i], capacity);
+                }
+            }
+        }
+        return size++;
+    }
+
+    /**
+     * Remove the row that was added last, such that its slot is reused by the next row.
+     */
+    void removeLastRow() {
+        size--;
+    }
+
+    /**
+     * Set the numeric value of the given attribute in the given row.
+     *
+     * @param attributeId The id of the attribute.
+     * @param row The row within the segment.
+     * @param value The value, NaN if missing.
+     */
+    void setNumeric(int attributeId, int row, double value) {
+        numericValues[attributeId][row] = value;
+    }
+
+    /**
+     * Set the value of the given attribute in the given row to the token the tokenizer is currently at.
+     * The token is looked up in the dictionary of this segment directly from the buffer.
+     *
+     * @param attributeId The id of the attribute.
+     * @param row The row within the segment.
+     * @param tokenizer The tokenizer positioned at the token.
+     */
+    void setToken(int attributeId, int row, ARFFTokenizer tokenizer) {
+        codes[attributeId][row] = tokenizer.isMissing() ? -1 : dictionaries[attributeId].getCode(
+                tokenizer.getBuffer(), tokenizer.getTokenStart(), tokenizer.getTokenEnd(), tokenizer.isEscaped());
+    }
+
+    /**
+     * Get the numeric value of the given attribute in the given row.
+     *
+     * @param attributeId The id of the attribute.
+     * @param row The row within the segment.
+     * @return The value, NaN if missing.
+     */
+    double getNumeric(int attributeId, int row) {
+        return numericValues[attributeId][row];
+    }
+
+    /**
+     * Get the value of the given attribute in the given row, converted to the type of the attribute.
+     * Dictionary tokens are converted only once per distinct token.
+     *
+     * @param attribute The attribute.
+     * @param row The row within the segment.
+     * @return The value, null if missing.
+     */
+    Object getValue(AbstractAttribute<?> attribute, int row) {
+        int id = attribute.getId();
+        if(numericValues[id] != null) {
+            double value = numericValues[id][row];
+            return Double.isNaN(value) ? null : value;
+        }
+
+        int code = codes[id][row];
+        if(code < 0) {
+            return null;
+        }
+
+        Object[] decoded = decodedValues[id];
+        if(decoded == null || code >= decoded.length) {
+            decoded = decodedValues[id] = decoded == null ? new Object[Math.max(16, code + 1)] : Arrays.copyOf(decoded, Math.max(decoded.length * 2, code + 1));
+        }
+        if(decoded[code] == null) {
+            ValueDictionary dictionary = dictionaries[id];
+            decoded[code] = attribute.convertValue(ARFFTokenizer.toString(dictionary.getKey(code), dictionary.isEscaped(code)));
+        }
+        return decoded[code];
+    }
+
+    /**
+     * Get the amount of rows in the segment.
+     *
+     * @return The amount of rows.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Pass the numeric values of the attribute to the encoder that chooses the encoding of the column.
+     *
+     * @param attributeId The id of the attribute.
+     * @param encoder The encoder of the column.
+     */
+    void addNumeric(int attributeId, NumericEncoder encoder) {
+        encoder.add(numericValues[attributeId], size);
+    }
+
+    /**
+     * Copy the numeric values of the attribute into the target column.
+     *
+     * @param attributeId The id of the attribute.
+     * @param target The target column.
+     * @param offset The row in the target column of the first row.
+     */
+    void copyNumeric(int attributeId, NumericColumn target, int offset) {
+        target.set(offset, numericValues[attributeId], size);
+    }
+
+    /**
+     * Get the dictionary of this segment for the given attribute.
+     *
+     * @param attributeId The id of the attribute.
+     * @return The dictionary holding the distinct tokens found in this segment.
+     */
+    ValueDictionary getDictionary(int attributeId) {
+        return dictionaries[attributeId];
+    }
+
+    /**
+     * Copy the dictionary codes of the attribute into the target buffer, translating them to the global dictionary.
+     *
+     * @param attributeId The id of the attribute.
+     * @param remap The global code of every code in the dictionary of this segment.
+     * @param target The target buffer.
+     * @param offset The position in the target buffer of the first row.
+     */
+    void copyCodes(int attributeId, int[] remap, IntBuffer target, int offset) {
+        int[] values = codes[attributeId];
+        for(int i = 0; i < size; i++) {
+            target.put(offset + i, values[i] < 0 ? -1 : remap[values[i]]);
+        }
+    }
+
+    /**
+     * Set the regression statistics of all rows that were parsed in this segment.
+     *
+     * @param statistics The statistics, including the rows that have been removed.
+     */
+    void setStatistics(SufficientStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * Get the regression statistics of all rows that were parsed in this segment.
+     *
+     * @return The statistics, null if no seed filter is used.
+     */
+    SufficientStatistics getStatistics() {
+        return statistics;
+    }
+}
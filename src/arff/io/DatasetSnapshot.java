@@ -0,0 +1,627 @@
+package arff.io;
+
+import arff.Dataset;
+import arff.attribute.AbstractAttribute;
+import arff.column.Column;
+import arff.column.ColumnStorage;
+import arff.column.NominalColumn;
+import arff.column.NumericColumn;
+import arff.column.NumericEncoder;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Binary columnar snapshot of a loaded dataset, which can be loaded through memory mapping instead of parsing the arff file.
+ * Next to the typed columns and nominal dictionaries, the snapshot holds the sorted indices and value ranges of every attribute
+ * that had been indexed when it was written, such that those attributes do not have to be sorted again. The other attributes
+ * are marked as not indexed, and are indexed on first use as usual. The snapshot is tied to its source file through a content hash.
+ */
+public class DatasetSnapshot {
+    //The first bytes of every snapshot file, "EMMSNAP1".
+    private static final long MAGIC = 0x454D4D534E415031L;
+
+    //The version of the format, where version 2 added the marker of whether a column holds an index.
+    private static final int VERSION = 2;
+
+    //The file extension used for snapshots that are created next to their source file.
+    public static final String EXTENSION = ".snapshot";
+
+    //The maximum amount of bytes that is mapped at once.
+    private static final int WINDOW_SIZE = 1 << 26;
+
+    //Column kinds.
+    private static final byte NUMERIC = 0;
+    private static final byte NOMINAL = 1;
+
+    //The path to the snapshot file.
+    private final String filePath;
+
+    //The channel the snapshot is read from.
+    private final FileChannel channel;
+
+    //The currently mapped part of the file.
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    //The position of the next byte to read.
+    private long position;
+
+    //The absolute path of the arff file the snapshot was created from.
+    private final String sourcePath;
+
+    //The content hash of the source file.
+    private final byte[] sourceHash;
+
+    //The relation name.
+    private final String relationName;
+
+    //The amount of rows.
+    private final int rowCount;
+
+    //The names, @attribute lines and storage state of each column in the source file.
+    private final List<String> columnNames = new ArrayList<>();
+    private final List<String> columnHeaders = new ArrayList<>();
+    private final List<Boolean> columnStored = new ArrayList<>();
+
+    //The loaded attributes and columns.
+    private final List<AbstractAttribute<?>> attributes = new ArrayList<>();
+    private Column[] columns;
+
+    //The storage the loaded columns and indices are kept in.
+    private ColumnStorage storage = ColumnStorage.getDefault();
+
+    /**
+     * Open the snapshot file, and read its header.
+     *
+     * @param filePath The path to the snapshot file.
+     * @throws IOException When the file cannot be read, or is not a snapshot.
+     */
+    public DatasetSnapshot(String filePath) throws IOException {
+        this.filePath = filePath;
+        this.channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+
+        if(readLong() != MAGIC || readInt() != VERSION) {
+            channel.close();
+            throw new IOException("The file " + filePath + " is not a supported dataset snapshot.");
+        }
+
+        sourcePath = readString();
+        sourceHash = readBytes();
+        relationName = readString();
+        rowCount = readInt();
+
+        int columnCount = readInt();
+        for(int i = 0; i < columnCount; i++) {
+            columnNames.add(readString());
+            columnHeaders.add(readString());
+            columnStored.add(readInt() == 1);
+        }
+    }
+
+    /**
+     * Whether the given file is a dataset snapshot.
+     *
+     * @param filePath The path to the file.
+     * @return True if the file starts with the snapshot magic number.
+     * @throws IOException When the file cannot be read.
+     */
+    public static boolean isSnapshot(String filePath) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(filePath))) {
+            return in.readLong() == MAGIC;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Get the path of the snapshot that belongs to the given arff file.
+     *
+     * @param sourcePath The path to the arff file.
+     * @return The path of the snapshot next to the arff file.
+     */
+    public static String getSnapshotPath(String sourcePath) {
+        return sourcePath + EXTENSION;
+    }
+
+    /**
+     * Calculate the content hash of the given file.
+     *
+     * @param filePath The path to the file.
+     * @return The SHA-256 hash of the contents of the file.
+     * @throws IOException When the file cannot be read.
+     */
+    public static byte[] hash(String filePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+            while(channel.read(buffer) > 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by this platform.", e);
+        }
+    }
+
+    /**
+     * Whether the snapshot can be used in place of the source file.
+     *
+     * @param hash The current content hash of the source file.
+     * @param blacklist The blacklisted attributes.
+     * @return True if the snapshot was created from the same content, and contains all attributes that are not blacklisted.
+     */
+    public boolean isValidFor(byte[] hash, HashSet<String> blacklist) {
+        return Arrays.equals(hash, sourceHash) && covers(blacklist);
+    }
+
+    /**
+     * Whether the snapshot contains all attributes that are not blacklisted.
+     *
+     * @param blacklist The blacklisted attributes.
+     * @return True if no attribute that is needed is missing.
+     */
+    public boolean covers(HashSet<String> blacklist) {
+        for(int i = 0; i < columnNames.size(); i++) {
+            if(!columnStored.get(i) && !blacklist.contains(columnNames.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Keep the loaded columns and the sorted indices of the attributes in the given storage.
+     *
+     * @param storage The storage to use, the heap storage by default.
+     */
+    public void setStorage(ColumnStorage storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * Load the attributes and columns from the snapshot, and restore the indices of the attributes.
+     * The attributes are created in the same order as the arff loader does, such that they receive the same ids and primes.
+     *
+     * @param countNullAsZero Whether we count null values as zero in numerical cases.
+     * @param blacklist The blacklisted attributes.
+     * @throws Exception Throws an exception if the snapshot cannot be loaded.
+     */
+    public void load(boolean countNullAsZero, HashSet<String> blacklist) throws Exception {
+        //Create all attributes first.
+        List<AbstractAttribute<?>> fileColumns = new ArrayList<>();
+        int attributeCounter = 0;
+        for(String header : columnHeaders) {
+            AbstractAttribute<?> attribute = AbstractAttribute.getAttribute(header, attributeCounter, countNullAsZero);
+            if(!blacklist.contains(attribute.getName())) {
+                attributes.add(attribute);
+                fileColumns.add(attribute);
+                attributeCounter++;
+            } else {
+                System.out.println("Skipped adding the attribute " + attribute.getName());
+                fileColumns.add(null);
+            }
+        }
+
+        //Read the columns and the indices.
+        columns = new Column[attributes.size()];
+        for(int i = 0; i < fileColumns.size(); i++) {
+            if(columnStored.get(i)) {
+                readColumn(fileColumns.get(i));
+            }
+        }
+        close();
+    }
+
+    /**
+     * Read the data and the index of a single attribute.
+     *
+     * @param attribute The attribute the data belongs to, null if the data should be skipped.
+     * @throws IOException When the file cannot be read.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> void readColumn(AbstractAttribute<T> attribute) throws IOException {
+        boolean skip = attribute == null;
+        int kind = readInt();
+
+        //Read the values of the column.
+        Object[] dictionary = null;
+        if(kind == NUMERIC) {
+            if(skip) {
+                position += 8L * rowCount;
+            } else if(storage.getNumericMode() == NumericEncoder.Mode.DOUBLE) {
+                DoubleBuffer values = storage.allocateDoubles(rowCount);
+                readDoubles(values);
+                columns[attribute.getId()] = new NumericColumn(values);
+            } else {
+                //The snapshot holds doubles, which are encoded again as the encodings that are allowed may have changed.
+                double[] values = readDoubles(rowCount);
+                NumericEncoder encoder = new NumericEncoder(storage.getNumericMode());
+                encoder.add(values, rowCount);
+                NumericColumn column = encoder.allocate(rowCount, storage);
+                column.set(0, values, rowCount);
+                columns[attribute.getId()] = column;
+            }
+        } else {
+            dictionary = new Object[readInt()];
+            for(int code = 0; code < dictionary.length; code++) {
+                String value = readString();
+                dictionary[code] = skip ? null : attribute.convertValue(value);
+            }
+            if(skip) {
+                position += 4L * rowCount;
+            } else {
+                IntBuffer codes = storage.allocateInts(rowCount);
+                readInts(codes);
+                columns[attribute.getId()] = new NominalColumn(codes, dictionary);
+            }
+        }
+
+        //Read the index of the column, if it was indexed when the snapshot was written.
+        if(readInt() == 0) {
+            return;
+        }
+        int nullStartIndex = readInt();
+        if(skip) {
+            position += 4L * rowCount;
+            int distinct = readInt();
+            position += (kind == NUMERIC ? 8L : 4L) * distinct + 8L * distinct;
+            return;
+        }
+        IntBuffer sortedIndices = storage.allocateInts(rowCount);
+        readInts(sortedIndices);
+        int distinct = readInt();
+        List<T> sortedValues = new ArrayList<>(distinct);
+        if(kind == NUMERIC) {
+            for(double value : readDoubles(distinct)) {
+                sortedValues.add((T) Double.valueOf(value));
+            }
+        } else {
+            for(int code : readInts(distinct)) {
+                sortedValues.add((T) dictionary[code]);
+            }
+        }
+        int[] valueStarts = readInts(distinct);
+        int[] valueEnds = readInts(distinct);
+
+        attribute.restoreIndex(sortedIndices, sortedValues, valueStarts, valueEnds, nullStartIndex);
+    }
+
+    /**
+     * Close the snapshot file.
+     *
+     * @throws IOException When the file cannot be closed.
+     */
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+    /**
+     * Write a snapshot of the given dataset.
+     *
+     * @param filePath The path of the snapshot file.
+     * @param sourcePath The path to the arff file the dataset was loaded from.
+     * @param sourceHash The content hash of the arff file.
+     * @param attributeHeaders The @attribute lines of all columns in the arff file, including the blacklisted ones.
+     * @param dataset The dataset, of which all attributes have been initialized. Only the indexes that have been built are written.
+     * @throws IOException When the snapshot cannot be written.
+     */
+    public static void write(String filePath, String sourcePath, byte[] sourceHash, List<String> attributeHeaders, Dataset dataset) throws IOException {
+        //Find the attribute belonging to each column.
+        Map<String, AbstractAttribute<?>> attributeByName = new HashMap<>();
+        //Replacements created by the cardinality policy share the name of the original, which comes first.
+        for(AbstractAttribute<?> attribute : dataset.getAttributes()) {
+            attributeByName.putIfAbsent(attribute.getName(), attribute);
+        }
+        List<AbstractAttribute<?>> fileColumns = new ArrayList<>();
+        for(String header : attributeHeaders) {
+            fileColumns.add(attributeByName.get(getName(header)));
+        }
+
+        //Write to a temporary file first, such that concurrent runs never see a partial snapshot.
+        File temporary = new File(filePath + ".tmp");
+        int rowCount = dataset.getInstances().size();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary), 1 << 16))) {
+            out.writeLong(MAGIC);
+            out.writeInt(VERSION);
+            writeString(out, new File(sourcePath).getAbsolutePath());
+            out.writeInt(sourceHash.length);
+            out.write(sourceHash);
+            writeString(out, dataset.getRelationName());
+            out.writeInt(rowCount);
+
+            out.writeInt(attributeHeaders.size());
+            for(int i = 0; i < attributeHeaders.size(); i++) {
+                writeString(out, getName(attributeHeaders.get(i)));
+                writeString(out, attributeHeaders.get(i));
+                out.writeInt(fileColumns.get(i) != null ? 1 : 0);
+            }
+
+            for(AbstractAttribute<?> attribute : fileColumns) {
+                if(attribute != null) {
+                    writeColumn(out, attribute, dataset.getColumns()[attribute.getId()], rowCount);
+                }
+            }
+        }
+        Files.move(temporary.toPath(), Paths.get(filePath), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Write the data of a single attribute, and its index if it has been built.
+     *
+     * @param out The stream to write to.
+     * @param attribute The initialized attribute.
+     * @param column The column holding the values of the attribute.
+     * @param rowCount The amount of rows.
+     * @throws IOException When the data cannot be written.
+     */
+    private static void writeColumn(DataOutputStream out, AbstractAttribute<?> attribute, Column column, int rowCount) throws IOException {
+        Map<Object, Integer> codes = new HashMap<>();
+        if(column instanceof NumericColumn) {
+            out.writeInt(NUMERIC);
+            NumericColumn numericColumn = (NumericColumn) column;
+            for(int row = 0; row < rowCount; row++) {
+                out.writeDouble(numericColumn.getDouble(row));
+            }
+        } else {
+            out.writeInt(NOMINAL);
+            NominalColumn nominalColumn = (NominalColumn) column;
+            Object[] dictionary = nominalColumn.getDictionary();
+            out.writeInt(dictionary.length);
+            for(int code = 0; code < dictionary.length; code++) {
+                writeString(out, String.valueOf(dictionary[code]));
+                codes.put(dictionary[code], code);
+            }
+            for(int row = 0; row < rowCount; row++) {
+                out.writeInt(nominalColumn.getCode(row));
+            }
+        }
+
+        //Only write the indices that have been built, as building them here would index every attribute.
+        if(!attribute.isIndexed()) {
+            out.writeInt(0);
+            return;
+        }
+        out.writeInt(1);
+        out.writeInt(attribute.getNullStartIndex());
+        IntBuffer sortedIndices = attribute.getSortedIndices();
+        for(int i = 0; i < rowCount; i++) {
+            out.writeInt(sortedIndices.get(i));
+        }
+
+        Map<?, Integer> starts = attribute.getValueIndicesStart();
+        Map<?, Integer> ends = attribute.getValueIndicesEnd();
+        out.writeInt(starts.size());
+        for(Object value : starts.keySet()) {
+            if(column instanceof NumericColumn) {
+                out.writeDouble((Double) value);
+            } else {
+                out.writeInt(codes.get(value));
+            }
+        }
+        for(Object value : starts.keySet()) {
+            out.writeInt(starts.get(value));
+        }
+        for(Object value : starts.keySet()) {
+            out.writeInt(ends.get(value));
+        }
+    }
+
+    /**
+     * Get the name of the attribute defined in the given @attribute line.
+     *
+     * @param header The @attribute line.
+     * @return The name of the attribute.
+     * @throws IOException When the line does not define an attribute.
+     */
+    private static String getName(String header) throws IOException {
+        try {
+            return AbstractAttribute.getAttributeName(header);
+        } catch (Exception e) {
+            throw new IOException("Invalid attribute definition " + header + ".", e);
+        }
+    }
+
+    /**
+     * Write a string as its length followed by its UTF-8 bytes.
+     *
+     * @param out The stream to write to.
+     * @param value The string to write.
+     * @throws IOException When the string cannot be written.
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Make sure that the next n bytes are mapped, and position the window at the current position.
+     *
+     * @param n The amount of bytes that should be available, at most the window size.
+     * @throws IOException When the file cannot be mapped.
+     */
+    private void ensure(int n) throws IOException {
+        if(window == null || position < windowStart || position + n > windowStart + window.limit()) {
+            windowStart = position;
+            long size = Math.min(WINDOW_SIZE, channel.size() - position);
+            if(size < n) {
+                throw new EOFException("Unexpected end of the snapshot " + filePath + ".");
+            }
+            window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, size);
+        }
+        window.position((int) (position - windowStart));
+    }
+
+    /**
+     * Read a single integer.
+     *
+     * @return The integer at the current position.
+     * @throws IOException When the file cannot be read.
+     */
+    private int readInt() throws IOException {
+        ensure(4);
+        position += 4;
+        return window.getInt();
+    }
+
+    /**
+     * Read a single long.
+     *
+     * @return The long at the current position.
+     * @throws IOException When the file cannot be read.
+     */
+    private long readLong() throws IOException {
+        ensure(8);
+        position += 8;
+        return window.getLong();
+    }
+
+    /**
+     * Read a length-prefixed array of bytes.
+     *
+     * @return The bytes at the current position.
+     * @throws IOException When the file cannot be read.
+     */
+    private byte[] readBytes() throws IOException {
+        byte[] bytes = new byte[readInt()];
+        ensure(bytes.length);
+        window.get(bytes);
+        position += bytes.length;
+        return bytes;
+    }
+
+    /**
+     * Read a length-prefixed UTF-8 string.
+     *
+     * @return The string at the current position.
+     * @throws IOException When the file cannot be read.
+     */
+    private String readString() throws IOException {
+        return new String(readBytes(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Read an array of integers, mapping new windows when required.
+     *
+     * @param count The amount of integers.
+     * @return The integers at the current position.
+     * @throws IOException When the file cannot be read.
+     */
+    private int[] readInts(int count) throws IOException {
+        int[] values = new int[count];
+        readInts(IntBuffer.wrap(values));
+        return values;
+    }
+
+    /**
+     * Fill a buffer of integers, mapping new windows when required.
+     *
+     * @param target The buffer to fill up to its capacity, of which the position is not changed.
+     * @throws IOException When the file cannot be read.
+     */
+    private void readInts(IntBuffer target) throws IOException {
+        IntBuffer view = target.duplicate();
+        view.clear();
+        while(view.hasRemaining()) {
+            ensure(4);
+            IntBuffer source = window.asIntBuffer();
+            int n = Math.min(view.remaining(), source.remaining());
+            source.limit(n);
+            view.put(source);
+            position += 4L * n;
+        }
+    }
+
+    /**
+     * Read an array of doubles, mapping new windows when required.
+     *
+     * @param count The amount of doubles.
+     * @return The doubles at the current position.
+     * @throws IOException When the file cannot be read.
+     */
+    private double[] readDoubles(int count) throws IOException {
+        double[] values = new double[count];
+        readDoubles(DoubleBuffer.wrap(values));
+        return values;
+    }
+
+    /**
+     * Fill a buffer of doubles, mapping new windows when required.
+     *
+     * @param target The buffer to fill up to its capacity, of which the position is not changed.
+     * @throws IOException When the file cannot be read.
+     */
+    private void readDoubles(DoubleBuffer target) throws IOException {
+        DoubleBuffer view = target.duplicate();
+        view.clear();
+        while(view.hasRemaining()) {
+            ensure(8);
+            DoubleBuffer source = window.asDoubleBuffer();
+            int n = Math.min(view.remaining(), source.remaining());
+            source.limit(n);
+            view.put(source);
+            position += 8L * n;
+        }
+    }
+
+    /**
+     * Get the absolute path of the arff file the snapshot was created from.
+     *
+     * @return The path to the source file.
+     */
+    public String getSourcePath() {
+        return sourcePath;
+    }
+
+    /**
+     * Get the relation name.
+     *
+     * @return The relation name, as denoted with @relation name.
+     */
+    public String getRelationName() {
+        return relationName;
+    }
+
+    /**
+     * Get the attributes that have been loaded.
+     *
+     * @return The list of attributes that are not blacklisted.
+     */
+    public List<AbstractAttribute<?>> getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * Get the loaded columns.
+     *
+     * @return The columns, indexed by attribute id.
+     */
+    public Column[] getColumns() {
+        return columns;
+    }
+
+    /**
+     * Get the amount of rows.
+     *
+     * @return The amount of rows.
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+}
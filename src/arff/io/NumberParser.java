@@ -0,0 +1,129 @@
+package arff.io;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Helper class that parses numeric values directly from the raw bytes of a file, without creating a string first.
+ */
+public class NumberParser {
+    //The exactly representable powers of ten, used by the fast path.
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    //The largest mantissa that can be represented exactly by a double.
+    private static final long MAXIMUM_EXACT_MANTISSA = 1L << 53;
+
+    /**
+     * Parse the double value in the range [start, end) of the buffer.
+     * Values with at most 15 significant digits and a small exponent are converted exactly without allocations,
+     * all other values fall back to {@link Double#parseDouble(String)}, such that the result is always correctly rounded.
+     *
+     * @param buffer The buffer to read from.
+     * @param start The index of the first byte of the value.
+     * @param end The index after the last byte of the value.
+     * @return The parsed value.
+     * @throws NumberFormatException When the range does not contain a number.
+     */
+    public static double parseDouble(byte[] buffer, int start, int end) {
+        //Trim the surrounding whitespace.
+        while(start < end && buffer[start] <= ' ') start++;
+        while(end > start && buffer[end - 1] <= ' ') end--;
+
+        int i = start;
+        boolean negative = false;
+        if(i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+            negative = buffer[i] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean seenDigit = false;
+        boolean seenDot = false;
+        for(; i < end; i++) {
+            byte b = buffer[i];
+            if(b >= '0' && b <= '9') {
+                seenDigit = true;
+                if(mantissa == 0 && b == '0') {
+                    //Leading zeros are not significant.
+                    if(seenDot) exponent--;
+                    continue;
+                }
+                if(++digits > 15) {
+                    return parseDoubleSlow(buffer, start, end);
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                if(seenDot) exponent--;
+            } else if(b == '.' && !seenDot) {
+                seenDot = true;
+            } else {
+                break;
+            }
+        }
+
+        if(!seenDigit) {
+            return parseDoubleSlow(buffer, start, end);
+        }
+
+        //Read the exponent, if any.
+        if(i < end) {
+            byte b = buffer[i];
+            if(b != 'e' && b != 'E') {
+                return parseDoubleSlow(buffer, start, end);
+            }
+            i++;
+            boolean negativeExponent = false;
+            if(i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+                negativeExponent = buffer[i] == '-';
+                i++;
+            }
+            if(i == end) {
+                return parseDoubleSlow(buffer, start, end);
+            }
+            int explicitExponent = 0;
+            for(; i < end; i++) {
+                b = buffer[i];
+                if(b < '0' || b > '9' || explicitExponent > 1000) {
+                    return parseDoubleSlow(buffer, start, end);
+                }
+                explicitExponent = explicitExponent * 10 + (b - '0');
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+
+        if(mantissa > MAXIMUM_EXACT_MANTISSA || exponent < -22 || exponent > 22) {
+            return parseDoubleSlow(buffer, start, end);
+        }
+
+        //Both the mantissa and the power of ten are exact, so a single operation gives a correctly rounded result.
+        double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parse the value through the default java conversion.
+     *
+     * @param buffer The buffer to read from.
+     * @param start The index of the first byte of the value.
+     * @param end The index after the last byte of the value.
+     * @return The parsed value.
+     */
+    private static double parseDoubleSlow(byte[] buffer, int start, int end) {
+        return Double.parseDouble(toString(buffer, start, end));
+    }
+
+    /**
+     * Convert the range [start, end) of the buffer to a string.
+     *
+     * @param buffer The buffer to read from.
+     * @param start The index of the first byte.
+     * @param end The index after the last byte.
+     * @return The UTF-8 decoded string.
+     */
+    public static String toString(byte[] buffer, int start, int end) {
+        return new String(buffer, start, end - start, StandardCharsets.UTF_8);
+    }
+}
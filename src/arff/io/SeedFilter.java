@@ -0,0 +1,186 @@
+package arff.io;
+
+import arff.attribute.AbstractAttribute;
+import arff.attribute.Constraint;
+import arff.attribute.NumericAttribute;
+import group.Comparison;
+import util.linearalgebra.SufficientStatistics;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Filter that applies the constraints of the seed group while the rows are parsed, such that rows outside of the seed
+ * are never materialized. The regression statistics of all rows are accumulated on the fly, as the reference model
+ * of the Cook's distance is still based on the full dataset.
+ */
+public class SeedFilter {
+    //The names of the attributes within the seed.
+    private final String[] seedAttributes;
+
+    //The comparisons within the seed.
+    private final Comparison[] seedComparisons;
+
+    //The values within the seed.
+    private final String[] seedTargets;
+
+    //The names of the y and x targets of the regression model.
+    private final String yTarget;
+    private final String[] xTargets;
+
+    //The seed constraints, bound to the loaded attributes.
+    private Constraint<?>[] constraints;
+
+    //The ids of the y and x target attributes.
+    private int yTargetId;
+    private int[] xTargetIds;
+
+    /**
+     * Create a filter for the given seed.
+     *
+     * @param yTarget The numeric y target.
+     * @param xTargets  The numeric x targets.
+     * @param seedAttributes  The attributes that are present within the seed.
+     * @param seedComparisons  The attribute comparisons that are present within the seed.
+     * @param seedTargets  The attribute values that are present within the seed.
+     */
+    public SeedFilter(String yTarget, String[] xTargets, String[] seedAttributes, Comparison[] seedComparisons, String[] seedTargets) {
+        this.yTarget = yTarget;
+        this.xTargets = xTargets;
+        this.seedAttributes = seedAttributes;
+        this.seedComparisons = seedComparisons;
+        this.seedTargets = seedTargets;
+    }
+
+    /**
+     * Bind the seed and the targets to the attributes read from the header.
+     *
+     * @param attributes The attributes that are loaded.
+     * @return True if every seed constraint can be evaluated on a single row, false otherwise.
+     */
+    boolean bind(List<AbstractAttribute<?>> attributes) {
+        AbstractAttribute<?> y = find(yTarget, attributes);
+        if(!(y instanceof NumericAttribute)) return false;
+        yTargetId = y.getId();
+
+        xTargetIds = new int[xTargets.length];
+        for(int i = 0; i < xTargets.length; i++) {
+            AbstractAttribute<?> x = find(xTargets[i], attributes);
+            if(!(x instanceof NumericAttribute)) return false;
+            xTargetIds[i] = x.getId();
+        }
+
+        constraints = new Constraint<?>[seedAttributes.length];
+        for(int i = 0; i < seedAttributes.length; i++) {
+            AbstractAttribute<?> attribute = find(seedAttributes[i], attributes);
+            if(attribute == null || !Arrays.asList(attribute.getComparisons()).contains(seedComparisons[i])) return false;
+            constraints[i] = createConstraint(attribute, seedComparisons[i], seedTargets[i]);
+        }
+        return constraints.length > 0;
+    }
+
+    /**
+     * Find the attribute with the given name.
+     *
+     * @param name The name of the attribute.
+     * @param attributes The list of all attributes.
+     * @return The attribute, null if it is not loaded.
+     */
+    private static AbstractAttribute<?> find(String name, List<AbstractAttribute<?>> attributes) {
+        for(AbstractAttribute<?> attribute : attributes) {
+            if(attribute.getName().equals(name)) {
+                return attribute;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Create the constraint of a seed attribute, which is only used to check rows and thus has no primes.
+     *
+     * @param attribute The seed attribute.
+     * @param comparison The comparison of the seed.
+     * @param targetValue The target value of the seed.
+     * @return The constraint.
+     */
+    private static <T> Constraint<T> createConstraint(AbstractAttribute<T> attribute, Comparison comparison, String targetValue) {
+        return new Constraint<>(attribute.convertValue(targetValue), comparison, attribute, 0, 0);
+    }
+
+    /**
+     * Create empty statistics for the regression model.
+     *
+     * @return Statistics with the degrees of freedom of the regression model.
+     */
+    SufficientStatistics createStatistics() {
+        return new SufficientStatistics(xTargetIds.length + 1);
+    }
+
+    /**
+     * Add the regression values of the row to the statistics.
+     *
+     * @param segment The segment holding the row.
+     * @param row The row within the segment.
+     * @param x A buffer for the x values of the row.
+     * @param statistics The statistics to add the row to.
+     */
+    void accumulate(ColumnSegment segment, int row, double[] x, SufficientStatistics statistics) {
+        for(int i = 0; i < xTargetIds.length; i++) {
+            x[i] = segment.getNumeric(xTargetIds[i], row);
+        }
+        statistics.add(segment.getNumeric(yTargetId, row), x);
+    }
+
+    /**
+     * Whether the row satisfies all seed constraints.
+     * The outcome is the same as membership of the indices subset of the constraints, including the handling of nulls.
+     *
+     * @param segment The segment holding the row.
+     * @param row The row within the segment.
+     * @return True if the row is part of the seed group.
+     */
+    boolean accepts(ColumnSegment segment, int row) {
+        for(Constraint<?> constraint : constraints) {
+            AbstractAttribute<?> attribute = constraint.getAttribute();
+            Object value = segment.getValue(attribute, row);
+            Comparison comparison = constraint.getComparison();
+
+            boolean contained;
+            if(constraint.getValue() == null) {
+                //The null case only supports equality checks.
+                contained = (comparison == Comparison.EQ) == (value == null);
+            } else if(value == null) {
+                //Nulls are sorted last, and are thus only part of the inequality range, unless counted as zero.
+                contained = comparison == Comparison.NEQ || (attribute instanceof NumericAttribute && contains(constraint, value));
+            } else {
+                contained = contains(constraint, value);
+            }
+
+            if(!contained) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check whether the value of a row satisfies the constraint.
+     *
+     * @param constraint The constraint.
+     * @param value The value of the row, of the type of the attribute of the constraint.
+     * @return True if the value satisfies the constraint.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> boolean contains(Constraint<T> constraint, Object value) {
+        return constraint.getAttribute().contains(constraint, (T) value);
+    }
+
+    /**
+     * Get the amount of x targets.
+     *
+     * @return The amount of x values of a row.
+     */
+    int getXTargetCount() {
+        return xTargetIds.length;
+    }
+}
@@ -0,0 +1,154 @@
+package arff.io;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash table that maps the raw bytes of a token to a dictionary code.
+ * Lookups of known tokens are done directly on the buffer, without creating intermediate strings.
+ */
+class ValueDictionary {
+    //The hash table, holding code + 1 for every used slot and 0 for empty slots.
+    private int[] table = new int[64];
+
+    //The raw bytes of every entry, indexed by code.
+    private byte[][] keys = new byte[16][];
+
+    //The hashes of every entry, indexed by code.
+    private int[] hashes = new int[16];
+
+    //Whether the raw bytes of the entry contain escape characters, indexed by code.
+    private boolean[] escaped = new boolean[16];
+
+    //The amount of entries.
+    private int size;
+
+    /**
+     * Get the code of the token in the range [start, end) of the buffer, adding it when it is not known yet.
+     *
+     * @param buffer The buffer containing the token.
+     * @param start The index of the first byte of the token.
+     * @param end The index after the last byte of the token.
+     * @param isEscaped Whether the token contains escape characters.
+     * @return The dictionary code of the token.
+     */
+    int getCode(byte[] buffer, int start, int end, boolean isEscaped) {
+        int hash = hash(buffer, start, end);
+        int mask = table.length - 1;
+        for(int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if(entry == 0) {
+                //Unknown token, so copy its bytes once and register it.
+                int code = add(buffer, start, end, hash, isEscaped);
+                table[slot] = code + 1;
+                if(size * 2 > table.length) {
+                    rehash();
+                }
+                return code;
+            }
+            if(hashes[entry - 1] == hash && equals(keys[entry - 1], buffer, start, end)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    /**
+     * Get the amount of entries.
+     *
+     * @return The amount of distinct tokens in the dictionary.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Get the raw bytes of the given entry.
+     *
+     * @param code The code of the entry.
+     * @return The raw bytes of the token.
+     */
+    byte[] getKey(int code) {
+        return keys[code];
+    }
+
+    /**
+     * Whether the raw bytes of the given entry contain escape characters.
+     *
+     * @param code The code of the entry.
+     * @return True if the escape characters should be removed when converting the token.
+     */
+    boolean isEscaped(int code) {
+        return escaped[code];
+    }
+
+    /**
+     * Register a new entry.
+     *
+     * @param buffer The buffer containing the token.
+     * @param start The index of the first byte of the token.
+     * @param end The index after the last byte of the token.
+     * @param hash The hash of the token.
+     * @param isEscaped Whether the token contains escape characters.
+     * @return The code of the new entry.
+     */
+    private int add(byte[] buffer, int start, int end, int hash, boolean isEscaped) {
+        if(size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+            escaped = Arrays.copyOf(escaped, size * 2);
+        }
+        keys[size] = Arrays.copyOfRange(buffer, start, end);
+        hashes[size] = hash;
+        escaped[size] = isEscaped;
+        return size++;
+    }
+
+    /**
+     * Double the size of the hash table.
+     */
+    private void rehash() {
+        table = new int[table.length * 2];
+        int mask = table.length - 1;
+        for(int code = 0; code < size; code++) {
+            int slot = hashes[code] & mask;
+            while(table[slot] != 0) slot = (slot + 1) & mask;
+            table[slot] = code + 1;
+        }
+    }
+
+    /**
+     * Calculate the hash of the token.
+     *
+     * @param buffer The buffer containing the token.
+     * @param start The index of the first byte of the token.
+     * @param end The index after the last byte of the token.
+     * @return A well-mixed hash of the bytes.
+     */
+    private static int hash(byte[] buffer, int start, int end) {
+        int hash = 0x811c9dc5;
+        for(int i = start; i < end; i++) {
+            hash = (hash ^ buffer[i]) * 0x01000193;
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Whether the key is equal to the token.
+     *
+     * @param key The raw bytes of an entry.
+     * @param buffer The buffer containing the token.
+     * @param start The index of the first byte of the token.
+     * @param end The index after the last byte of the token.
+     * @return True if the bytes are equal.
+     */
+    private static boolean equals(byte[] key, byte[] buffer, int start, int end) {
+        if(key.length != end - start) {
+            return false;
+        }
+        for(int i = 0; i < key.length; i++) {
+            if(key[i] != buffer[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -2,8 +2,11 @@ package group;
 
 import arff.Dataset;
 import arff.attribute.Constraint;
+import search.result.EvaluationCache;
 import search.result.RegressionModelEvaluation;
 import sun.reflect.generics.reflectiveObjects.NotImplementedException;
+import util.linearalgebra.CholeskyDecomposition;
+import util.linearalgebra.SufficientStatistics;
 
 import java.math.BigInteger;
 import java.util.*;
@@ -11,7 +14,7 @@ import java.util.stream.IntStream;
 
 public class Group implements Comparable<Group> {
     //The constraints used within the group.
-    private final LinkedList<Constraint> constraints;
+    private final LinkedList<Constraint<?>> constraints;
 
     //The product of all primes within the group.
     private final BigInteger product;
@@ -39,7 +42,7 @@ public class Group implements Comparable<Group> {
      * @param group The group to extend.
      * @param extendedProduct The pre-calculated new product of the group.
      */
-    private Group(Constraint constraint, Group group, BigInteger extendedProduct) {
+    private Group(Constraint<?> constraint, Group group, BigInteger extendedProduct) {
         this.constraints = new LinkedList<>(group.getConstraints());
         this.constraints.add(constraint);
 
@@ -52,7 +55,7 @@ public class Group implements Comparable<Group> {
      *
      * @return The set of constraints that define the group.
      */
-    public LinkedList<Constraint> getConstraints() {
+    public LinkedList<Constraint<?>> getConstraints() {
         return constraints;
     }
 
@@ -73,7 +76,7 @@ public class Group implements Comparable<Group> {
      * @param encounteredGroups The products of the groups we have already encountered.
      * @return A new group containing the constraint if that addition is valid, {@code null} otherwise.
      */
-    public Group extendGroupWith(Constraint constraint, HashSet<BigInteger> encounteredGroups) {
+    public Group extendGroupWith(Constraint<?> constraint, HashSet<BigInteger> encounteredGroups) {
         BigInteger extendedProduct = this.product.multiply(constraint.getProduct());
 
         //Check whether the extension would be valid or not.
@@ -89,6 +92,22 @@ public class Group implements Comparable<Group> {
         return null;
     }
 
+    /**
+     * Extend the specified group by the constraint, without checking whether the resulting group has been seen before.
+     * This is meant for searches that enumerate every combination of constraints only once.
+     *
+     * @param constraint The constraint to extend by.
+     * @return A new group containing the constraint if the group does not have the same value or comparison yet, {@code null} otherwise.
+     */
+    public Group extendGroupWith(Constraint<?> constraint) {
+        //The same checks as for the other extensions, except for the products that have been encountered.
+        if(this.product.mod(BigInteger.valueOf(constraint.getValuePrime())).equals(BigInteger.ZERO) ||
+                this.product.mod(BigInteger.valueOf(constraint.getComparisonPrime())).equals(BigInteger.ZERO)) {
+            return null;
+        }
+        return new Group(constraint, this, this.product.multiply(constraint.getProduct()));
+    }
+
     /**
      * Whether the extension is valid or not.
      *
@@ -97,7 +116,7 @@ public class Group implements Comparable<Group> {
      * @param extendedProduct The pre-calculated new product of the extended group.
      * @return True if the group itself will not have the same constraint twice, and the resulting group has not been seen yet.
      */
-    private boolean isValidExtension(Constraint constraint, HashSet<BigInteger> encounteredGroups, BigInteger extendedProduct) {
+    private boolean isValidExtension(Constraint<?> constraint, HashSet<BigInteger> encounteredGroups, BigInteger extendedProduct) {
         //Return null if the group is invalid.
         // - Duplicate value, as having the same value with different comparators are not helpful.
         // - Duplicate comparator, as having two duplicate comparators will not provide improvements.
@@ -121,7 +140,7 @@ public class Group implements Comparable<Group> {
         List<Set<Integer>> lists = new ArrayList<>();
 
         //Get all the indice subset lists.
-        for(Constraint constraint : constraints) {
+        for(Constraint<?> constraint : constraints) {
             lists.add(constraint.getIndicesSubsetForValue());
         }
 
@@ -172,25 +191,19 @@ public class Group implements Comparable<Group> {
      * @return The evaluation value according to the quality measure.
      */
     public double evaluateQuality(Dataset dataset, Set<Integer> seedIndices, double minimumCoverage, double maximumCoverage, int previousCoverage) {
-        //Last addition:
-        Constraint newConstraint = constraints.peekLast();
-
-        //Get the intersection of all the indices lists.
-        //We ADD the new values to this list, instead of overwriting it, as we do not want to edit the original.
-        //Add all the indices to a new instance, this way we will not edit the original lists.
-        Set<Integer> indices = new HashSet<>();
+        //When the dataset is evaluated chunk by chunk, the indices are never collected.
+        if(dataset.getChunkSize() > 0) {
+            SufficientStatistics statistics = new SufficientStatistics(dataset.getXTargets().length + 1);
+            EvaluationCache.Fingerprint fingerprint = dataset.getChunkedStatistics(constraints, statistics);
+            return evaluateQuality(dataset, fingerprint, statistics, minimumCoverage, maximumCoverage, previousCoverage);
+        }
 
-        //Make sure that the passed list of indices is not null.
-        if(seedIndices != null) {
-            //We start with the seed indices, as these will be smaller than the individual attribute's value
-            //in most of the cases. As addAll iterates over the original list, less iterations will be performed.
-            indices.addAll(seedIndices);
+        //Last addition:
+        Constraint<?> newConstraint = constraints.peekLast();
 
-            //Do the intersection.
-            indices.retainAll(newConstraint.getIndicesSubsetForValue());
-        } else {
-            indices.addAll(newConstraint.getIndicesSubsetForValue());
-        }
+        //Get the intersection of the seed with the new constraint, in a new set such that the seed is not edited.
+        //The planner probes the seed instances instead of materializing the constraint when that is cheaper.
+        Set<Integer> indices = dataset.getIntersectionPlanner().intersect(seedIndices, newConstraint);
 
         //The coverage is the size of the list.
         coverage = indices.size();
@@ -207,6 +220,42 @@ public class Group implements Comparable<Group> {
         return evaluation.evaluationValue;
     }
 
+    /**
+     * Evaluate the quality of this group, given the regression statistics of the instances it covers.
+     *
+     * @param dataset The dataset to take the data from.
+     * @param fingerprint The fingerprint of the instances within the group, null if evaluations are not cached.
+     * @param statistics The regression statistics of the instances within the group.
+     * @return The evaluation value according to the quality measure.
+     */
+    public double evaluateQuality(Dataset dataset, EvaluationCache.Fingerprint fingerprint, SufficientStatistics statistics, double minimumCoverage, double maximumCoverage, int previousCoverage) {
+        return evaluateQuality(dataset, fingerprint, statistics, null, null, minimumCoverage, maximumCoverage, previousCoverage);
+    }
+
+    /**
+     * Evaluate the quality of this group, given the regression statistics of the instances it covers and the
+     * instances that have been removed from the seed.
+     *
+     * @param dataset The dataset to take the data from.
+     * @param fingerprint The fingerprint of the instances within the group, null if evaluations are not cached.
+     * @param statistics The regression statistics of the instances within the group.
+     * @param seedDecomposition The decomposition of the gram matrix of the seed, null if not available.
+     * @param removedIndices The indices of the seed that are not part of the group, null if not available.
+     * @return The evaluation value according to the quality measure.
+     */
+    public double evaluateQuality(Dataset dataset, EvaluationCache.Fingerprint fingerprint, SufficientStatistics statistics, CholeskyDecomposition seedDecomposition, Collection<Integer> removedIndices, double minimumCoverage, double maximumCoverage, int previousCoverage) {
+        //The coverage is the amount of rows within the statistics.
+        coverage = (int) statistics.getN();
+
+        //Use the same bounds as when the indices are evaluated.
+        if(coverage < minimumCoverage || coverage > maximumCoverage || previousCoverage == coverage) {
+            return -Double.MAX_VALUE;
+        }
+
+        evaluation = dataset.getStatisticsEvaluation(fingerprint, statistics, seedDecomposition, removedIndices);
+        return evaluation.evaluationValue;
+    }
+
     /**
      * Compares this object with the specified object for order.  Returns a
      * negative integer, zero, or a positive integer as this object is less
@@ -290,7 +339,7 @@ public class Group implements Comparable<Group> {
 
         String result = "";
         boolean isFirst = true;
-        for(Constraint constraint : constraints) {
+        for(Constraint<?> constraint : constraints) {
             if(isFirst) {
                 result += constraint.toString();
                 isFirst = false;
@@ -1,10 +1,13 @@
 package search;
 
 import arff.Dataset;
+import arff.attribute.Constraint;
 import arff.attribute.AbstractAttribute;
 import group.Group;
 import search.refinement.AbstractRefinementOperator;
 import search.refinement.SimpleRefinementOperator;
+import search.result.EvaluationCache;
+import search.result.SearchStatistics;
 import util.GroupPriorityQueue;
 
 import java.math.BigInteger;
@@ -14,11 +17,38 @@ import java.util.*;
  * Class performing beam search.
  */
 public class BeamSearch {
+    /**
+     * The amount of progress that is printed during the search.
+     */
+    public enum Verbosity {
+        //Only print why the search has been stopped early.
+        QUIET,
+        //Also print the start of every level, the pruned constraints and the hit rates of the evaluation cache.
+        LEVELS,
+        //Also print every seed that is evaluated.
+        SEEDS
+    }
+
     //Parameters used by the beamsearch.
     private final double minimumCoverage;
     private final double maximumCoverageFraction;
     private final double minimumQuality;
 
+    //The screening of candidates on a sample, null if all candidates are evaluated exactly.
+    private SampleScreening screening;
+
+    //The budget of the search, null if the search always finishes all levels.
+    private SearchBudget budget;
+
+    //The counters and timers kept per seed, null if no statistics are kept.
+    private SearchStatistics statistics;
+
+    //The amount of progress that is printed.
+    private Verbosity verbosity = Verbosity.SEEDS;
+
+    //The amount of candidates of a seed that are evaluated between two checks of the budget.
+    private static final int BUDGET_BATCH_SIZE = 256;
+
     /**
      * Create the beam search object, with the given parameters.
      *
@@ -32,6 +62,43 @@ public class BeamSearch {
         this.minimumQuality = minimumQuality;
     }
 
+    /**
+     * Set the screening of candidates on a sample, before they are evaluated exactly.
+     *
+     * @param screening The screening to use, null to evaluate all candidates exactly.
+     */
+    public void setScreening(SampleScreening screening) {
+        this.screening = screening;
+    }
+
+    /**
+     * Set the budget of the search. When the budget runs out, the search stops and returns the groups found so far,
+     * in a result set that is marked as truncated.
+     *
+     * @param budget The budget to use, null to always finish all levels.
+     */
+    public void setBudget(SearchBudget budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Set the statistics the counters and timers of every seed are kept in.
+     *
+     * @param statistics The statistics to use, null to keep no statistics.
+     */
+    public void setStatistics(SearchStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * Set the amount of progress that is printed during the search.
+     *
+     * @param verbosity The verbosity to use.
+     */
+    public void setVerbosity(Verbosity verbosity) {
+        this.verbosity = verbosity;
+    }
+
     /**
      * Do a beam search.
      *
@@ -44,46 +111,99 @@ public class BeamSearch {
      * @throws InterruptedException When a thread is interrupted.
      */
     public GroupPriorityQueue search(Dataset dataset, AbstractRefinementOperator refinementOperator, int w, int d, int resultSetSize) throws InterruptedException {
-        //Initialize all the attributes.
+        if(budget != null) {
+            budget.start();
+        }
+
+        //Remove the constraints that can never reach the minimum coverage, before they are evaluated.
+        int pruned = 0;
+        for(AbstractAttribute<?> attribute : dataset.getAttributes()) {
+            if(dataset.isSearchable(attribute)) {
+                int removed = attribute.pruneConstraints(minimumCoverage);
+                if(removed > 0 && verbosity != Verbosity.QUIET) {
+                    System.out.println("Pruned " + removed + " constraints of attribute " + attribute.getName() + " that cover fewer than " + minimumCoverage + " instances.");
+                }
+                pruned += removed;
+            }
+        }
+        if(verbosity != Verbosity.QUIET) {
+            System.out.println("Pruned a total of " + pruned + " constraints.");
+        }
+
+        //The group priority queue is a tree set of fixed size.
+        GroupPriorityQueue resultSet = new GroupPriorityQueue(resultSetSize);
+
+        //Initialize all the attributes, except for the targets which are never refined on.
+        //Every constraint is evaluated on its own here, which counts towards the budget like any other evaluation.
         if(!(refinementOperator instanceof SimpleRefinementOperator)) {
-            for(AbstractAttribute attribute : dataset.getAttributes()) {
-                attribute.initializeConstraintEvaluations(dataset);
+            for(AbstractAttribute<?> attribute : dataset.getAttributes()) {
+                if(dataset.isSearchable(attribute)) {
+                    if(isBudgetExhausted("while evaluating the constraints", resultSet)) {
+                        break;
+                    }
+                    attribute.initializeConstraintEvaluations(dataset);
+                    if(budget != null) {
+                        budget.addEvaluations(attribute.getConstraints().size());
+                    }
+                }
             }
+            printCacheStatistics(dataset, "the constraint evaluations");
         }
 
         //Create a candidate queue, and add the empty seed as the first element.
         PriorityQueue<Group> candidateQueue = new PriorityQueue<>();
         candidateQueue.add(dataset.getSeed());
 
-        //The group priority queue is a tree set of fixed size.
-        GroupPriorityQueue resultSet = new GroupPriorityQueue(resultSetSize);
-
         //A hashset that keeps the encountered group products.
         HashSet<BigInteger> encounteredGroups = new HashSet<>();
 
         //Iterate for all levels.
-        for(int level = 1; level <= d; level++) {
-            System.out.println("Entering level " + level);
+        for(int level = 1; level <= d && !resultSet.isTruncated(); level++) {
+            if(verbosity != Verbosity.QUIET) {
+                System.out.println("Entering level " + level);
+            }
 
             //Create the beam, which has a maximum amount of w entries.
             GroupPriorityQueue beam = new GroupPriorityQueue(w);
 
-            //Evaluate all candidates in the candidate queue.
+            //Evaluate all candidates in the candidate queue, best seeds first, such that the most promising work is done first.
             while(!candidateQueue.isEmpty()) {
+                //Stop cleanly with the groups found so far when the budget has run out.
+                if(isBudgetExhausted("at level " + level, resultSet)) {
+                    break;
+                }
+
                 //Take the head element from the queue.
                 Group seed = candidateQueue.poll();
 
                 //All groups are based on the seed, so we should save the information of the seed, and use this for further calculations.
                 Set<Integer> seedIndices = seed.getIndicesSubset();
 
-                System.out.println("\tEvaluating seed " + seed);
+                if(verbosity == Verbosity.SEEDS) {
+                    System.out.println("\tEvaluating seed " + seed);
+                }
+                SearchStatistics.Record record = statistics == null ? null : statistics.startRecord(level, seed.getReadableConstraints());
 
                 //Get the candidate subgroups from the seed.
-                Set<Group> groups = refinementOperator.generate(seed, dataset, encounteredGroups, minimumQuality);
+                Set<Group> groups = refinementOperator.generate(seed, dataset, encounteredGroups, minimumQuality, seedIndices, minimumCoverage);
+                if(record != null) {
+                    record.addGenerated(groups.size());
+                }
+
+                //Only evaluate the most promising candidates that fit within the remaining evaluations.
+                if(budget != null && groups.size() > budget.getRemainingEvaluations()) {
+                    groups = getMostPromising(dataset, groups, (int) budget.getRemainingEvaluations());
+                    System.out.println("Stopped the search at level " + level + " after the " + groups.size() + " most promising candidates of seed " + seed.getReadableConstraints() + ", as the evaluations would exceed the limit.");
+                    resultSet.setTruncated(true);
+                }
 
                 //Iterate over all the groups.
-                iterateOverGroups(dataset, resultSet, beam, seedIndices, groups);
+                iterateOverGroups(dataset, resultSet, beam, seedIndices, groups, level, record);
+                if(record != null) {
+                    statistics.endRecord();
+                }
             }
+            printCacheStatistics(dataset, "level " + level);
 
             //Empty the beam, and enqueue the beam elements into the candidate queue.
             while(!beam.isEmpty()) {
@@ -94,32 +214,178 @@ public class BeamSearch {
         return resultSet;
     }
 
+    /**
+     * Whether the budget has run out, in which case the result set is marked as truncated.
+     * The reason is printed the first time the search is stopped.
+     *
+     * @param stage The stage of the search, used in the message that is printed when the search is stopped.
+     * @param resultSet The result set to mark.
+     * @return True if the search should stop.
+     */
+    private boolean isBudgetExhausted(String stage, GroupPriorityQueue resultSet) {
+        if(budget == null || !budget.isExhausted()) {
+            return false;
+        }
+        if(!resultSet.isTruncated()) {
+            System.out.println("Stopped the search " + stage + ", as " + budget.getExhaustedReason() + ".");
+            resultSet.setTruncated(true);
+        }
+        return true;
+    }
+
+    /**
+     * Get the candidates of which the new constraint has the best quality on its own.
+     * Candidates of which the quality of the constraint is not known come last.
+     *
+     * @param dataset The dataset the qualities of the constraints belong to.
+     * @param groups The candidates.
+     * @param count The amount of candidates to keep.
+     * @return The most promising candidates.
+     */
+    private Set<Group> getMostPromising(Dataset dataset, Set<Group> groups, int count) {
+        List<Group> ordered = new ArrayList<>(groups);
+        Map<Group, Double> qualities = new HashMap<>();
+        for(Group group : ordered) {
+            Constraint<?> constraint = group.getConstraints().peekLast();
+            Double quality = dataset.getConstraintEvaluation(constraint);
+            qualities.put(group, quality == null ? -Double.MAX_VALUE : quality);
+        }
+        ordered.sort((o1, o2) -> Double.compare(qualities.get(o2), qualities.get(o1)));
+        return new LinkedHashSet<>(ordered.subList(0, count));
+    }
+
+    /**
+     * Print the hit rate of the evaluation cache, and reset its statistics.
+     *
+     * @param dataset The dataset to use.
+     * @param stage The name of the stage the statistics belong to.
+     */
+    private void printCacheStatistics(Dataset dataset, String stage) {
+        EvaluationCache cache = dataset.getEvaluationCache();
+        if(cache != null && cache.getLookups() > 0 && verbosity != Verbosity.QUIET) {
+            System.out.println("Evaluation cache hit rate of " + stage + ": " + cache.getHits() + " of " + cache.getLookups() + " (" + String.format("%.1f", 100.0 * cache.getHits() / cache.getLookups()) + "%).");
+            cache.resetStatistics();
+        }
+    }
+
     /**
      * A simple implementation of iterating over groups, without multithreading.
+     * When there is a budget, the groups are evaluated in batches, and the budget is checked before every batch.
      *
      * @param dataset The dataset to use.
      * @param resultSet The result priority queue.
      * @param beam The beam object to use during the search.
      * @param seedIndices The indices that are part of the seed group.
      * @param groups The set of groups to iterate over.
+     * @param level The level of the groups.
+     * @param record The record to count the candidates in, null if no statistics are kept.
+     */
+    private void iterateOverGroups(Dataset dataset, GroupPriorityQueue resultSet, GroupPriorityQueue beam, Set<Integer> seedIndices, Set<Group> groups, int level, SearchStatistics.Record record) {
+        double maximumCoverage = maximumCoverageFraction * dataset.getSourceRowCount();
+
+        //The evaluator keeps the statistics of the seed, so it is shared by all batches.
+        SeedEvaluator evaluator = new SeedEvaluator(dataset, seedIndices, minimumCoverage, maximumCoverage);
+        for(Set<Group> batch : getBatches(groups)) {
+            //Stop within the seed when the budget runs out, such that a seed with many candidates cannot overrun it.
+            if(isBudgetExhausted("at level " + level, resultSet)) {
+                return;
+            }
+            iterateOverBatch(dataset, resultSet, beam, seedIndices, batch, evaluator, record);
+            if(budget != null) {
+                budget.addEvaluations(batch.size());
+            }
+        }
+    }
+
+    /**
+     * Divide the groups into batches of about BUDGET_BATCH_SIZE groups, where the groups of an attribute are never split,
+     * such that complementing candidates are still evaluated together. Without a budget, all groups form one batch.
+     *
+     * @param groups The groups to divide.
+     * @return The batches, in the order of the groups.
+     */
+    private List<Set<Group>> getBatches(Set<Group> groups) {
+        if(budget == null || groups.size() <= BUDGET_BATCH_SIZE) {
+            return Collections.singletonList(groups);
+        }
+
+        LinkedHashMap<AbstractAttribute<?>, List<Group>> groupsByAttribute = new LinkedHashMap<>();
+        for(Group group : groups) {
+            Constraint<?> constraint = group.getConstraints().peekLast();
+            groupsByAttribute.computeIfAbsent(constraint.getAttribute(), k -> new ArrayList<>()).add(group);
+        }
+        List<Set<Group>> batches = new ArrayList<>();
+        Set<Group> batch = new LinkedHashSet<>();
+        for(List<Group> attributeGroups : groupsByAttribute.values()) {
+            batch.addAll(attributeGroups);
+            if(batch.size() >= BUDGET_BATCH_SIZE) {
+                batches.add(batch);
+                batch = new LinkedHashSet<>();
+            }
+        }
+        if(!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    /**
+     * Evaluate a batch of groups, and add the groups that satisfy all constraints to the beam and the result set.
+     *
+     * @param dataset The dataset to use.
+     * @param resultSet The result priority queue.
+     * @param beam The beam object to use during the search.
+     * @param seedIndices The indices that are part of the seed group.
+     * @param groups The batch of groups to iterate over.
+     * @param evaluator The evaluator of the candidates of the seed.
+     * @param record The record to count the candidates in, null if no statistics are kept.
      */
-    private void iterateOverGroups(Dataset dataset, GroupPriorityQueue resultSet, GroupPriorityQueue beam, Set<Integer> seedIndices, Set<Group> groups) {
-        double maximumCoverage = maximumCoverageFraction * dataset.getInstances().size();
+    private void iterateOverBatch(Dataset dataset, GroupPriorityQueue resultSet, GroupPriorityQueue beam, Set<Integer> seedIndices, Set<Group> groups, SeedEvaluator evaluator, SearchStatistics.Record record) {
+
+        //Only evaluate the candidates exactly that could still enter the beam or the result set, judged on the sample.
+        if(screening != null && beam.isFull() && resultSet.isFull()) {
+            double threshold = Math.max(minimumQuality, Math.min(beam.getWorstValue(), resultSet.getWorstValue()));
+            int candidates = groups.size();
+            groups = screening.screen(dataset, screening.getSampleSeed(seedIndices, dataset.getInstances().size()), groups, threshold);
+            if(record != null) {
+                record.addQualityRejections(candidates - groups.size());
+            }
+        }
+
+        //Evaluate all groups at once, such that groups that partition the seed can share their work.
+        Map<Group, Double> qualities = evaluator.evaluate(groups);
 
         //Iterate over all these groups.
         for(Group group : groups) {
             //System.out.println(Util.getCurrentTimeStamp() + " Evaluating seed " + group);
 
             //Get the quality.
-            double quality = group.evaluateQuality(dataset, seedIndices, minimumCoverage, maximumCoverage, seedIndices == null ? dataset.getInstances().size(): seedIndices.size());
+            double quality = qualities.get(group);
+
+            //Groups outside of the coverage bounds are never evaluated.
+            if(record != null) {
+                if(quality == -Double.MAX_VALUE) {
+                    record.addCoverageRejections(1);
+                } else {
+                    record.addEvaluated(1);
+                    if(quality <= minimumQuality) {
+                        record.addQualityRejections(1);
+                    }
+                }
+            }
 
             //If the group satisfies all constraints.
             if(quality > minimumQuality) {
+                long start = record == null ? 0 : System.nanoTime();
+
                 //Add it to the result set.
                 resultSet.add(group);
 
                 //Insert it into the beam.
                 beam.add(group);
+                if(record != null) {
+                    statistics.addTime(SearchStatistics.Phase.INSERTION, System.nanoTime() - start);
+                }
             }
         }
     }
@@ -0,0 +1,422 @@
+package search;
+
+import arff.Dataset;
+import arff.attribute.AbstractAttribute;
+import arff.attribute.Constraint;
+import group.Comparison;
+import group.Group;
+import util.GroupPriorityQueue;
+import util.linearalgebra.CholeskyDecomposition;
+import util.linearalgebra.SufficientStatistics;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class performing an exhaustive depth-first search over all combinations of constraints.
+ * The constraints are put in a canonical order, by attribute and then by constraint, and a group is only ever extended
+ * by constraints that come later in this order. Every combination is thus enumerated exactly once, such that no
+ * encountered groups have to be kept. The thresholds of an attribute are ordered by their value, and a group is not
+ * enumerated when one of its thresholds can be replaced by the previous threshold on the same comparison without
+ * changing its instances, as the group with the previous threshold has already been enumerated.
+ *
+ * The instances of every group on the current path are kept as a stack of bitmaps, such that a refinement costs a
+ * single AND of the bitmap of its parent with the bitmap of the constraint. A subtree is pruned as soon as its root
+ * covers fewer instances than the minimum coverage, as refining it can only remove instances. The top-level branches
+ * are independent, and are divided over the worker threads.
+ */
+public class DepthFirstSearch {
+    //Parameters used by the search.
+    private final double minimumCoverage;
+    private final double maximumCoverageFraction;
+    private final double minimumQuality;
+
+    //The amount of worker threads the top-level branches are divided over.
+    private final int threads;
+
+    //The amount of groups that have been enumerated, that have been evaluated and of which the subtree has been pruned.
+    private final AtomicLong enumerated = new AtomicLong();
+    private final AtomicLong evaluated = new AtomicLong();
+    private final AtomicLong pruned = new AtomicLong();
+
+    //The amount of groups that have been skipped, as one of their thresholds can be replaced by the previous one.
+    private final AtomicLong duplicates = new AtomicLong();
+
+    //Orders the constraints of an attribute by comparison, and the thresholds of a comparison by their value.
+    @SuppressWarnings("unchecked")
+    private static final Comparator<Constraint<?>> CONSTRAINT_ORDER = (o1, o2) -> {
+        int comparison = o1.getComparison().compareTo(o2.getComparison());
+        if(comparison != 0 || !isThreshold(o1)) {
+            return comparison;
+        }
+        return ((Comparable<Object>) o1.getValue()).compareTo(o2.getValue());
+    };
+
+    //The constraints in the canonical order and their instances, built on the first search.
+    private Constraint<?>[] order;
+    private long[][] orderBitmaps;
+
+    //Whether the progress of the search is printed.
+    private boolean verbose = true;
+
+    /**
+     * Create the depth-first search object, with the given parameters.
+     *
+     * @param minimumCoverage The minimum coverage valid subgroups should have.
+     * @param maximumCoverageFraction The maximum coverage fraction of the subgroups.
+     * @param minimumQuality The minimum quality the subgroups should have.
+     * @param threads The amount of worker threads to use.
+     */
+    public DepthFirstSearch(double minimumCoverage, double maximumCoverageFraction, double minimumQuality, int threads) {
+        this.minimumCoverage = minimumCoverage;
+        this.maximumCoverageFraction = maximumCoverageFraction;
+        this.minimumQuality = minimumQuality;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Set whether the progress of the search is printed.
+     *
+     * @param verbose True to print the amount of enumerated subgroups.
+     */
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    /**
+     * Do an exhaustive depth-first search.
+     * The canonical order of the constraints is built on the first search, and reused by every later search. Later
+     * searches should thus be done on the same attributes, such as on permuted views of the same dataset.
+     *
+     * @param dataset The dataset to use.
+     * @param d The search depth, which is the maximum amount of constraints added to the seed.
+     * @param resultSetSize The size of the result set, which corresponds to the value "q" in the algorithm.
+     * @return A "Priority queue" of maximum size "resultSetSize" containing the best subgroups in order of evaluation value.
+     * @throws Exception When a worker fails or is interrupted.
+     */
+    public GroupPriorityQueue search(Dataset dataset, int d, int resultSetSize) throws Exception {
+        int rowCount = dataset.getInstances().size();
+        int words = (rowCount + 63) >>> 6;
+
+        //The instances of the seed, which are all instances when the seed is empty.
+        Group seed = dataset.getSeed();
+        Set<Integer> seedIndices = seed.getIndicesSubset();
+        long[] seedBitmap = new long[words];
+        if(seedIndices == null) {
+            for(int row = 0; row < rowCount; row++) {
+                seedBitmap[row >>> 6] |= 1L << row;
+            }
+        } else {
+            for(int index : seedIndices) {
+                seedBitmap[index >>> 6] |= 1L << index;
+            }
+        }
+        int seedCoverage = seedIndices == null ? rowCount : seedIndices.size();
+
+        Constraint<?>[] order = getOrder(dataset, words);
+        long[][] orderBitmaps = this.orderBitmaps;
+        if(verbose) {
+            System.out.println("Enumerating the combinations of " + order.length + " constraints depth-first, up to " + d + " constraints per subgroup.");
+        }
+        double maximumCoverage = maximumCoverageFraction * dataset.getSourceRowCount();
+
+        //A single thread searches all branches itself, into a single result set.
+        GroupPriorityQueue resultSet = new GroupPriorityQueue(resultSetSize);
+        if(threads == 1) {
+            expand(dataset, seed, order, orderBitmaps, 0, order.length, 1, d, seedCoverage, maximumCoverage, createStack(seedBitmap, d, words), new int[d + 1], resultSet);
+            printStatistics();
+            return resultSet;
+        }
+
+        //Every top-level branch is searched by a single worker, into a result set of its own.
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<GroupPriorityQueue>> futures = new ArrayList<>();
+            for(int i = 0; i < order.length; i++) {
+                int branch = i;
+                futures.add(executor.submit(() -> {
+                    GroupPriorityQueue branchResults = new GroupPriorityQueue(resultSetSize);
+                    expand(dataset, seed, order, orderBitmaps, branch, branch + 1, 1, d, seedCoverage, maximumCoverage, createStack(seedBitmap, d, words), new int[d + 1], branchResults);
+                    return branchResults;
+                }));
+            }
+
+            //Merge the result sets through add, such that the maximum size is kept.
+            for(Future<GroupPriorityQueue> future : futures) {
+                for(Group group : future.get()) {
+                    resultSet.add(group);
+                }
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        } finally {
+            executor.shutdown();
+        }
+
+        printStatistics();
+        return resultSet;
+    }
+
+    /**
+     * Get the constraints in the canonical order, leaving out the constraints that can never reach the minimum coverage.
+     * The order and the instances of the constraints are built once, and kept for later searches.
+     *
+     * @param dataset The dataset to take the attributes from.
+     * @param words The amount of words of a bitmap.
+     * @return The constraints in the canonical order.
+     */
+    private synchronized Constraint<?>[] getOrder(Dataset dataset, int words) {
+        if(order == null) {
+            List<Constraint<?>> constraints = new ArrayList<>();
+            List<long[]> bitmaps = new ArrayList<>();
+            for(AbstractAttribute<?> attribute : dataset.getAttributes()) {
+                if(!dataset.isSearchable(attribute)) {
+                    continue;
+                }
+                List<Constraint<?>> attributeConstraints = new ArrayList<>();
+                for(Object o : attribute.getConstraints()) {
+                    Constraint<?> constraint = (Constraint<?>) o;
+                    if(constraint.getCoverage() >= minimumCoverage) {
+                        attributeConstraints.add(constraint);
+                    }
+                }
+                attributeConstraints.sort(CONSTRAINT_ORDER);
+                for(Constraint<?> constraint : attributeConstraints) {
+                    constraints.add(constraint);
+                    bitmaps.add(getBitmap(constraint, words));
+                }
+            }
+            orderBitmaps = bitmaps.toArray(new long[0][]);
+            order = constraints.toArray(new Constraint<?>[0]);
+        }
+        return order;
+    }
+
+    /**
+     * Create the stack of bitmaps of a path.
+     *
+     * @param seedBitmap The instances of the seed.
+     * @param d The search depth.
+     * @param words The amount of words of a bitmap.
+     * @return One bitmap per level of the path, of which the first holds the seed.
+     */
+    private static long[][] createStack(long[] seedBitmap, int d, int words) {
+        long[][] stack = new long[d + 1][];
+        stack[0] = seedBitmap;
+        for(int level = 1; level <= d; level++) {
+            stack[level] = new long[words];
+        }
+        return stack;
+    }
+
+    /**
+     * Print the amount of enumerated, evaluated and pruned subgroups when the search is verbose.
+     */
+    private void printStatistics() {
+        if(verbose) {
+            System.out.println("Enumerated " + enumerated.get() + " subgroups, evaluated " + evaluated.get() + " of them, skipped " + duplicates.get() + " that select the same instances with a threshold replaced by the previous threshold, and pruned " + pruned.get() + " subtrees below the minimum coverage.");
+        }
+    }
+
+    /**
+     * Extend the group by the constraints in the given range of the canonical order, and recurse into the refinements.
+     *
+     * @param dataset The dataset to use.
+     * @param group The group to extend.
+     * @param order The constraints in the canonical order.
+     * @param bitmaps The instances of every constraint, in the same order.
+     * @param first The index of the first constraint to extend by.
+     * @param last The index after the last constraint to extend by.
+     * @param level The level of the extended groups, where the stack holds the instances of the group at level - 1.
+     * @param d The search depth.
+     * @param coverage The amount of instances within the group.
+     * @param maximumCoverage The maximum coverage valid subgroups should have.
+     * @param stack The bitmaps of the instances of the groups on the path.
+     * @param path The positions in the canonical order of the constraints on the path, from level 1 onwards.
+     * @param resultSet The result set to add the subgroups to.
+     */
+    private void expand(Dataset dataset, Group group, Constraint<?>[] order, long[][] bitmaps, int first, int last, int level, int d, int coverage, double maximumCoverage, long[][] stack, int[] path, GroupPriorityQueue resultSet) {
+        long[] parent = stack[level - 1];
+        long[] rows = stack[level];
+
+        //The amount of instances of the extension by the previous constraint, -1 if it is not a valid extension.
+        //A worker that searches a single top-level branch has not seen the previous constraint, so it checks it here.
+        int previousCoverage = -1;
+        if(level == 1 && first > 0 && group.extendGroupWith(order[first - 1]) != null) {
+            previousCoverage = getCoverage(parent, bitmaps[first - 1]);
+        }
+        for(int i = first; i < last; i++) {
+            //The group may not have the same value or comparison twice.
+            Group extension = group.extendGroupWith(order[i]);
+            if(extension == null) {
+                previousCoverage = -1;
+                continue;
+            }
+            enumerated.incrementAndGet();
+
+            //Intersect the instances of the parent with the instances of the constraint.
+            long[] constraintRows = bitmaps[i];
+            int extensionCoverage = 0;
+            for(int w = 0; w < rows.length; w++) {
+                rows[w] = parent[w] & constraintRows[w];
+                extensionCoverage += Long.bitCount(rows[w]);
+            }
+
+            //The thresholds on the same comparison are nested, so the extension selects the same instances as the
+            //previous threshold when it covers as many, and so does every refinement of it.
+            boolean sameAsPrevious = extensionCoverage == previousCoverage && isNextThreshold(order[i - 1], order[i]);
+            previousCoverage = extensionCoverage;
+            path[level] = i;
+
+            //No refinement of the extension covers more instances.
+            if(extensionCoverage < minimumCoverage) {
+                pruned.incrementAndGet();
+                continue;
+            }
+
+            //The extension covers the same instances as its parent, and so does every refinement of it that is enumerated
+            //by the parent without this constraint.
+            if(extensionCoverage == coverage) {
+                continue;
+            }
+            if(sameAsPrevious || hasReplaceableThreshold(extension, order, bitmaps, stack[0], path, level, extensionCoverage)) {
+                duplicates.incrementAndGet();
+                continue;
+            }
+
+            if(extensionCoverage <= maximumCoverage) {
+                evaluated.incrementAndGet();
+                SufficientStatistics statistics = dataset.getStatistics(rows, extensionCoverage);
+
+                //Solve the regression through the decomposition of the gram matrix, which is far cheaper than its inverse
+                //and is passed as a parent without removed instances. The inverse is used when the decomposition fails.
+                CholeskyDecomposition decomposition = CholeskyDecomposition.decompose(statistics.getGram());
+                Collection<Integer> removedIndices = decomposition == null ? null : Collections.emptyList();
+                if(extension.evaluateQuality(dataset, null, statistics, decomposition, removedIndices, minimumCoverage, maximumCoverage, coverage) > minimumQuality) {
+                    resultSet.add(extension);
+                }
+            }
+
+            if(level < d) {
+                expand(dataset, extension, order, bitmaps, i + 1, order.length, level + 1, d, extensionCoverage, maximumCoverage, stack, path, resultSet);
+            }
+        }
+    }
+
+    /**
+     * Whether a threshold on the path before the last constraint can be replaced by the previous threshold on the same
+     * comparison without changing the instances of the group. The group with the previous threshold comes earlier in the
+     * canonical order, so it has already been enumerated, or skipped in favour of a group that has been.
+     *
+     * @param extension The group at the end of the path.
+     * @param order The constraints in the canonical order.
+     * @param bitmaps The instances of every constraint, in the same order.
+     * @param seedRows The instances of the seed.
+     * @param path The positions in the canonical order of the constraints on the path.
+     * @param level The length of the path.
+     * @param extensionCoverage The amount of instances within the group.
+     * @return True if the group selects the same instances as a group that comes earlier in the canonical order.
+     */
+    private static boolean hasReplaceableThreshold(Group extension, Constraint<?>[] order, long[][] bitmaps, long[] seedRows, int[] path, int level, int extensionCoverage) {
+        for(int j = 1; j < level; j++) {
+            int position = path[j];
+            if(position == 0 || !isNextThreshold(order[position - 1], order[position])) {
+                continue;
+            }
+
+            //Count the instances of the path with the threshold replaced by the previous one.
+            long[] replacementRows = bitmaps[position - 1];
+            int coverage = 0;
+            for(int w = 0; w < seedRows.length; w++) {
+                long word = seedRows[w] & replacementRows[w];
+                for(int k = 1; k <= level; k++) {
+                    if(k != j) {
+                        word &= bitmaps[path[k]][w];
+                    }
+                }
+                coverage += Long.bitCount(word);
+            }
+
+            //The replacement should not have the same value as another constraint on the path, as it would not be valid.
+            if(coverage == extensionCoverage && extension.getProduct().mod(BigInteger.valueOf(order[position - 1].getValuePrime())).signum() != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Count the instances of the parent that satisfy a constraint.
+     *
+     * @param parent The instances of the parent.
+     * @param constraintRows The instances of the constraint.
+     * @return The amount of instances in both.
+     */
+    private static int getCoverage(long[] parent, long[] constraintRows) {
+        int coverage = 0;
+        for(int w = 0; w < parent.length; w++) {
+            coverage += Long.bitCount(parent[w] & constraintRows[w]);
+        }
+        return coverage;
+    }
+
+    /**
+     * Whether the constraint is a threshold (LTEQ or GTEQ).
+     *
+     * @param constraint The constraint to check.
+     * @return True if the constraint is a threshold.
+     */
+    private static boolean isThreshold(Constraint<?> constraint) {
+        return constraint.getComparison() == Comparison.LTEQ || constraint.getComparison() == Comparison.GTEQ;
+    }
+
+    /**
+     * Whether the constraint is the next threshold after the previous constraint, on the same attribute and comparison.
+     *
+     * @param previous The constraint before the constraint in the canonical order.
+     * @param constraint The constraint to check.
+     * @return True if both are thresholds on the same attribute and comparison.
+     */
+    private static boolean isNextThreshold(Constraint<?> previous, Constraint<?> constraint) {
+        return isThreshold(constraint) && previous.getAttribute() == constraint.getAttribute() && previous.getComparison() == constraint.getComparison();
+    }
+
+    /**
+     * Get the bitmap of the instances that satisfy the constraint.
+     *
+     * @param constraint The constraint.
+     * @param words The amount of words of a bitmap.
+     * @return A new bitmap of the instances.
+     */
+    private static long[] getBitmap(Constraint<?> constraint, int words) {
+        //Numeric ranges are taken from the bit-sliced index, other constraints from their index sets.
+        long[] bitmap = constraint.getRowBitmap();
+        if(bitmap == null) {
+            bitmap = new long[words];
+            for(Object o : constraint.getIndicesSubsetForValue()) {
+                int index = (Integer) o;
+                bitmap[index >>> 6] |= 1L << index;
+            }
+        }
+        return bitmap;
+    }
+
+    /**
+     * Get the name of the search.
+     *
+     * @return Full name of the search.
+     */
+    public String getName() {
+        return "Exhaustive depth-first (" + threads + (threads == 1 ? " thread" : " threads") + ")";
+    }
+}
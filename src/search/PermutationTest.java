@@ -0,0 +1,159 @@
+package search;
+
+import arff.Dataset;
+import util.GroupPriorityQueue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tests the significance of subgroups by permuting the regression targets.
+ * Every permutation shuffles the rows of the targets relative to the attributes that describe the subgroups, after
+ * which the best subgroup of the permuted data is found by the same search, with the same parameters, as the subgroups
+ * that are tested. The best qualities of all permutations form the null distribution, against which the quality of a
+ * subgroup gives its p-value.
+ *
+ * The dataset is only loaded and indexed once: every permutation is a view that only holds its own copy of the targets,
+ * and is searched by a worker of its own.
+ */
+public class PermutationTest {
+    /**
+     * The search that is done on every permutation.
+     */
+    public interface Search {
+        /**
+         * Search the permuted view of the dataset.
+         *
+         * @param permutation The permuted view of the dataset.
+         * @return The best subgroups of the permutation.
+         * @throws Exception When the search fails.
+         */
+        GroupPriorityQueue search(Dataset permutation) throws Exception;
+    }
+
+    //The seed of the random generators, such that the permutations are the same for every run.
+    private static final long RANDOM_SEED = 0x9e3779b9L;
+
+    //The amount of permutations.
+    private final int permutations;
+
+    //The amount of worker threads the permutations are divided over.
+    private final int threads;
+
+    //The best quality of every permutation, in ascending order.
+    private double[] nullDistribution;
+
+    /**
+     * Create a permutation test.
+     *
+     * @param permutations The amount of permutations.
+     * @param threads The amount of worker threads to use.
+     */
+    public PermutationTest(int permutations, int threads) {
+        this.permutations = permutations;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Find the null distribution, by searching every permutation of the dataset for its best subgroup.
+     *
+     * @param dataset The dataset to permute.
+     * @param search The search to use, which is called by all workers and should thus use a single thread itself.
+     * @throws Exception When a worker fails or is interrupted.
+     */
+    public void run(Dataset dataset, Search search) throws Exception {
+        double[] qualities = new double[permutations];
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, permutations));
+        try {
+            List<Future<Double>> futures = new ArrayList<>();
+            for(int i = 0; i < permutations; i++) {
+                //Every permutation has a generator of its own, such that it does not depend on the order of the workers.
+                Random random = new Random(RANDOM_SEED + i);
+                futures.add(executor.submit(() -> {
+                    GroupPriorityQueue best = search.search(dataset.getPermutation(random));
+
+                    //Cook's distance is never negative, so a permutation without valid subgroups counts as 0.
+                    return best.isEmpty() ? 0 : best.first().getEvaluation();
+                }));
+            }
+            for(int i = 0; i < permutations; i++) {
+                qualities[i] = futures.get(i).get();
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        } finally {
+            executor.shutdown();
+        }
+
+        Arrays.sort(qualities);
+        nullDistribution = qualities;
+    }
+
+    /**
+     * Get the p-value of a subgroup, which is the fraction of permutations of which the best subgroup is at least as
+     * good. The observed data counts as one of the permutations, such that the p-value is never 0.
+     *
+     * @param quality The quality of the subgroup.
+     * @return The p-value of the quality.
+     */
+    public double getPValue(double quality) {
+        //The amount of best qualities below the given quality.
+        int index = Arrays.binarySearch(nullDistribution, quality);
+        if(index < 0) {
+            index = -index - 1;
+        } else {
+            while(index > 0 && nullDistribution[index - 1] == quality) {
+                index--;
+            }
+        }
+        return (1.0 + nullDistribution.length - index) / (1.0 + nullDistribution.length);
+    }
+
+    /**
+     * Get a quantile of the null distribution.
+     *
+     * @param fraction The fraction of the permutations of which the best quality is at most the quantile.
+     * @return The quantile, by the nearest rank.
+     */
+    public double getQuantile(double fraction) {
+        int rank = (int) Math.ceil(fraction * nullDistribution.length);
+        return nullDistribution[Math.min(nullDistribution.length - 1, Math.max(0, rank - 1))];
+    }
+
+    /**
+     * Get the mean of the null distribution.
+     *
+     * @return The mean best quality over all permutations.
+     */
+    public double getMean() {
+        double sum = 0;
+        for(double quality : nullDistribution) {
+            sum += quality;
+        }
+        return sum / nullDistribution.length;
+    }
+
+    /**
+     * Get the best quality of every permutation.
+     *
+     * @return The null distribution, in ascending order.
+     */
+    public double[] getNullDistribution() {
+        return nullDistribution;
+    }
+
+    /**
+     * Get the name of the permutation test.
+     *
+     * @return Full name of the permutation test.
+     */
+    public String getName() {
+        return permutations + " permutations of the targets (" + threads + (threads == 1 ? " thread" : " threads") + ")";
+    }
+}
@@ -0,0 +1,165 @@
+package search;
+
+import arff.Dataset;
+import arff.attribute.Constraint;
+import arff.column.BitSlicedIndex;
+import group.Group;
+
+import java.nio.IntBuffer;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Screens candidates on a fixed sample of the instances, before they are evaluated on all instances.
+ * The sample is stratified on the y target: the instances are split into consecutive strata in the sorted order of
+ * the y target, and one random instance is drawn from every stratum. It is drawn once per dataset and kept as a bitmap.
+ *
+ * A candidate is only evaluated exactly when its quality on the sample, raised by the margin, could reach the beam or
+ * the result set. The qualities of all candidates that are kept are exact, but a candidate of which the quality on the
+ * sample underestimates its true quality by more than the margin may be screened out. The margin is a fixed relative
+ * factor rather than a confidence bound derived from the variance of the estimate, so the screening is a heuristic
+ * that can drop subgroups that belong in the result set, and it is disabled unless it is asked for.
+ */
+public class SampleScreening {
+    //The seed of the random generator, such that the sample is the same for every run.
+    private static final long RANDOM_SEED = 0x5eed;
+
+    //The fraction of the instances within the sample.
+    private final double fraction;
+
+    //The relative amount the quality on the sample may underestimate the exact quality.
+    private final double margin;
+
+    //The instances within the sample.
+    private final long[] sample;
+
+    //The amount of instances within the sample.
+    private final int sampleSize;
+
+    //The amount of candidates that have been screened on the sample, and the amount of candidates that have been screened out.
+    private final AtomicLong screened = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * Draw the sample of the dataset.
+     *
+     * @param dataset The dataset to sample from.
+     * @param fraction The fraction of the instances within the sample, between 0 and 1.
+     * @param margin The relative amount the quality on the sample may underestimate the exact quality.
+     */
+    public SampleScreening(Dataset dataset, double fraction, double margin) {
+        this.fraction = fraction;
+        this.margin = margin;
+
+        //Draw one instance from every stratum of the sorted order of the y target, which puts the nulls last.
+        IntBuffer sortedIndices = dataset.getYTarget().getSortedIndices();
+        int rowCount = sortedIndices.capacity();
+        int stratumSize = Math.max(1, (int) Math.round(1 / fraction));
+        Random random = new Random(RANDOM_SEED);
+        sample = new long[(rowCount + 63) >>> 6];
+        int size = 0;
+        for(int start = 0; start < rowCount; start += stratumSize) {
+            int row = sortedIndices.get(start + random.nextInt(Math.min(stratumSize, rowCount - start)));
+            sample[row >>> 6] |= 1L << row;
+            size++;
+        }
+        sampleSize = size;
+    }
+
+    /**
+     * Get the instances of the seed that are within the sample.
+     *
+     * @param seedIndices The instances of the seed, null if the seed covers all instances.
+     * @param rowCount The amount of instances within the dataset.
+     * @return A new set of the sampled instances of the seed.
+     */
+    public Set<Integer> getSampleSeed(Set<Integer> seedIndices, int rowCount) {
+        Set<Integer> result = new HashSet<>();
+        if(seedIndices == null) {
+            for(int row = 0; row < rowCount; row++) {
+                if(BitSlicedIndex.contains(sample, row)) {
+                    result.add(row);
+                }
+            }
+        } else {
+            for(int index : seedIndices) {
+                if(BitSlicedIndex.contains(sample, index)) {
+                    result.add(index);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Keep the candidates of which the quality on the sample, raised by the margin, reaches the given threshold.
+     *
+     * @param dataset The dataset to evaluate the candidates on.
+     * @param sampleSeed The sampled instances of the seed the candidates refine.
+     * @param groups The candidates, each of which extends the seed by a single constraint.
+     * @param threshold The quality a candidate needs to enter the beam or the result set.
+     * @return The candidates that have to be evaluated exactly, in the same order.
+     */
+    public Set<Group> screen(Dataset dataset, Set<Integer> sampleSeed, Set<Group> groups, double threshold) {
+        Set<Group> promising = new LinkedHashSet<>();
+        for(Group group : groups) {
+            screened.incrementAndGet();
+            if(getSampleQuality(dataset, sampleSeed, group) * (1 + margin) >= threshold) {
+                promising.add(group);
+            } else {
+                rejected.incrementAndGet();
+            }
+        }
+        return promising;
+    }
+
+    /**
+     * Evaluate the candidate on the sample, against the regression of all instances.
+     *
+     * @param dataset The dataset to evaluate the candidate on.
+     * @param sampleSeed The sampled instances of the seed the candidate refines.
+     * @param group The candidate.
+     * @return The quality on the sample, infinite if the sample is too small to judge the candidate.
+     */
+    private double getSampleQuality(Dataset dataset, Set<Integer> sampleSeed, Group group) {
+        Constraint<?> constraint = group.getConstraints().peekLast();
+        Set<Integer> indices = dataset.getIntersectionPlanner().intersect(sampleSeed, constraint);
+
+        //A regression needs more instances than degrees of freedom, and some margin on top of that.
+        if(indices.size() < 2 * (dataset.getXTargets().length + 1)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double quality = dataset.getCooksDistanceEstimate(dataset.getStatistics(indices));
+        return Double.isNaN(quality) ? Double.POSITIVE_INFINITY : quality;
+    }
+
+    /**
+     * Get the amount of candidates that have been screened on the sample.
+     *
+     * @return The amount of screened candidates.
+     */
+    public long getScreened() {
+        return screened.get();
+    }
+
+    /**
+     * Get the amount of candidates that have been screened out, and have thus not been evaluated exactly.
+     *
+     * @return The amount of rejected candidates.
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Get the name of the screening.
+     *
+     * @return Full name of the screening.
+     */
+    public String getName() {
+        return "Sample of " + String.format("%.1f", 100 * fraction) + "% (" + sampleSize + " instances), margin " + margin;
+    }
+}
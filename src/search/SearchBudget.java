@@ -0,0 +1,139 @@
+package search;
+
+/**
+ * The budget of an anytime search, in wall-clock time, evaluated candidates and used heap memory.
+ * A search checks the budget before it evaluates the constraints of an attribute, before it starts on a seed and
+ * between the batches of candidates of a seed, and stops cleanly with the results found so far once any part of the
+ * budget has run out. A limit of 0 means that the corresponding part of the budget is unlimited.
+ */
+public class SearchBudget {
+    //The maximum duration of the search in milliseconds.
+    private final long timeLimit;
+
+    //The maximum amount of candidates that are evaluated.
+    private final long evaluationLimit;
+
+    //The maximum amount of heap memory in bytes that may be in use.
+    private final long memoryLimit;
+
+    //The moment at which the search has to stop, in milliseconds since the epoch.
+    private long deadline = Long.MAX_VALUE;
+
+    //The amount of candidates that have been evaluated.
+    private long evaluations;
+
+    //The part of the budget that has run out, null while the budget lasts.
+    private String exhaustedReason;
+
+    /**
+     * Create a budget.
+     *
+     * @param timeLimit The maximum duration of the search in milliseconds, 0 for no limit.
+     * @param evaluationLimit The maximum amount of candidates that are evaluated, 0 for no limit.
+     * @param memoryLimit The maximum amount of heap memory in bytes that may be in use, 0 for no limit.
+     */
+    public SearchBudget(long timeLimit, long evaluationLimit, long memoryLimit) {
+        this.timeLimit = timeLimit;
+        this.evaluationLimit = evaluationLimit;
+        this.memoryLimit = memoryLimit;
+    }
+
+    /**
+     * Start the clock of the budget, which is done when the search starts.
+     */
+    public void start() {
+        deadline = timeLimit > 0 ? System.currentTimeMillis() + timeLimit : Long.MAX_VALUE;
+        evaluations = 0;
+        exhaustedReason = null;
+    }
+
+    /**
+     * Whether any part of the budget has run out. Once it has, it stays exhausted.
+     *
+     * @return True if the search should stop.
+     */
+    public boolean isExhausted() {
+        if(exhaustedReason == null) {
+            if(System.currentTimeMillis() >= deadline) {
+                exhaustedReason = "the time limit of " + timeLimit + " ms has been reached";
+            } else if(evaluationLimit > 0 && evaluations >= evaluationLimit) {
+                exhaustedReason = "the limit of " + evaluationLimit + " evaluations has been reached";
+            } else if(memoryLimit > 0 && getUsedMemory() > memoryLimit) {
+                //Only give up on memory when a collection does not free enough of it.
+                System.gc();
+                if(getUsedMemory() > memoryLimit) {
+                    exhaustedReason = "the memory limit of " + memoryLimit / (1 << 20) + " MB has been exceeded";
+                }
+            }
+        }
+        return exhaustedReason != null;
+    }
+
+    /**
+     * Get the amount of candidates that may still be evaluated.
+     *
+     * @return The remaining amount of evaluations, Long.MAX_VALUE if there is no limit.
+     */
+    public long getRemainingEvaluations() {
+        return evaluationLimit > 0 ? Math.max(0, evaluationLimit - evaluations) : Long.MAX_VALUE;
+    }
+
+    /**
+     * Record that candidates have been evaluated.
+     *
+     * @param count The amount of evaluated candidates.
+     */
+    public void addEvaluations(long count) {
+        evaluations += count;
+    }
+
+    /**
+     * Get the amount of candidates that have been evaluated.
+     *
+     * @return The amount of evaluations.
+     */
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * Get the part of the budget that has run out.
+     *
+     * @return A description of the exhausted limit, null if the budget has not run out.
+     */
+    public String getExhaustedReason() {
+        return exhaustedReason;
+    }
+
+    /**
+     * Get the amount of heap memory that is in use.
+     *
+     * @return The used memory in bytes.
+     */
+    private static long getUsedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Get the name of the budget.
+     *
+     * @return Full name of the budget.
+     */
+    public String getName() {
+        if(timeLimit <= 0 && evaluationLimit <= 0 && memoryLimit <= 0) {
+            return "Unlimited";
+        }
+        StringBuilder name = new StringBuilder();
+        if(timeLimit > 0) {
+            name.append(timeLimit).append(" ms, ");
+        }
+        if(evaluationLimit > 0) {
+            name.append(evaluationLimit).append(" evaluations, ");
+        }
+        if(memoryLimit > 0) {
+            name.append(memoryLimit / (1 << 20)).append(" MB, ");
+        }
+        return name.substring(0, name.length() - 2);
+    }
+}
@@ -0,0 +1,519 @@
+package search;
+
+import arff.Dataset;
+import arff.attribute.AbstractAttribute;
+import arff.attribute.Constraint;
+import arff.attribute.NumericAttribute;
+import group.Comparison;
+import group.Group;
+import search.result.EvaluationCache;
+import search.result.SearchStatistics;
+import util.linearalgebra.CholeskyDecomposition;
+import util.linearalgebra.SufficientStatistics;
+
+import java.nio.IntBuffer;
+import java.util.*;
+
+/**
+ * Evaluates all candidate groups that extend the same seed.
+ * Attributes with many candidates are evaluated in a single pass over the instances of the seed, which adds every
+ * instance to the statistics of its value. The statistics of all constraints of the attribute follow from these by
+ * (cumulative) sums, without scanning the instances of the individual candidates.
+ * Other candidates whose constraints partition the seed, such as an equality check and the inequality check on the same
+ * value, or two range checks on adjacent values, are evaluated together. Only one side is evaluated on its instances,
+ * the statistics of the other side are those of the seed minus the evaluated side and minus the null instances.
+ * When a candidate removes only a few instances from the seed, its regression is solved by downdating the Cholesky
+ * decomposition of the seed with the removed instances, instead of solving it from scratch.
+ * When the dataset is evaluated chunk by chunk, none of this applies and every candidate is evaluated on its own.
+ */
+public class SeedEvaluator {
+    //The dataset to take the data from.
+    private final Dataset dataset;
+
+    //The indices that are part of the seed group, null if the seed covers all instances.
+    private final Set<Integer> seedIndices;
+
+    //The coverage bounds of valid subgroups.
+    private final double minimumCoverage;
+    private final double maximumCoverage;
+
+    //The amount of instances within the seed.
+    private final int seedCoverage;
+
+    //The maximum amount of removed instances for which the decomposition of the seed is downdated.
+    private static final int MAXIMUM_DOWNDATES = 64;
+
+    //The statistics and fingerprint of the seed, only calculated when needed.
+    private Rows seedRows;
+
+    //The Cholesky decomposition of the gram matrix of the seed, only calculated when needed.
+    private CholeskyDecomposition seedDecomposition;
+    private boolean seedDecomposed;
+
+    //The null instances of the seed and their statistics, per attribute.
+    private final HashMap<AbstractAttribute<?>, Set<Integer>> nullIndices = new HashMap<>();
+    private final HashMap<AbstractAttribute<?>, Rows> nullRows = new HashMap<>();
+
+    /**
+     * Create an evaluator for the candidates of a seed.
+     *
+     * @param dataset The dataset to take the data from.
+     * @param seedIndices The indices that are part of the seed group, null if the seed covers all instances.
+     * @param minimumCoverage The minimum coverage valid subgroups should have.
+     * @param maximumCoverage The maximum coverage valid subgroups should have.
+     */
+    public SeedEvaluator(Dataset dataset, Set<Integer> seedIndices, double minimumCoverage, double maximumCoverage) {
+        this.dataset = dataset;
+        this.seedIndices = seedIndices;
+        this.minimumCoverage = minimumCoverage;
+        this.maximumCoverage = maximumCoverage;
+        this.seedCoverage = seedIndices == null ? dataset.getInstances().size() : seedIndices.size();
+    }
+
+    /**
+     * Evaluate the quality of all the candidates.
+     *
+     * @param groups The candidates, which all extend the seed by one constraint.
+     * @return The quality of every candidate.
+     */
+    public Map<Group, Double> evaluate(Collection<Group> groups) {
+        //When the dataset is evaluated chunk by chunk, the batch, pair and removal paths would collect the indices that
+        //the chunks avoid, so every candidate is evaluated on its own through the chunk statistics instead.
+        HashMap<Group, Double> qualities = new HashMap<>();
+        if(dataset.getChunkSize() > 0) {
+            for(Group group : groups) {
+                qualities.put(group, group.evaluateQuality(dataset, seedIndices, minimumCoverage, maximumCoverage, seedCoverage));
+            }
+            return qualities;
+        }
+
+        //Find the candidates by their last constraint, such that complementing candidates can be found.
+        HashMap<Constraint<?>, Group> groupByConstraint = new HashMap<>();
+        LinkedHashMap<AbstractAttribute<?>, List<Group>> groupsByAttribute = new LinkedHashMap<>();
+        for(Group group : groups) {
+            Constraint<?> constraint = group.getConstraints().peekLast();
+            groupByConstraint.put(constraint, group);
+            groupsByAttribute.computeIfAbsent(constraint.getAttribute(), k -> new ArrayList<>()).add(group);
+        }
+
+        //Evaluate the attributes for which scanning the seed once is cheaper than scanning the candidates.
+        List<AbstractAttribute<?>> batchAttributes = new ArrayList<>();
+        for(Map.Entry<AbstractAttribute<?>, List<Group>> entry : groupsByAttribute.entrySet()) {
+            if(isBatchCheaper(entry.getKey(), entry.getValue())) {
+                batchAttributes.add(entry.getKey());
+            }
+        }
+        if(!batchAttributes.isEmpty()) {
+            evaluateBatch(batchAttributes, groupsByAttribute, qualities);
+        }
+
+        for(Group group : groups) {
+            if(qualities.containsKey(group)) {
+                continue;
+            }
+
+            Constraint<?> constraint = group.getConstraints().peekLast();
+            AbstractAttribute<?> attribute = constraint.getAttribute();
+            Constraint<?> complement = constraint.getComplement();
+            Group complementGroup = complement == null ? null : groupByConstraint.get(complement);
+
+            if(complementGroup == null || qualities.containsKey(complementGroup)) {
+                if(complement != null && getRemovedEstimate(complement) <= MAXIMUM_DOWNDATES) {
+                    //The candidate only removes a few instances from the seed, so derive it from the seed.
+                    Set<Integer> removedIndices = getIntersection(complement);
+                    evaluateRemoval(group, complement, removedIndices, getRows(removedIndices), qualities);
+                } else {
+                    //No pair, so evaluate the candidate on its own.
+                    qualities.put(group, group.evaluateQuality(dataset, seedIndices, minimumCoverage, maximumCoverage, seedCoverage));
+                }
+                continue;
+            }
+
+            //Evaluate the side that covers the fewest instances, and derive the other side from it.
+            if(complement.getCoverage() < constraint.getCoverage()) {
+                Group swap = group;
+                group = complementGroup;
+                complementGroup = swap;
+                constraint = complement;
+            }
+            evaluatePair(group, complementGroup, constraint, qualities);
+        }
+        return qualities;
+    }
+
+    /**
+     * Whether a single pass over the seed is expected to be cheaper than evaluating the candidates separately.
+     * A candidate is expected to cost the instances of its smallest side, as complementing candidates are paired.
+     *
+     * @param attribute The attribute of the candidates.
+     * @param groups The candidates that end with a constraint on the attribute.
+     * @return True if the candidates together cover more instances than the seed.
+     */
+    private boolean isBatchCheaper(AbstractAttribute<?> attribute, List<Group> groups) {
+        //The coverage of the constraints is known for the full dataset, so assume the seed takes an equal share.
+        int n = dataset.getInstances().size();
+        double expectedCost = 0;
+        for(Group group : groups) {
+            int coverage = group.getConstraints().peekLast().getCoverage();
+            expectedCost += Math.min(coverage, n - coverage);
+        }
+        return expectedCost > n;
+    }
+
+    /**
+     * Get the amount of instances that are removed from the seed by the complement of the given constraint, as an
+     * estimate based on the full dataset. This includes the null instances when the constraint is a range check.
+     *
+     * @param removedConstraint The complement of the constraint of the candidate.
+     * @return The maximum amount of instances the candidate removes from the seed.
+     */
+    private int getRemovedEstimate(Constraint<?> removedConstraint) {
+        AbstractAttribute<?> attribute = removedConstraint.getAttribute();
+        int removed = removedConstraint.getCoverage();
+        if(isRangeCheck(removedConstraint) && attribute.getNullStartIndex() != -1) {
+            removed += attribute.getSortedIndices().capacity() - attribute.getNullStartIndex();
+        }
+        return removed;
+    }
+
+    /**
+     * Evaluate all candidates of the given attributes, with a single pass over the instances of the seed.
+     *
+     * @param attributes The attributes to evaluate the candidates of.
+     * @param groupsByAttribute The candidates by the attribute of their last constraint.
+     * @param qualities The map to store the qualities in.
+     */
+    @SuppressWarnings("unchecked")
+    private void evaluateBatch(List<AbstractAttribute<?>> attributes, Map<AbstractAttribute<?>, List<Group>> groupsByAttribute, HashMap<Group, Double> qualities) {
+        //The statistics of every value of every attribute, with the statistics of the nulls in the last position.
+        IntBuffer[] codes = new IntBuffer[attributes.size()];
+        SufficientStatistics[][] valueStatistics = new SufficientStatistics[attributes.size()][];
+        long[][] valueHighs = new long[attributes.size()][];
+        long[][] valueLows = new long[attributes.size()][];
+        List<Integer>[][] valueIndices = (List<Integer>[][]) new List<?>[attributes.size()][];
+        int p = dataset.getXTargets().length + 1;
+        for(int a = 0; a < attributes.size(); a++) {
+            codes[a] = attributes.get(a).getValueCodes();
+            valueStatistics[a] = new SufficientStatistics[attributes.get(a).getSortedValues().size() + 1];
+            for(int i = 0; i < valueStatistics[a].length; i++) {
+                valueStatistics[a][i] = new SufficientStatistics(p);
+            }
+            valueHighs[a] = new long[valueStatistics[a].length];
+            valueLows[a] = new long[valueStatistics[a].length];
+            valueIndices[a] = (List<Integer>[]) new List<?>[valueStatistics[a].length];
+            for(int i = 0; i < valueIndices[a].length; i++) {
+                valueIndices[a][i] = new ArrayList<>();
+            }
+        }
+
+        //Scan the seed once. The contribution of an instance is calculated once, and added to the value of each attribute.
+        //The fingerprints are accumulated alongside, such that the evaluations can still be cached. The instances of
+        //values are kept as long as there are few of them, such that the inequality checks can use a downdate.
+        SufficientStatistics seed = new SufficientStatistics(p);
+        SufficientStatistics row = new SufficientStatistics(p);
+        long seedHigh = 0;
+        long seedLow = 0;
+        double[] x = new double[p - 1];
+        SearchStatistics searchStatistics = dataset.getSearchStatistics();
+        long start = searchStatistics == null ? 0 : System.nanoTime();
+        for(int index : seedIndices == null ? getAllIndices() : seedIndices) {
+            row.clear();
+            dataset.addStatistics(index, x, row);
+            seed.add(row);
+            long high = EvaluationCache.Fingerprint.getHigh(index);
+            long low = EvaluationCache.Fingerprint.getLow(index);
+            seedHigh += high;
+            seedLow += low;
+            for(int a = 0; a < attributes.size(); a++) {
+                int code = codes[a].get(index);
+                if(code == -1) {
+                    code = valueStatistics[a].length - 1;
+                }
+                valueStatistics[a][code].add(row);
+                valueHighs[a][code] += high;
+                valueLows[a][code] += low;
+                List<Integer> indices = valueIndices[a][code];
+                if(indices != null) {
+                    indices.add(index);
+                    if(indices.size() > MAXIMUM_DOWNDATES) {
+                        valueIndices[a][code] = null;
+                    }
+                }
+            }
+        }
+        if(searchStatistics != null) {
+            searchStatistics.addTime(SearchStatistics.Phase.MATRIX, System.nanoTime() - start);
+        }
+        if(seedRows == null) {
+            seedRows = new Rows(seed, new EvaluationCache.Fingerprint(seedHigh, seedLow, seedCoverage));
+        }
+
+        for(int a = 0; a < attributes.size(); a++) {
+            AbstractAttribute<?> attribute = attributes.get(a);
+            Rows[] values = new Rows[valueStatistics[a].length];
+            for(int i = 0; i < values.length; i++) {
+                SufficientStatistics statistics = valueStatistics[a][i];
+                values[i] = new Rows(statistics, new EvaluationCache.Fingerprint(valueHighs[a][i], valueLows[a][i], (int) statistics.getN()));
+            }
+            Rows nulls = values[values.length - 1];
+
+            //The cumulative rows of all values up to and including the value at the position.
+            List<?> sortedValues = attribute.getSortedValues();
+            HashMap<Object, Integer> valueToCode = new HashMap<>();
+            Rows[] cumulative = new Rows[values.length - 1];
+            for(int i = 0; i < cumulative.length; i++) {
+                valueToCode.put(sortedValues.get(i), i);
+                cumulative[i] = i == 0 ? values[0] : cumulative[i - 1].add(values[i]);
+            }
+
+            for(Group group : groupsByAttribute.get(attribute)) {
+                Constraint<?> constraint = group.getConstraints().peekLast();
+                Rows rows = getConstraintRows(constraint, valueToCode, seedRows, values, cumulative, nulls);
+
+                //An inequality check removes the instances of its value from the seed.
+                List<Integer> removedIndices = null;
+                if(constraint.getComparison() == Comparison.NEQ) {
+                    removedIndices = valueIndices[a][constraint.getValue() == null ? values.length - 1 : valueToCode.get(constraint.getValue())];
+                }
+                qualities.put(group, group.evaluateQuality(dataset, getFingerprint(rows), rows.statistics, removedIndices == null ? null : getSeedDecomposition(), removedIndices, minimumCoverage, maximumCoverage, seedCoverage));
+            }
+        }
+    }
+
+    /**
+     * Get the rows of the seed covered by the constraint, from the rows per value.
+     * This follows the same rules as {@link AbstractAttribute#getIndicesSubsetForValue(Constraint)}.
+     *
+     * @param constraint The constraint.
+     * @param valueToCode The position of every value in the sorted values.
+     * @param seed The rows of the seed.
+     * @param values The rows per value.
+     * @param cumulative The rows of all values up to and including every value.
+     * @param nulls The rows with a null value.
+     * @return The rows covered by the constraint.
+     */
+    @SuppressWarnings("unchecked")
+    private Rows getConstraintRows(Constraint<?> constraint, HashMap<Object, Integer> valueToCode, Rows seed, Rows[] values, Rows[] cumulative, Rows nulls) {
+        Object value = constraint.getValue();
+        Rows covered = value == null ? nulls : values[valueToCode.get(value)];
+        Rows rows;
+        switch (constraint.getComparison()) {
+            case EQ:
+                return covered;
+            case NEQ:
+                //Everything except the value, including the nulls.
+                return seed.subtract(covered);
+            case LTEQ:
+                rows = cumulative[valueToCode.get(value)];
+                break;
+            default:
+                //All non-null values from the value onwards.
+                int code = valueToCode.get(value);
+                rows = code == 0 ? cumulative[cumulative.length - 1] : cumulative[cumulative.length - 1].subtract(cumulative[code - 1]);
+                break;
+        }
+
+        //The nulls are part of the range when they are counted as zero, and zero is within the range.
+        AbstractAttribute<?> attribute = constraint.getAttribute();
+        if(attribute instanceof NumericAttribute && attribute.isCountNullAsZero() && ((NumericAttribute) attribute).contains((Constraint<Double>) constraint, 0.0)) {
+            rows = rows.add(nulls);
+        }
+        return rows;
+    }
+
+    /**
+     * Evaluate two candidates that partition the seed, apart from the null instances.
+     *
+     * @param group The candidate that is evaluated on its instances.
+     * @param complementGroup The candidate that is derived from the seed and the other candidate.
+     * @param constraint The last constraint of the candidate that is evaluated on its instances.
+     * @param qualities The map to store the qualities in.
+     */
+    private void evaluatePair(Group group, Group complementGroup, Constraint<?> constraint, HashMap<Group, Double> qualities) {
+        //The side that is evaluated on its instances.
+        Set<Integer> indices = getIntersection(constraint);
+        Rows rows = getRows(indices);
+        qualities.put(group, group.evaluateQuality(dataset, getFingerprint(rows), rows.statistics, minimumCoverage, maximumCoverage, seedCoverage));
+
+        //The other side is the rest of the seed.
+        evaluateRemoval(complementGroup, constraint, indices, rows, qualities);
+    }
+
+    /**
+     * Evaluate a candidate that covers the seed, except for the instances covered by the given constraint.
+     * When the constraint is a range check, the null instances are not part of the candidate either.
+     *
+     * @param group The candidate to evaluate.
+     * @param removedConstraint The complement of the constraint of the candidate.
+     * @param removedIndices The instances of the seed covered by the complement.
+     * @param removedRows The statistics of the instances of the seed covered by the complement.
+     * @param qualities The map to store the qualities in.
+     */
+    private void evaluateRemoval(Group group, Constraint<?> removedConstraint, Set<Integer> removedIndices, Rows removedRows, HashMap<Group, Double> qualities) {
+        Collection<Integer> removed = removedIndices;
+        if(isRangeCheck(removedConstraint)) {
+            AbstractAttribute<?> attribute = removedConstraint.getAttribute();
+            if(!nullRows.containsKey(attribute)) {
+                Set<Integer> indices = getIntersection(attribute.getNullIndices());
+                nullIndices.put(attribute, indices);
+                nullRows.put(attribute, getRows(indices));
+            }
+            removedRows = removedRows.add(nullRows.get(attribute));
+            if(!nullIndices.get(attribute).isEmpty()) {
+                removed = new ArrayList<>(removedIndices);
+                removed.addAll(nullIndices.get(attribute));
+            }
+        }
+
+        Rows rows = getSeedRows().subtract(removedRows);
+        boolean downdate = removed.size() <= MAXIMUM_DOWNDATES;
+        qualities.put(group, group.evaluateQuality(dataset, getFingerprint(rows), rows.statistics, downdate ? getSeedDecomposition() : null, downdate ? removed : null, minimumCoverage, maximumCoverage, seedCoverage));
+    }
+
+    /**
+     * Whether the constraint is a range check, which does not cover the null instances.
+     *
+     * @param constraint The constraint.
+     * @return True if the constraint is a less than or greater than check.
+     */
+    private static boolean isRangeCheck(Constraint<?> constraint) {
+        return constraint.getComparison() == Comparison.LTEQ || constraint.getComparison() == Comparison.GTEQ;
+    }
+
+    /**
+     * Get the statistics and the fingerprint of the seed.
+     *
+     * @return The rows of the seed.
+     */
+    private Rows getSeedRows() {
+        if(seedRows == null) {
+            seedRows = getRows(seedIndices == null ? getAllIndices() : seedIndices);
+        }
+        return seedRows;
+    }
+
+    /**
+     * Get the Cholesky decomposition of the gram matrix of the seed.
+     *
+     * @return The decomposition, null if the gram matrix is not positive definite.
+     */
+    private CholeskyDecomposition getSeedDecomposition() {
+        if(!seedDecomposed) {
+            seedDecomposition = CholeskyDecomposition.decompose(getSeedRows().statistics.getGram());
+            seedDecomposed = true;
+        }
+        return seedDecomposition;
+    }
+
+    /**
+     * Get the statistics and the fingerprint of the given instances.
+     *
+     * @param indices The instances.
+     * @return The rows of the instances.
+     */
+    private Rows getRows(Collection<Integer> indices) {
+        return new Rows(dataset.getStatistics(indices), new EvaluationCache.Fingerprint(indices));
+    }
+
+    /**
+     * Get the fingerprint of the rows, if evaluations are cached.
+     *
+     * @param rows The rows.
+     * @return The fingerprint of the rows, null if evaluations are not cached.
+     */
+    private EvaluationCache.Fingerprint getFingerprint(Rows rows) {
+        return dataset.getEvaluationCache() != null ? rows.fingerprint : null;
+    }
+
+    /**
+     * Get the indices of the seed that are covered by the given constraint, through the strategy chosen by the planner.
+     *
+     * @param constraint The constraint to intersect with the seed.
+     * @return A new set containing the intersection.
+     */
+    private Set<Integer> getIntersection(Constraint<?> constraint) {
+        return dataset.getIntersectionPlanner().intersect(seedIndices, constraint);
+    }
+
+    /**
+     * Get the indices of the seed that are also in the given set.
+     *
+     * @param indices The indices to intersect with the seed.
+     * @return A new set containing the intersection.
+     */
+    private Set<Integer> getIntersection(Set<Integer> indices) {
+        if(seedIndices == null) {
+            return new HashSet<>(indices);
+        }
+
+        //Iterate over the smallest set, and check the other for membership.
+        Set<Integer> smallest = indices.size() < seedIndices.size() ? indices : seedIndices;
+        Set<Integer> largest = smallest == indices ? seedIndices : indices;
+        Set<Integer> result = new HashSet<>();
+        for(int index : smallest) {
+            if(largest.contains(index)) {
+                result.add(index);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the indices of all instances.
+     *
+     * @return A list of all instance indices.
+     */
+    private List<Integer> getAllIndices() {
+        List<Integer> indices = new ArrayList<>(seedCoverage);
+        for(int i = 0; i < seedCoverage; i++) {
+            indices.add(i);
+        }
+        return indices;
+    }
+
+    /**
+     * The statistics and the fingerprint of a set of rows.
+     */
+    private static class Rows {
+        //The regression statistics of the rows.
+        private final SufficientStatistics statistics;
+
+        //The fingerprint of the rows.
+        private final EvaluationCache.Fingerprint fingerprint;
+
+        /**
+         * Create a set of rows.
+         *
+         * @param statistics The regression statistics of the rows.
+         * @param fingerprint The fingerprint of the rows.
+         */
+        private Rows(SufficientStatistics statistics, EvaluationCache.Fingerprint fingerprint) {
+            this.statistics = statistics;
+            this.fingerprint = fingerprint;
+        }
+
+        /**
+         * Get the union with other, disjoint, rows.
+         *
+         * @param other The other rows.
+         * @return The union of the rows.
+         */
+        private Rows add(Rows other) {
+            SufficientStatistics result = new SufficientStatistics(statistics);
+            result.add(other.statistics);
+            return new Rows(result, fingerprint.add(other.fingerprint));
+        }
+
+        /**
+         * Get the rows that are not part of the other rows.
+         *
+         * @param other A subset of the rows.
+         * @return The difference of the rows.
+         */
+        private Rows subtract(Rows other) {
+            SufficientStatistics result = new SufficientStatistics(statistics);
+            result.subtract(other.statistics);
+            return new Rows(result, fingerprint.subtract(other.fingerprint));
+        }
+    }
+}
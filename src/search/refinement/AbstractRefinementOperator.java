@@ -1,11 +1,15 @@
 package search.refinement;
 
 import arff.Dataset;
+import arff.attribute.AbstractAttribute;
+import arff.attribute.Constraint;
+import group.Comparison;
 import group.Group;
+import search.result.SearchStatistics;
 
 import java.math.BigInteger;
-import java.util.HashSet;
-import java.util.Set;
+import java.nio.IntBuffer;
+import java.util.*;
 
 /**
  * Abstract representation of a refinement operator.
@@ -18,9 +22,109 @@ public abstract class AbstractRefinementOperator {
      * @param dataset The dataset to take the data from.
      * @param encounteredGroups The prime products of the groups that have already been encountered.
      * @param minimumQuality The minimum quality the group should have.
+     * @param seedIndices The indices that are part of the seed group, null if the seed covers all instances.
+     * @param minimumCoverage The minimum coverage valid subgroups should have.
      * @return A set of groups that can be used in the beam search.
      */
-    public abstract Set<Group> generate(Group seed, Dataset dataset, HashSet<BigInteger> encounteredGroups, double minimumQuality);
+    public abstract Set<Group> generate(Group seed, Dataset dataset, HashSet<BigInteger> encounteredGroups, double minimumQuality, Set<Integer> seedIndices, double minimumCoverage);
+
+    /**
+     * Find the threshold constraints (LTEQ and GTEQ) of the attribute that are worth refining the seed with.
+     * Thresholds between two consecutive values that occur within the seed select the same instances of the seed,
+     * so only the thresholds on the values within the seed are kept. Of those, the thresholds that select all or
+     * fewer than the minimum coverage of the instances in the seed are dropped as well.
+     *
+     * @param attribute The attribute to find the thresholds for.
+     * @param seedIndices The indices that are part of the seed group, null if the seed covers all instances.
+     * @param minimumCoverage The minimum coverage valid subgroups should have.
+     * @return The threshold constraints that should be used, or null if all constraints of the attribute should be used.
+     */
+    protected Set<Constraint<?>> getSeedThresholds(AbstractAttribute<?> attribute, Set<Integer> seedIndices, double minimumCoverage) {
+        //With nulls counted as zero, the thresholds also select the null instances, so we keep it simple.
+        if(attribute.isCountNullAsZero() || !Arrays.asList(attribute.getComparisons()).contains(Comparison.LTEQ)) {
+            return null;
+        }
+
+        //Walk the sorted order of the attribute, and count the instances of the seed per value.
+        IntBuffer sortedIndices = attribute.getSortedIndices();
+        Map<?, Integer> valueStarts = attribute.getValueIndicesStart();
+        Map<?, Integer> valueEnds = attribute.getValueIndicesEnd();
+        List<Object> seedValues = new ArrayList<>();
+        List<Integer> seedCounts = new ArrayList<>();
+        int seedSize = seedIndices == null ? sortedIndices.capacity() : seedIndices.size();
+        int total = 0;
+        for(Map.Entry<?, Integer> entry : valueStarts.entrySet()) {
+            int count = 0;
+            int end = valueEnds.get(entry.getKey());
+            for(int i = entry.getValue(); i <= end; i++) {
+                if(seedIndices == null || seedIndices.contains(sortedIndices.get(i))) {
+                    count++;
+                }
+            }
+            if(count > 0) {
+                seedValues.add(entry.getKey());
+                seedCounts.add(count);
+                total += count;
+            }
+        }
+
+        //Find the values at which the thresholds select a new subset of the seed.
+        Set<Object> lowerThresholds = new HashSet<>();
+        Set<Object> upperThresholds = new HashSet<>();
+        int below = 0;
+        for(int i = 0; i < seedValues.size(); i++) {
+            //The amount of instances selected by <= value, and >= value.
+            int lower = below + seedCounts.get(i);
+            int upper = total - below;
+            if(lower >= minimumCoverage && lower != seedSize) {
+                lowerThresholds.add(seedValues.get(i));
+            }
+            if(upper >= minimumCoverage && upper != seedSize) {
+                upperThresholds.add(seedValues.get(i));
+            }
+            below = lower;
+        }
+
+        Set<Constraint<?>> thresholds = new HashSet<>();
+        for(Object o : attribute.getConstraints()) {
+            Constraint<?> constraint = (Constraint<?>) o;
+            if(constraint.getComparison() == Comparison.LTEQ && lowerThresholds.contains(constraint.getValue())
+                    || constraint.getComparison() == Comparison.GTEQ && upperThresholds.contains(constraint.getValue())) {
+                thresholds.add(constraint);
+            }
+        }
+        return thresholds;
+    }
+
+    /**
+     * Whether the constraint should be used to refine the seed.
+     *
+     * @param constraint The constraint to check.
+     * @param thresholds The threshold constraints that should be used, null if all constraints should be used.
+     * @return False if the constraint is a threshold that does not change the seed in a useful way, true otherwise.
+     */
+    protected boolean isUsefulConstraint(Constraint<?> constraint, Set<Constraint<?>> thresholds) {
+        if(thresholds == null || (constraint.getComparison() != Comparison.LTEQ && constraint.getComparison() != Comparison.GTEQ)) {
+            return true;
+        }
+        return thresholds.contains(constraint);
+    }
+
+    /**
+     * Count the rejected extension of the seed as a duplicate when the resulting group has been encountered before,
+     * and search statistics are kept.
+     *
+     * @param dataset The dataset to take the search statistics from.
+     * @param seed The seed that could not be extended.
+     * @param constraint The constraint the seed could not be extended with.
+     * @param encounteredGroups The prime products of the groups that have already been encountered.
+     */
+    protected void countRejection(Dataset dataset, Group seed, Constraint<?> constraint, HashSet<BigInteger> encounteredGroups) {
+        SearchStatistics statistics = dataset.getSearchStatistics();
+        if(statistics != null && statistics.getRecord() != null && encounteredGroups.contains(seed.getProduct().multiply(constraint.getProduct()))) {
+            statistics.getRecord().addDuplicates(1);
+        }
+    }
 
     /**
      * Get the name of the quality refinement mode.
@@ -6,7 +6,6 @@ import arff.attribute.Constraint;
 import group.Group;
 
 import java.math.BigInteger;
-import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -21,26 +20,34 @@ public class QualityRefinementOperator extends AbstractRefinementOperator {
      * @param dataset The dataset to take the data from.
      * @param encounteredGroups The prime products of the groups that have already been encountered.
      * @param minimumQuality The minimum quality the group should have.
+     * @param seedIndices The indices that are part of the seed group, null if the seed covers all instances.
+     * @param minimumCoverage The minimum coverage valid subgroups should have.
      * @return A set of groups that can be used in the beam search.
      */
     @Override
-    public Set<Group> generate(Group seed, Dataset dataset, HashSet<BigInteger> encounteredGroups, double minimumQuality) {
+    public Set<Group> generate(Group seed, Dataset dataset, HashSet<BigInteger> encounteredGroups, double minimumQuality, Set<Integer> seedIndices, double minimumCoverage) {
         HashSet<Group> groups = new HashSet<>();
         //Extend the seed by attributes and constraints that are not similar.
 
         //Iterate over all attributes.
-        for(AbstractAttribute attribute : dataset.getAttributes()) {
-            if(Arrays.asList(dataset.getXTargets()).contains(attribute) || dataset.getYTarget() == attribute) {
-                //Skip if the name is in the blacklist or in one of the targets.
+        for(AbstractAttribute<?> attribute : dataset.getAttributes()) {
+            if(!dataset.isSearchable(attribute)) {
+                //Skip if the name is in the blacklist, in one of the targets or excluded on its cardinality.
                 continue;
             }
 
+            //Only the thresholds that select a new subset of the seed are of interest.
+            Set<Constraint<?>> thresholds = getSeedThresholds(attribute, seedIndices, minimumCoverage);
+
             //Iterate over all constraints.
             for(Object o : attribute.getConstraints()) {
-                Constraint constraint = (Constraint) o;
+                Constraint<?> constraint = (Constraint<?>) o;
+                if(!isUsefulConstraint(constraint, thresholds)) {
+                    continue;
+                }
 
                 //Check if the quality of the constraint is sufficient.
-                double quality = attribute.getConstraintEvaluation(constraint);
+                double quality = dataset.getConstraintEvaluation(constraint);
 
                 if(quality < minimumQuality) {
                     continue;
@@ -52,6 +59,8 @@ public class QualityRefinementOperator extends AbstractRefinementOperator {
                 if(group != null) {
                     //Add it to the set of groups.
                     groups.add(group);
+                } else {
+                    countRejection(dataset, seed, constraint, encounteredGroups);
                 }
             }
         }
@@ -0,0 +1,201 @@
+package search.result;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of evaluations, keyed by a fingerprint of the set of rows that has been evaluated.
+ * Different groups often cover exactly the same rows, in which case the regression does not have to be repeated.
+ * The least recently used entry is evicted when the cache is full. All methods are safe to call from multiple threads.
+ */
+public class EvaluationCache {
+    //The evaluations in access order, such that the eldest entry is the least recently used one.
+    private final LinkedHashMap<Fingerprint, RegressionModelEvaluation> evaluations;
+
+    //The amount of lookups and hits since the statistics have been reset.
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+
+    /**
+     * Create an evaluation cache.
+     *
+     * @param capacity The maximum amount of evaluations that are kept.
+     */
+    public EvaluationCache(final int capacity) {
+        this.evaluations = new LinkedHashMap<Fingerprint, RegressionModelEvaluation>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Fingerprint, RegressionModelEvaluation> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Get the cached evaluation of the rows.
+     *
+     * @param fingerprint The fingerprint of the rows.
+     * @return The evaluation, null if the rows have not been evaluated yet or have been evicted.
+     */
+    public RegressionModelEvaluation get(Fingerprint fingerprint) {
+        RegressionModelEvaluation evaluation;
+        synchronized (evaluations) {
+            evaluation = evaluations.get(fingerprint);
+        }
+
+        lookups.incrementAndGet();
+        if(evaluation != null) {
+            hits.incrementAndGet();
+        }
+        return evaluation;
+    }
+
+    /**
+     * Store the evaluation of the rows.
+     *
+     * @param fingerprint The fingerprint of the rows.
+     * @param evaluation The evaluation of the rows.
+     */
+    public void put(Fingerprint fingerprint, RegressionModelEvaluation evaluation) {
+        synchronized (evaluations) {
+            evaluations.put(fingerprint, evaluation);
+        }
+    }
+
+    /**
+     * Get the amount of lookups since the statistics have been reset.
+     *
+     * @return The amount of lookups.
+     */
+    public long getLookups() {
+        return lookups.get();
+    }
+
+    /**
+     * Get the amount of lookups that found an evaluation since the statistics have been reset.
+     *
+     * @return The amount of hits.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Reset the lookup and hit counters, without clearing the cache itself.
+     */
+    public void resetStatistics() {
+        lookups.set(0);
+        hits.set(0);
+    }
+
+    /**
+     * A 128-bit fingerprint of a set of rows, which does not depend on the order in which the rows are visited.
+     * Every row is mixed by two independent 64-bit hash functions, and the results are summed.
+     */
+    public static final class Fingerprint {
+        //The two halves of the fingerprint.
+        private final long high;
+        private final long low;
+
+        //The amount of rows.
+        private final int size;
+
+        /**
+         * Create the fingerprint of the given rows.
+         *
+         * @param indices The rows.
+         */
+        public Fingerprint(Collection<Integer> indices) {
+            long high = 0;
+            long low = 0;
+            for(int index : indices) {
+                high += getHigh(index);
+                low += getLow(index);
+            }
+            this.high = high;
+            this.low = low;
+            this.size = indices.size();
+        }
+
+        /**
+         * Create a fingerprint from its parts, which are the sums of {@link #getHigh(int)} and {@link #getLow(int)} over the rows.
+         *
+         * @param high The first half of the fingerprint.
+         * @param low The second half of the fingerprint.
+         * @param size The amount of rows.
+         */
+        public Fingerprint(long high, long low, int size) {
+            this.high = high;
+            this.low = low;
+            this.size = size;
+        }
+
+        /**
+         * Get the fingerprint of the rows of this fingerprint together with the rows of the other fingerprint.
+         * The rows of both fingerprints should be disjoint.
+         *
+         * @param other The fingerprint of the other rows.
+         * @return The fingerprint of the union of the rows.
+         */
+        public Fingerprint add(Fingerprint other) {
+            return new Fingerprint(high + other.high, low + other.low, size + other.size);
+        }
+
+        /**
+         * Get the fingerprint of the rows of this fingerprint that are not part of the other fingerprint.
+         * As the row hashes are summed, this is the same as the fingerprint of the remaining rows.
+         *
+         * @param other The fingerprint of a subset of the rows.
+         * @return The fingerprint of the difference of the rows.
+         */
+        public Fingerprint subtract(Fingerprint other) {
+            return new Fingerprint(high - other.high, low - other.low, size - other.size);
+        }
+
+        /**
+         * Get the contribution of a row to the first half of a fingerprint.
+         *
+         * @param index The row.
+         * @return The hash of the row.
+         */
+        public static long getHigh(int index) {
+            return mix(index * 0x9E3779B97F4A7C15L);
+        }
+
+        /**
+         * Get the contribution of a row to the second half of a fingerprint.
+         *
+         * @param index The row.
+         * @return The hash of the row.
+         */
+        public static long getLow(int index) {
+            return mix(index * 0xC2B2AE3D27D4EB4FL + 0x165667B19E3779F9L);
+        }
+
+        /**
+         * The finalizer of the 64-bit murmur hash, which spreads every input bit over the whole output.
+         *
+         * @param z The value to mix.
+         * @return The mixed value.
+         */
+        private static long mix(long z) {
+            z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+            z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+            return z ^ (z >>> 33);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(this == o) return true;
+            if(!(o instanceof Fingerprint)) return false;
+            Fingerprint that = (Fingerprint) o;
+            return high == that.high && low == that.low && size == that.size;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (low ^ (low >>> 32));
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package search.result;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counters and timers of a search, kept per seed and summed per level.
+ * A search starts a record for every seed it evaluates, on the thread that evaluates the seed. The time spent in the
+ * phases of the evaluation is added to the record of the current thread, by the code that does the work. When no
+ * statistics are kept, the search holds no statistics object at all, such that the only cost is a null check.
+ *
+ * The statistics are written as JSON or CSV at the end of the search, and can be streamed as every record completes.
+ */
+public class SearchStatistics {
+    /**
+     * The phases of the evaluation of the candidates that are timed.
+     */
+    public enum Phase {
+        //Finding the instances of the seed that satisfy the constraint of a candidate.
+        INTERSECTION,
+        //Accumulating the gram matrix and the other regression statistics, or building the data matrices.
+        MATRIX,
+        //Solving the regression and calculating the Cook's distance.
+        SOLVE,
+        //Adding the candidates to the beam and the result set.
+        INSERTION
+    }
+
+    /**
+     * The formats the statistics can be written in.
+     */
+    public enum Format {
+        //One JSON object, holding an array of levels and an array of seeds. Streamed records are JSON lines.
+        JSON,
+        //A table with one row per level and per seed, of which the seed column is empty for the levels.
+        CSV
+    }
+
+    /**
+     * The counters and timers of a single seed, or the sum of those of a level.
+     */
+    public static class Record {
+        //The level of the seed, and the description of the seed, null for the sum of a level.
+        private final int level;
+        private final String seed;
+
+        //The candidates generated, rejected as a duplicate, by their coverage or by their quality, and evaluated.
+        private long generated;
+        private long duplicates;
+        private long coverageRejections;
+        private long qualityRejections;
+        private long evaluated;
+
+        //The time spent in every phase, and the time between the start and the end of the record, in nanoseconds.
+        private final long[] phaseTimes = new long[Phase.values().length];
+        private long start;
+        private long elapsed;
+
+        /**
+         * Create an empty record.
+         *
+         * @param level The level of the seed.
+         * @param seed The description of the seed, null for the sum of a level.
+         */
+        private Record(int level, String seed) {
+            this.level = level;
+            this.seed = seed;
+        }
+
+        /**
+         * Add the counters and timers of the given record.
+         *
+         * @param other The record to add.
+         */
+        private void add(Record other) {
+            generated += other.generated;
+            duplicates += other.duplicates;
+            coverageRejections += other.coverageRejections;
+            qualityRejections += other.qualityRejections;
+            evaluated += other.evaluated;
+            for(int i = 0; i < phaseTimes.length; i++) {
+                phaseTimes[i] += other.phaseTimes[i];
+            }
+            elapsed += other.elapsed;
+        }
+
+        /**
+         * Count the candidates that have been generated.
+         *
+         * @param count The amount of candidates.
+         */
+        public void addGenerated(long count) {
+            generated += count;
+        }
+
+        /**
+         * Count the candidates that have been rejected, as they have been encountered before.
+         *
+         * @param count The amount of candidates.
+         */
+        public void addDuplicates(long count) {
+            duplicates += count;
+        }
+
+        /**
+         * Count the candidates that have been rejected on their coverage.
+         *
+         * @param count The amount of candidates.
+         */
+        public void addCoverageRejections(long count) {
+            coverageRejections += count;
+        }
+
+        /**
+         * Count the candidates that have been rejected on their quality, exact or estimated.
+         *
+         * @param count The amount of candidates.
+         */
+        public void addQualityRejections(long count) {
+            qualityRejections += count;
+        }
+
+        /**
+         * Count the candidates of which the quality has been evaluated.
+         *
+         * @param count The amount of candidates.
+         */
+        public void addEvaluated(long count) {
+            evaluated += count;
+        }
+
+        /**
+         * Get the amount of evaluated candidates per second of the record.
+         *
+         * @return The evaluations per second, 0 if no time has passed.
+         */
+        public double getEvaluationsPerSecond() {
+            return elapsed > 0 ? evaluated * 1e9 / elapsed : 0;
+        }
+
+        /**
+         * Write the record as a JSON object.
+         *
+         * @return The JSON object, on a single line.
+         */
+        private String toJSON() {
+            StringBuilder builder = new StringBuilder("{\"level\": ").append(level);
+            if(seed != null) {
+                builder.append(", \"seed\": \"").append(seed.replace("\\", "\\\\").replace("\"", "\\\"")).append("\"");
+            }
+            builder.append(", \"generated\": ").append(generated)
+                    .append(", \"duplicates\": ").append(duplicates)
+                    .append(", \"rejected_coverage\": ").append(coverageRejections)
+                    .append(", \"rejected_quality\": ").append(qualityRejections)
+                    .append(", \"evaluated\": ").append(evaluated);
+            for(Phase phase : Phase.values()) {
+                builder.append(", \"").append(phase.name().toLowerCase()).append("_ms\": ").append(phaseTimes[phase.ordinal()] / 1e6);
+            }
+            return builder.append(", \"elapsed_ms\": ").append(elapsed / 1e6)
+                    .append(", \"evaluations_per_second\": ").append(getEvaluationsPerSecond()).append("}").toString();
+        }
+
+        /**
+         * Write the record as a CSV row, in the order of the header.
+         *
+         * @return The CSV row.
+         */
+        private String toCSV() {
+            StringBuilder builder = new StringBuilder().append(level).append(";");
+            if(seed != null) {
+                builder.append("\"").append(seed.replace("\"", "\"\"")).append("\"");
+            }
+            builder.append(";").append(generated).append(";").append(duplicates).append(";").append(coverageRejections)
+                    .append(";").append(qualityRejections).append(";").append(evaluated).append(";");
+            for(long phaseTime : phaseTimes) {
+                builder.append(phaseTime / 1e6).append(";");
+            }
+            return builder.append(elapsed / 1e6).append(";").append(getEvaluationsPerSecond()).toString();
+        }
+    }
+
+    //The records of all seeds that have been completed, in order of completion.
+    private final List<Record> records = new ArrayList<>();
+
+    //The record of the seed that is evaluated by the current thread, if any.
+    private final ThreadLocal<Record> current = new ThreadLocal<>();
+
+    //The format of the written and streamed records.
+    private final Format format;
+
+    //The stream to write every record to once it completes, null if the records are not streamed.
+    private final PrintStream stream;
+
+    /**
+     * Create the statistics of a search.
+     *
+     * @param format The format of the written and streamed records.
+     * @param stream The stream to write every record to once it completes, null to only write them at the end.
+     */
+    public SearchStatistics(Format format, PrintStream stream) {
+        this.format = format;
+        this.stream = stream;
+        if(stream != null && format == Format.CSV) {
+            stream.println(getCSVHeader());
+        }
+    }
+
+    /**
+     * Start the record of a seed, which becomes the record of the current thread.
+     *
+     * @param level The level of the seed.
+     * @param seed The description of the seed.
+     * @return The record, to which the search adds its counters.
+     */
+    public Record startRecord(int level, String seed) {
+        Record record = new Record(level, seed);
+        current.set(record);
+        record.start = System.nanoTime();
+        return record;
+    }
+
+    /**
+     * End the record of the current thread, and stream it when the records are streamed.
+     */
+    public void endRecord() {
+        Record record = current.get();
+        current.remove();
+        record.elapsed = System.nanoTime() - record.start;
+        synchronized (records) {
+            records.add(record);
+        }
+        if(stream != null) {
+            stream.println(format == Format.JSON ? record.toJSON() : record.toCSV());
+        }
+    }
+
+    /**
+     * Get the record of the current thread.
+     *
+     * @return The record of the seed that is evaluated by the current thread, null if there is none.
+     */
+    public Record getRecord() {
+        return current.get();
+    }
+
+    /**
+     * Add time spent in a phase to the record of the current thread. Time spent outside of any record is not kept.
+     *
+     * @param phase The phase the time has been spent in.
+     * @param nanoseconds The time in nanoseconds.
+     */
+    public void addTime(Phase phase, long nanoseconds) {
+        Record record = current.get();
+        if(record != null) {
+            record.phaseTimes[phase.ordinal()] += nanoseconds;
+        }
+    }
+
+    /**
+     * Get the sums of the records per level.
+     *
+     * @return One record per level that has a completed seed, in order of level.
+     */
+    public List<Record> getLevels() {
+        List<Record> levels = new ArrayList<>();
+        synchronized (records) {
+            for(Record record : records) {
+                while(levels.size() < record.level) {
+                    levels.add(new Record(levels.size() + 1, null));
+                }
+                levels.get(record.level - 1).add(record);
+            }
+        }
+        return levels;
+    }
+
+    /**
+     * Write the records of all levels and seeds.
+     *
+     * @param writer The writer to write to.
+     */
+    public void write(PrintWriter writer) {
+        List<Record> levels = getLevels();
+        List<Record> seeds;
+        synchronized (records) {
+            seeds = new ArrayList<>(records);
+        }
+
+        if(format == Format.JSON) {
+            writer.println("{");
+            writer.println("  \"levels\": [");
+            writeJSON(writer, levels);
+            writer.println("  ],");
+            writer.println("  \"seeds\": [");
+            writeJSON(writer, seeds);
+            writer.println("  ]");
+            writer.println("}");
+        } else {
+            writer.println(getCSVHeader());
+            for(Record record : levels) {
+                writer.println(record.toCSV());
+            }
+            for(Record record : seeds) {
+                writer.println(record.toCSV());
+            }
+        }
+    }
+
+    /**
+     * Write the records as the elements of a JSON array.
+     *
+     * @param writer The writer to write to.
+     * @param records The records to write.
+     */
+    private static void writeJSON(PrintWriter writer, List<Record> records) {
+        for(int i = 0; i < records.size(); i++) {
+            writer.println("    " + records.get(i).toJSON() + (i < records.size() - 1 ? "," : ""));
+        }
+    }
+
+    /**
+     * Get the header of the CSV format.
+     *
+     * @return The names of the columns.
+     */
+    private static String getCSVHeader() {
+        StringBuilder header = new StringBuilder("level;seed;generated;duplicates;rejected_coverage;rejected_quality;evaluated;");
+        for(Phase phase : Phase.values()) {
+            header.append(phase.name().toLowerCase()).append("_ms;");
+        }
+        return header.append("elapsed_ms;evaluations_per_second").toString();
+    }
+
+    /**
+     * Get the name of the statistics.
+     *
+     * @return Full name of the statistics.
+     */
+    public String getName() {
+        return format + (stream != null ? ", streamed" : "");
+    }
+}
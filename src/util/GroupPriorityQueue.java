@@ -8,6 +8,9 @@ public class GroupPriorityQueue extends TreeSet<Group> {
     private final int maximumCapacity;
     private double worstValue;
 
+    //Whether the search producing the groups has been stopped before it was finished.
+    private boolean truncated;
+
     public GroupPriorityQueue(int maximumCapacity) {
         this.maximumCapacity = maximumCapacity;
     }
@@ -32,6 +35,33 @@ public class GroupPriorityQueue extends TreeSet<Group> {
         return returnValue;
     }
 
+    /**
+     * Whether the priority queue holds its maximum amount of groups, such that a group has to beat the worst value to be added.
+     *
+     * @return True if the priority queue is full.
+     */
+    public synchronized boolean isFull() {
+        return this.size() >= maximumCapacity;
+    }
+
+    /**
+     * Whether the search that produced the groups has been stopped early, because its budget ran out.
+     *
+     * @return True if the groups are the best groups found before the search was stopped.
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Set whether the search that produced the groups has been stopped early.
+     *
+     * @param truncated Whether the search has been stopped before it was finished.
+     */
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+
     /**
      * Get the worst value that is currently in the priority queue.
      *
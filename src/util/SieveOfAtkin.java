@@ -18,11 +18,11 @@ public class SieveOfAtkin {
      *
      * @return The next prime number after the previously taken prime number.
      */
-    public static Long getNextPrime() {
+    public static synchronized Long getNextPrime() {
         return Long.valueOf(primes.get(counter++));
     }
 
-    public static void resetCounter() {
+    public static synchronized void resetCounter() {
         counter = 0;
     }
 
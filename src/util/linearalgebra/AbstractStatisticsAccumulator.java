@@ -0,0 +1,94 @@
+package util.linearalgebra;
+
+/**
+ * Accumulates the sufficient statistics of a regression over a subset of the rows of primitive columns.
+ * The default accumulator uses SIMD instructions through the Vector API when the optional vector accumulator has been
+ * compiled and the jdk.incubator.vector module is present, and falls back to scalar code otherwise.
+ */
+public abstract class AbstractStatisticsAccumulator {
+    //The name of the class that uses the Vector API, which is compiled separately from the src-vector directory.
+    private static final String VECTOR_ACCUMULATOR = "util.linearalgebra.VectorStatisticsAccumulator";
+
+    //The accumulator that is used by default.
+    private static final AbstractStatisticsAccumulator DEFAULT = load();
+
+    /**
+     * Add the rows with the given indices to the statistics.
+     *
+     * @param columns The x columns followed by the y column, all holding a value for every row.
+     * @param indices The indices of the rows to add.
+     * @param count The amount of indices to use, starting at the first index.
+     * @param statistics The statistics to add the rows to, with one more degree of freedom than the amount of x columns.
+     */
+    public abstract void accumulate(double[][] columns, int[] indices, int count, SufficientStatistics statistics);
+
+    /**
+     * Add the rows with the given indices to the statistics, counting every row the given amount of times.
+     * This is used for distinct rows that stand for several identical rows, such that identical rows are only multiplied once.
+     *
+     * @param columns The x columns followed by the y column, all holding a value for every row.
+     * @param indices The indices of the rows to add.
+     * @param weights The amount of times every row is counted, in the same order as the indices.
+     * @param count The amount of indices to use, starting at the first index.
+     * @param statistics The statistics to add the rows to, with one more degree of freedom than the amount of x columns.
+     */
+    public void accumulate(double[][] columns, int[] indices, int[] weights, int count, SufficientStatistics statistics) {
+        int q = columns.length;
+        double[] sums = new double[q];
+        double[] products = new double[q * q];
+        double[] row = new double[q];
+        long total = 0;
+
+        for(int r = 0; r < count; r++) {
+            int index = indices[r];
+            double weight = weights[r];
+            total += weights[r];
+            for(int a = 0; a < q; a++) {
+                row[a] = columns[a][index];
+                sums[a] += weight * row[a];
+            }
+
+            //Only the upper triangle of the products is needed.
+            for(int a = 0; a < q; a++) {
+                double value = weight * row[a];
+                for(int b = a; b < q; b++) {
+                    products[a * q + b] += value * row[b];
+                }
+            }
+        }
+        statistics.addColumnSums(total, sums, products);
+    }
+
+    /**
+     * Get the name of the accumulator.
+     *
+     * @return Full name of the accumulator.
+     */
+    public abstract String getName();
+
+    /**
+     * Get the accumulator that is used by default.
+     *
+     * @return The vector accumulator if it is available, the scalar accumulator otherwise.
+     */
+    public static AbstractStatisticsAccumulator getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Load the vector accumulator reflectively, such that this class does not depend on the Vector API.
+     * It can be disabled with -Demm.accumulator=scalar.
+     *
+     * @return The vector accumulator if it can be loaded, the scalar accumulator otherwise.
+     */
+    private static AbstractStatisticsAccumulator load() {
+        if(!"scalar".equals(System.getProperty("emm.accumulator"))) {
+            try {
+                return (AbstractStatisticsAccumulator) Class.forName(VECTOR_ACCUMULATOR).getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                //The class has not been compiled, or the jdk.incubator.vector module has not been added.
+            }
+        }
+        return new ScalarStatisticsAccumulator();
+    }
+}
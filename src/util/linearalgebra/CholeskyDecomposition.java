@@ -0,0 +1,131 @@
+package util.linearalgebra;
+
+/**
+ * The Cholesky decomposition A = L L^T of a symmetric positive definite matrix, with L lower triangular.
+ * The decomposition can be downdated by single rows, such that the decomposition of A - x x^T is found in O(p^2)
+ * instead of decomposing the changed matrix again.
+ */
+public class CholeskyDecomposition {
+    //The relative size a diagonal element may shrink to before the decomposition is considered ill-conditioned.
+    private static final double TOLERANCE = 1e-10;
+
+    //The dimension of the matrix.
+    private final int p;
+
+    //The lower triangular factor L in row-major order.
+    private final double[] factor;
+
+    /**
+     * Create a copy of the given decomposition.
+     *
+     * @param other The decomposition to copy.
+     */
+    public CholeskyDecomposition(CholeskyDecomposition other) {
+        this.p = other.p;
+        this.factor = other.factor.clone();
+    }
+
+    /**
+     * Create a decomposition from the given factor.
+     *
+     * @param p The dimension of the matrix.
+     * @param factor The lower triangular factor in row-major order.
+     */
+    private CholeskyDecomposition(int p, double[] factor) {
+        this.p = p;
+        this.factor = factor;
+    }
+
+    /**
+     * Decompose the given matrix.
+     *
+     * @param matrix The symmetric matrix to decompose.
+     * @return The decomposition, null if the matrix is not (numerically) positive definite.
+     */
+    public static CholeskyDecomposition decompose(Matrix matrix) {
+        int p = matrix.n;
+        double[] values = matrix.getFlatValues();
+        double[] factor = new double[p * p];
+
+        for(int j = 0; j < p; j++) {
+            //The diagonal element.
+            double sum = values[j * p + j];
+            for(int k = 0; k < j; k++) {
+                sum -= factor[j * p + k] * factor[j * p + k];
+            }
+            if(sum <= TOLERANCE * Math.abs(values[j * p + j])) {
+                return null;
+            }
+            double diagonal = Math.sqrt(sum);
+            factor[j * p + j] = diagonal;
+
+            //The elements below the diagonal.
+            for(int i = j + 1; i < p; i++) {
+                sum = values[i * p + j];
+                for(int k = 0; k < j; k++) {
+                    sum -= factor[i * p + k] * factor[j * p + k];
+                }
+                factor[i * p + j] = sum / diagonal;
+            }
+        }
+        return new CholeskyDecomposition(p, factor);
+    }
+
+    /**
+     * Downdate the decomposition in place, such that it becomes the decomposition of A - x x^T.
+     * The downdate is rejected when a diagonal element would become too small relative to its old value, as the
+     * result would then be dominated by rounding errors. The decomposition is left in an undefined state in that case.
+     *
+     * @param x The row to remove, of length p. The array is used as a buffer and is changed.
+     * @return True if the downdate succeeded, false if the downdated matrix is ill-conditioned.
+     */
+    public boolean downdate(double[] x) {
+        for(int k = 0; k < p; k++) {
+            double diagonal = factor[k * p + k];
+            double squared = diagonal * diagonal - x[k] * x[k];
+            if(squared <= TOLERANCE * diagonal * diagonal) {
+                return false;
+            }
+
+            //Apply the hyperbolic rotation that removes x[k].
+            double r = Math.sqrt(squared);
+            double c = r / diagonal;
+            double s = x[k] / diagonal;
+            factor[k * p + k] = r;
+            for(int i = k + 1; i < p; i++) {
+                factor[i * p + k] = (factor[i * p + k] - s * x[i]) / c;
+                x[i] = c * x[i] - s * factor[i * p + k];
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Solve A y = b, through forward substitution with L and backward substitution with L^T.
+     *
+     * @param b The right hand side.
+     * @return The solution y.
+     */
+    public Vector solve(Vector b) {
+        double[] y = b.getValues().clone();
+
+        //Solve L z = b.
+        for(int i = 0; i < p; i++) {
+            double sum = y[i];
+            for(int k = 0; k < i; k++) {
+                sum -= factor[i * p + k] * y[k];
+            }
+            y[i] = sum / factor[i * p + i];
+        }
+
+        //Solve L^T y = z.
+        for(int i = p - 1; i >= 0; i--) {
+            double sum = y[i];
+            for(int k = i + 1; k < p; k++) {
+                sum -= factor[k * p + i] * y[k];
+            }
+            y[i] = sum / factor[i * p + i];
+        }
+        return new Vector(y);
+    }
+}
@@ -0,0 +1,235 @@
+package util.linearalgebra;
+
+/**
+ * Allocation-free linear algebra kernels on flat row-major arrays.
+ * An n x m matrix A is stored as a double[] of length n * m, in which A[i][j] is found at position i * m + j.
+ * Every kernel writes its result into a destination array that is given by the caller. Unless stated otherwise, the
+ * destination may be the same array as one of the inputs, such that the operation is performed in place.
+ */
+public final class Kernels {
+    //The size of the square blocks used by the blocked matrix multiplication.
+    private static final int BLOCK_SIZE = 64;
+
+    /**
+     * The kernels are static, so no instances are needed.
+     */
+    private Kernels() {
+    }
+
+    /**
+     * Add two arrays element-wise, dest = a + b.
+     *
+     * @param a The first array.
+     * @param b The second array.
+     * @param dest The destination array, which may be a or b.
+     * @param length The amount of elements.
+     */
+    public static void add(double[] a, double[] b, double[] dest, int length) {
+        for(int i = 0; i < length; i++) {
+            dest[i] = a[i] + b[i];
+        }
+    }
+
+    /**
+     * Subtract two arrays element-wise, dest = a - b.
+     *
+     * @param a The first array.
+     * @param b The array to subtract.
+     * @param dest The destination array, which may be a or b.
+     * @param length The amount of elements.
+     */
+    public static void subtract(double[] a, double[] b, double[] dest, int length) {
+        for(int i = 0; i < length; i++) {
+            dest[i] = a[i] - b[i];
+        }
+    }
+
+    /**
+     * Scale an array, dest = scalar * a.
+     *
+     * @param a The array.
+     * @param scalar The value to multiply the elements by.
+     * @param dest The destination array, which may be a.
+     * @param length The amount of elements.
+     */
+    public static void scale(double[] a, double scalar, double[] dest, int length) {
+        for(int i = 0; i < length; i++) {
+            dest[i] = a[i] * scalar;
+        }
+    }
+
+    /**
+     * The dot product of two arrays.
+     *
+     * @param a The first array.
+     * @param b The second array.
+     * @param length The amount of elements.
+     * @return The sum of a[i] * b[i].
+     */
+    public static double dot(double[] a, double[] b, int length) {
+        double result = 0;
+        for(int i = 0; i < length; i++) {
+            result += a[i] * b[i];
+        }
+        return result;
+    }
+
+    /**
+     * The matrix-vector product, dest = A x.
+     *
+     * @param a The n x m matrix A.
+     * @param n The amount of rows of A.
+     * @param m The amount of columns of A.
+     * @param x The vector of length m.
+     * @param dest The destination vector of length n, which may not be x.
+     */
+    public static void multiply(double[] a, int n, int m, double[] x, double[] dest) {
+        for(int i = 0; i < n; i++) {
+            double sum = 0;
+            int row = i * m;
+            for(int j = 0; j < m; j++) {
+                sum += a[row + j] * x[j];
+            }
+            dest[i] = sum;
+        }
+    }
+
+    /**
+     * The product of the transpose of a matrix and a vector, dest = A^T x, without forming the transpose.
+     *
+     * @param a The n x m matrix A.
+     * @param n The amount of rows of A.
+     * @param m The amount of columns of A.
+     * @param x The vector of length n.
+     * @param dest The destination vector of length m, which may not be x.
+     */
+    public static void transposeMultiply(double[] a, int n, int m, double[] x, double[] dest) {
+        for(int j = 0; j < m; j++) {
+            dest[j] = 0;
+        }
+        for(int i = 0; i < n; i++) {
+            double xi = x[i];
+            int row = i * m;
+            for(int j = 0; j < m; j++) {
+                dest[j] += a[row + j] * xi;
+            }
+        }
+    }
+
+    /**
+     * The blocked matrix-matrix product, dest = A B.
+     * The matrices are processed in square blocks, such that the blocks that are used together stay in the cache.
+     *
+     * @param a The n x k matrix A.
+     * @param b The k x m matrix B.
+     * @param n The amount of rows of A.
+     * @param k The amount of columns of A and rows of B.
+     * @param m The amount of columns of B.
+     * @param dest The destination n x m matrix, which may not be a or b.
+     */
+    public static void multiply(double[] a, double[] b, int n, int k, int m, double[] dest) {
+        for(int i = 0; i < n * m; i++) {
+            dest[i] = 0;
+        }
+
+        for(int i0 = 0; i0 < n; i0 += BLOCK_SIZE) {
+            int i1 = Math.min(i0 + BLOCK_SIZE, n);
+            for(int l0 = 0; l0 < k; l0 += BLOCK_SIZE) {
+                int l1 = Math.min(l0 + BLOCK_SIZE, k);
+                for(int j0 = 0; j0 < m; j0 += BLOCK_SIZE) {
+                    int j1 = Math.min(j0 + BLOCK_SIZE, m);
+
+                    //The i-l-j order walks both B and the destination along their rows.
+                    for(int i = i0; i < i1; i++) {
+                        for(int l = l0; l < l1; l++) {
+                            double ail = a[i * k + l];
+                            int bRow = l * m;
+                            int destRow = i * m;
+                            for(int j = j0; j < j1; j++) {
+                                dest[destRow + j] += ail * b[bRow + j];
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Transpose a matrix, dest = A^T.
+     *
+     * @param a The n x m matrix A.
+     * @param n The amount of rows of A.
+     * @param m The amount of columns of A.
+     * @param dest The destination m x n matrix, which may not be a.
+     */
+    public static void transpose(double[] a, int n, int m, double[] dest) {
+        for(int i = 0; i < n; i++) {
+            for(int j = 0; j < m; j++) {
+                dest[j * n + i] = a[i * m + j];
+            }
+        }
+    }
+
+    /**
+     * The symmetric rank-k update dest = X^T X, without forming the transpose.
+     * Only the lower triangle of the destination is filled, use {@link #symmetrize(double[], int)} for the full matrix.
+     *
+     * @param x The n x p matrix X.
+     * @param n The amount of rows of X.
+     * @param p The amount of columns of X.
+     * @param dest The destination p x p matrix, which may not be x.
+     */
+    public static void gram(double[] x, int n, int p, double[] dest) {
+        for(int i = 0; i < p * p; i++) {
+            dest[i] = 0;
+        }
+
+        //Add the outer product of every row of X to the lower triangle.
+        for(int r = 0; r < n; r++) {
+            int row = r * p;
+            for(int i = 0; i < p; i++) {
+                double xi = x[row + i];
+                int destRow = i * p;
+                for(int j = 0; j <= i; j++) {
+                    dest[destRow + j] += xi * x[row + j];
+                }
+            }
+        }
+    }
+
+    /**
+     * Copy the lower triangle of a square matrix to its upper triangle.
+     *
+     * @param a The p x p matrix, which is changed in place.
+     * @param p The dimension of the matrix.
+     */
+    public static void symmetrize(double[] a, int p) {
+        for(int i = 0; i < p; i++) {
+            for(int j = 0; j < i; j++) {
+                a[j * p + i] = a[i * p + j];
+            }
+        }
+    }
+
+    /**
+     * The quadratic form x^T A x, fused such that A x is never stored.
+     *
+     * @param a The p x p matrix A.
+     * @param p The dimension of A.
+     * @param x The vector of length p.
+     * @return The value of x^T A x.
+     */
+    public static double quadraticForm(double[] a, int p, double[] x) {
+        double result = 0;
+        for(int i = 0; i < p; i++) {
+            double sum = 0;
+            int row = i * p;
+            for(int j = 0; j < p; j++) {
+                sum += a[row + j] * x[j];
+            }
+            result += x[i] * sum;
+        }
+        return result;
+    }
+}
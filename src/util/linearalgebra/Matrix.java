@@ -1,12 +1,15 @@
 package util.linearalgebra;
 
+import java.util.Arrays;
+
 /**
+ * An immutable matrix, stored in a flat row-major array. All operations are performed by {@link Kernels}.
  *
  * @author Melroy
  */
 public class Matrix {
-    //The value within the matrix.
-    private final double[][] values;
+    //The values within the matrix, in row-major order.
+    private final double[] values;
     
     public final int n;
     public final int m;
@@ -14,12 +17,28 @@ public class Matrix {
     /**
      * Create a matrix from a given double double array.
      * 
-     * @param values The values to base the matrix on.
+     * @param values The values to base the matrix on, which are copied.
      */
     public Matrix(double[][] values) {
-        this.values = values;
         n = values.length;
         m = values[0].length;
+        this.values = new double[n * m];
+        for(int i = 0; i < n; i++) {
+            System.arraycopy(values[i], 0, this.values, i * m, m);
+        }
+    }
+
+    /**
+     * Create a matrix from a flat row-major array, without copying it.
+     *
+     * @param n The amount of rows in the matrix.
+     * @param m The amount of columns in the matrix.
+     * @param values The values of the matrix in row-major order, which should not be changed afterwards.
+     */
+    public Matrix(int n, int m, double[] values) {
+        this.n = n;
+        this.m = m;
+        this.values = values;
     }
     
     /**
@@ -30,12 +49,8 @@ public class Matrix {
      * @param m The amount of columns in the matrix.
      */
     public Matrix(double value, int n, int m) {
-        values = new double[n][m];
-        for(int i = 0; i < n; i++) {
-            for(int j = 0; j < m; j++) {
-                values[i][j] = value;
-            }
-        }
+        values = new double[n * m];
+        Arrays.fill(values, value);
         this.n = n;
         this.m = m;
     }
@@ -48,14 +63,9 @@ public class Matrix {
      */
     public Matrix add(Matrix m1) {
         checkDimensions(this, m1);
-        double[][] values = new double[n][m];
-
-        for(int i = 0; i < n; i++) {
-            for(int j = 0; j < m; j++) {
-                values[i][j] = this.values[i][j] + m1.values[i][j];
-            }
-        }
-        return new Matrix(values);
+        double[] values = new double[n * m];
+        Kernels.add(this.values, m1.values, values, n * m);
+        return new Matrix(n, m, values);
     } 
     
     /**
@@ -66,14 +76,9 @@ public class Matrix {
      */
     public Matrix subtract(Matrix m1) {
         checkDimensions(this, m1);
-        double[][] values = new double[n][m];
-
-        for(int i = 0; i < n; i++) {
-            for(int j = 0; j < m; j++) {
-                values[i][j] = this.values[i][j] - m1.values[i][j];
-            }
-        }
-        return new Matrix(values);
+        double[] values = new double[n * m];
+        Kernels.subtract(this.values, m1.values, values, n * m);
+        return new Matrix(n, m, values);
     } 
     
     /**
@@ -83,14 +88,9 @@ public class Matrix {
      * @return A new matrix that is the addition of this matrix and the other matrix.
      */
     public Matrix scale(double scalar) {
-        double[][] values = new double[n][m];
-
-        for(int i = 0; i < n; i++) {
-            for(int j = 0; j < m; j++) {
-                values[i][j] = this.values[i][j] * scalar;
-            }
-        }
-        return new Matrix(values);
+        double[] values = new double[n * m];
+        Kernels.scale(this.values, scalar, values, n * m);
+        return new Matrix(n, m, values);
     } 
     
     /**
@@ -102,11 +102,7 @@ public class Matrix {
     public Vector multiply(Vector v1) {
         checkDimensions(this, v1);
         double[] vector = new double[n];
-        for(int i = 0; i < n; i++) {
-            for(int j = 0; j < m; j++) {
-                vector[i] += values[i][j] * v1.getValues()[j];
-            }
-        } 
+        Kernels.multiply(values, n, m, v1.getValues(), vector);
         return new Vector(vector);
     }
     
@@ -117,24 +113,51 @@ public class Matrix {
      * @return A matrix that is the result of the multiplication.
      */
     public Matrix multiply(Matrix m1) {
-        if(this.n != m1.m || this.m != m1.n) {
-            throw new IllegalArgumentException("The matrices cannot be multiplied because of their deviating size! m1.n == m2.m && m1.m == m2.n is required!");
+        if(this.m != m1.n) {
+            throw new IllegalArgumentException("The matrices cannot be multiplied because of their deviating size! m1.m == m2.n is required!");
         }
         
-        double[][] matrix = new double[n][n];
-        //Iterate over the rows of the first matrix.
-        for(int i = 0; i < n; i++) {
-            //Iterate over the columns of the second matrix, which is essentially the same as the loop above.
-            for(int j = 0; j < n; j++) {
-                //Take the dot product of the ith row in matrix 1, and the jth column in matrix 2.
-                //These should both have length m, else we throw an exception above.
-                
-                for(int k = 0; k < m; k++) {
-                    matrix[i][j] += values[i][k] * m1.values[k][j];
-                }
-            }
-        } 
-        return new Matrix(matrix);
+        double[] matrix = new double[n * m1.m];
+        Kernels.multiply(values, m1.values, n, m, m1.m, matrix);
+        return new Matrix(n, m1.m, matrix);
+    }
+
+    /**
+     * Get the gram matrix of this matrix, which is the product of the transpose of this matrix and this matrix.
+     *
+     * @return The m x m matrix A^T A.
+     */
+    public Matrix getGram() {
+        double[] gram = new double[m * m];
+        Kernels.gram(values, n, m, gram);
+        Kernels.symmetrize(gram, m);
+        return new Matrix(m, m, gram);
+    }
+
+    /**
+     * Multiply the transpose of this matrix by a column vector, without forming the transpose.
+     *
+     * @param v1 The vector to multiply by, of length n.
+     * @return The vector A^T v.
+     */
+    public Vector transposeMultiply(Vector v1) {
+        if(n != v1.size()) {
+            throw new IllegalArgumentException("The matrix and the vector do not share the same n!");
+        }
+        double[] vector = new double[m];
+        Kernels.transposeMultiply(values, n, m, v1.getValues(), vector);
+        return new Vector(vector);
+    }
+
+    /**
+     * Get the quadratic form of this square matrix and the vector.
+     *
+     * @param v1 The vector.
+     * @return The value v^T A v.
+     */
+    public double quadraticForm(Vector v1) {
+        checkDimensions(this, v1);
+        return Kernels.quadraticForm(values, n, v1.getValues());
     }
     
     /**
@@ -144,7 +167,7 @@ public class Matrix {
      * @throws util.linearalgebra.NoSquareException When the given matrix is not a square matrix.
      */
     public double getDeterminant() throws NoSquareException {
-        return getDeterminant(values, n, m);
+        return getDeterminant(getValues(), n, m);
     }
     
     /**
@@ -196,13 +219,14 @@ public class Matrix {
      * @throws NoSquareException When the matrix is not in a square form.
      */
     public Matrix getCoFactor() throws NoSquareException {
-        double[][] matrix = new double[n][m];
+        double[][] values = getValues();
+        double[] matrix = new double[n * m];
         for(int i = 0; i < n; i++) {
             for(int j = 0; j < m; j++) {
-                matrix[i][j] = getSign(i) * getSign(j) * getDeterminant(getSubArray(values, i, j), n - 1, m - 1);
+                matrix[i * m + j] = getSign(i) * getSign(j) * getDeterminant(getSubArray(values, i, j), n - 1, m - 1);
             }
         } 
-        return new Matrix(matrix);
+        return new Matrix(n, m, matrix);
     }
 
     /**
@@ -267,20 +291,28 @@ public class Matrix {
      * @return This matrix reflected along the main diagonal.
      */
     public Matrix getTransposeMatrix() {
-        double[][] transpose = new double[values[0].length][values.length];
-        for(int i = 0; i < n; i++) {
-            for(int j = 0; j < m; j++) {
-                transpose[j][i] = values[i][j];
-            }
-        }
-        return new Matrix(transpose);
+        double[] transpose = new double[n * m];
+        Kernels.transpose(values, n, m, transpose);
+        return new Matrix(m, n, transpose);
     }
      
     /**
      * Get the values within the matrix.
-     * @return the values within the matrix.
+     * @return A copy of the values within the matrix.
      */
     public double[][] getValues() {
+        double[][] result = new double[n][m];
+        for(int i = 0; i < n; i++) {
+            System.arraycopy(values, i * m, result[i], 0, m);
+        }
+        return result;
+    }
+
+    /**
+     * Get the values within the matrix in row-major order.
+     * @return The internal array of values, which should not be changed.
+     */
+    public double[] getFlatValues() {
         return values;
     }
     
@@ -290,11 +322,11 @@ public class Matrix {
      * @return A matrix that has the values of an identity matrix.
      */
     public static Matrix getIdentityMatrix(int n) {
-        double[][] values = new double[n][n];
+        double[] values = new double[n * n];
         for(int i = 0; i < n; i++) {
-            values[i][i] = 1;
+            values[i * n + i] = 1;
         }
-        return new Matrix(values);
+        return new Matrix(n, n, values);
     }
     
     /**
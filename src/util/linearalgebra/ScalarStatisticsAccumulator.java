@@ -0,0 +1,49 @@
+package util.linearalgebra;
+
+/**
+ * Accumulates the sufficient statistics of a regression one row at a time.
+ */
+public class ScalarStatisticsAccumulator extends AbstractStatisticsAccumulator {
+    /**
+     * Add the rows with the given indices to the statistics.
+     *
+     * @param columns The x columns followed by the y column, all holding a value for every row.
+     * @param indices The indices of the rows to add.
+     * @param count The amount of indices to use, starting at the first index.
+     * @param statistics The statistics to add the rows to, with one more degree of freedom than the amount of x columns.
+     */
+    @Override
+    public void accumulate(double[][] columns, int[] indices, int count, SufficientStatistics statistics) {
+        int q = columns.length;
+        double[] sums = new double[q];
+        double[] products = new double[q * q];
+        double[] row = new double[q];
+
+        for(int r = 0; r < count; r++) {
+            int index = indices[r];
+            for(int a = 0; a < q; a++) {
+                row[a] = columns[a][index];
+                sums[a] += row[a];
+            }
+
+            //Only the upper triangle of the products is needed.
+            for(int a = 0; a < q; a++) {
+                double value = row[a];
+                for(int b = a; b < q; b++) {
+                    products[a * q + b] += value * row[b];
+                }
+            }
+        }
+        statistics.addColumnSums(count, sums, products);
+    }
+
+    /**
+     * Get the name of the accumulator.
+     *
+     * @return Full name of the accumulator.
+     */
+    @Override
+    public String getName() {
+        return "Scalar";
+    }
+}
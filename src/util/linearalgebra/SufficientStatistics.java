@@ -0,0 +1,198 @@
+package util.linearalgebra;
+
+import java.util.Arrays;
+
+/**
+ * The sufficient statistics of a least squares regression with an intercept: X^T X, X^T y, y^T y and the amount of rows.
+ * Rows can be added one at a time, such that the statistics can be accumulated without keeping the rows themselves.
+ */
+public class SufficientStatistics {
+    //The degrees of freedom, which is the amount of x values + 1 for the intercept.
+    private final int p;
+
+    //The gram matrix X^T X in row-major order.
+    private final double[] gram;
+
+    //The vector X^T y.
+    private final double[] xty;
+
+    //The value y^T y.
+    private double yty;
+
+    //The amount of rows that have been added.
+    private long n;
+
+    /**
+     * Create empty statistics.
+     *
+     * @param p The degrees of freedom, which is the amount of x values + 1 for the intercept.
+     */
+    public SufficientStatistics(int p) {
+        this.p = p;
+        this.gram = new double[p * p];
+        this.xty = new double[p];
+    }
+
+    /**
+     * Create a copy of the given statistics.
+     *
+     * @param other The statistics to copy.
+     */
+    public SufficientStatistics(SufficientStatistics other) {
+        this.p = other.p;
+        this.gram = other.gram.clone();
+        this.xty = other.xty.clone();
+        this.yty = other.yty;
+        this.n = other.n;
+    }
+
+    /**
+     * Add a single row.
+     *
+     * @param y The y value of the row.
+     * @param x The x values of the row, without the intercept.
+     */
+    public void add(double y, double[] x) {
+        //The intercept column.
+        gram[0] += 1;
+        xty[0] += y;
+        for(int j = 1; j < p; j++) {
+            gram[j] += x[j - 1];
+        }
+
+        for(int i = 1; i < p; i++) {
+            double xi = x[i - 1];
+            xty[i] += xi * y;
+            gram[i * p] += xi;
+            for(int j = 1; j < p; j++) {
+                gram[i * p + j] += xi * x[j - 1];
+            }
+        }
+
+        yty += y * y;
+        n++;
+    }
+
+    /**
+     * Add rows that have been summed per column.
+     * The columns are the x values followed by the y value, such that there are p columns in total.
+     *
+     * @param count The amount of rows.
+     * @param sums The sum of every column.
+     * @param products The sums of the products of every pair of columns, in the upper triangle of a p x p row-major array.
+     */
+    public void addColumnSums(long count, double[] sums, double[] products) {
+        //The column of y is the last column.
+        int y = p - 1;
+
+        //The intercept column.
+        gram[0] += count;
+        xty[0] += sums[y];
+        for(int j = 1; j < p; j++) {
+            gram[j] += sums[j - 1];
+            gram[j * p] += sums[j - 1];
+        }
+
+        for(int i = 1; i < p; i++) {
+            xty[i] += products[(i - 1) * p + y];
+            for(int j = i; j < p; j++) {
+                double product = products[(i - 1) * p + j - 1];
+                gram[i * p + j] += product;
+                if(i != j) {
+                    gram[j * p + i] += product;
+                }
+            }
+        }
+
+        yty += products[y * p + y];
+        n += count;
+    }
+
+    /**
+     * Add all rows of the other statistics to these statistics.
+     *
+     * @param other The statistics to add.
+     */
+    public void add(SufficientStatistics other) {
+        for(int i = 0; i < gram.length; i++) {
+            gram[i] += other.gram[i];
+        }
+        for(int i = 0; i < p; i++) {
+            xty[i] += other.xty[i];
+        }
+        yty += other.yty;
+        n += other.n;
+    }
+
+    /**
+     * Remove all rows of the other statistics from these statistics.
+     * The other rows should be a subset of the rows that have been added to these statistics.
+     *
+     * @param other The statistics to remove.
+     */
+    public void subtract(SufficientStatistics other) {
+        for(int i = 0; i < gram.length; i++) {
+            gram[i] -= other.gram[i];
+        }
+        for(int i = 0; i < p; i++) {
+            xty[i] -= other.xty[i];
+        }
+        yty -= other.yty;
+        n -= other.n;
+    }
+
+    /**
+     * Remove all rows, such that the statistics can be reused.
+     */
+    public void clear() {
+        Arrays.fill(gram, 0);
+        Arrays.fill(xty, 0);
+        yty = 0;
+        n = 0;
+    }
+
+    /**
+     * Get the degrees of freedom.
+     *
+     * @return The amount of x values + 1.
+     */
+    public int getP() {
+        return p;
+    }
+
+    /**
+     * Get the amount of rows.
+     *
+     * @return The amount of rows that have been added.
+     */
+    public long getN() {
+        return n;
+    }
+
+    /**
+     * Get the gram matrix.
+     *
+     * @return X^T X as a p x p matrix.
+     */
+    public Matrix getGram() {
+        return new Matrix(p, p, gram.clone());
+    }
+
+    /**
+     * Get the X^T y vector.
+     *
+     * @return X^T y as a vector of length p.
+     */
+    public Vector getXTY() {
+        return new Vector(xty.clone());
+    }
+
+    /**
+     * Get the sum of the squared y values.
+     *
+     * @return y^T y.
+     */
+    public double getYTY() {
+        return yty;
+    }
+}
@@ -49,11 +49,7 @@ public class Vector {
     public Vector add(Vector v1) {
         checkDimensions(this, v1);
         double[] values = new double[this.size()];
-
-        for(int i = 0; i < this.size(); i++) {
-            values[i] = this.values[i] + v1.values[i];
-        }
-
+        Kernels.add(this.values, v1.values, values, values.length);
         return new Vector(values);
     } 
     
@@ -65,11 +61,7 @@ public class Vector {
     public Vector subtract(Vector v1) {
         checkDimensions(this, v1);
         double[] values = new double[this.size()];
-
-        for(int i = 0; i < this.size(); i++) {
-            values[i] = this.values[i] - v1.values[i];
-        }
-
+        Kernels.subtract(this.values, v1.values, values, values.length);
         return new Vector(values);
     } 
     
@@ -80,11 +72,7 @@ public class Vector {
      */
     public Vector scale(double scalar) {
         double[] values = new double[this.size()];
-
-        for(int i = 0; i < this.size(); i++) {
-            values[i] = this.values[i] * scalar;
-        }
-
+        Kernels.scale(this.values, scalar, values, values.length);
         return new Vector(values);
     } 
     
@@ -104,11 +92,7 @@ public class Vector {
      */
     public double dot(Vector v1) {
         checkDimensions(this, v1);
-        double result = 0;
-        for(int i = 0; i < this.size(); i++) {
-            result += this.values[i] * v1.values[i];
-        }
-        return result;
+        return Kernels.dot(this.values, v1.values, this.size());
     }
     
     /**